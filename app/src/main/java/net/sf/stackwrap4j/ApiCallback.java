@@ -0,0 +1,23 @@
+package net.sf.stackwrap4j;
+
+/**
+ * Receives the outcome of an asynchronous call made through StackWrapperAsync.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public interface ApiCallback<T> {
+
+    /**
+     * Called with the result of a call that succeeded.
+     * @param result the value the call returned
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called with the exception of a call that failed. Cancelled calls fail with an
+     * InterruptedIOException.
+     * @param e the IOException, JSONException, ParameterNotSetException or RuntimeException thrown
+     */
+    void onFailure(Exception e);
+}
@@ -0,0 +1,161 @@
+package net.sf.stackwrap4j;
+
+import net.sf.stackwrap4j.exceptions.ParameterNotSetException;
+import net.sf.stackwrap4j.json.JSONException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending result of a call made through StackWrapperAsync.
+ *
+ * The result can be waited for with await(), which throws the same exceptions as the blocking
+ * call, or delivered to callbacks, which run once the call completes without tying up a thread to
+ * wait for it.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class ApiFuture<T> extends FutureTask<T> {
+
+    /* Guarded by this. Set to null once the callbacks have been dispatched. */
+    private List<Runnable> callbacks = new ArrayList<Runnable>(2);
+
+    ApiFuture(Callable<T> call) {
+        super(call);
+    }
+
+    /**
+     * Registers a callback, run on the given executor once the call completes. If the call has
+     * already completed the callback is dispatched immediately.
+     *
+     * @param callback
+     *            receives the result or the failure
+     * @param executor
+     *            runs the callback (Example: an executor posting to Android's main looper)
+     * @return this future
+     */
+    public ApiFuture<T> addCallback(final ApiCallback<? super T> callback, final Executor executor) {
+        Runnable dispatch = new Runnable() {
+            public void run() {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        T result;
+                        try {
+                            result = await();
+                        } catch (Exception e) {
+                            callback.onFailure(e);
+                            return;
+                        }
+                        callback.onSuccess(result);
+                    }
+                });
+            }
+        };
+        synchronized (this) {
+            if (callbacks != null) {
+                callbacks.add(dispatch);
+                return this;
+            }
+        }
+        dispatch.run();
+        return this;
+    }
+
+    @Override
+    protected void done() {
+        List<Runnable> ready;
+        synchronized (this) {
+            ready = callbacks;
+            callbacks = null;
+        }
+        for (Runnable dispatch : ready) {
+            dispatch.run();
+        }
+    }
+
+    /**
+     * Waits for the call to complete and returns its result.
+     *
+     * @return the result of the call
+     * @throws IOException
+     *             if the call failed, was cancelled or the caller was interrupted
+     * @throws JSONException
+     *             if the response could not be parsed
+     * @throws ParameterNotSetException
+     *             if the query was missing a required parameter
+     */
+    public T await() throws IOException, JSONException, ParameterNotSetException {
+        try {
+            return get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response.");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("The request was cancelled.");
+        }
+    }
+
+    /**
+     * Waits at most the given time for the call to complete and returns its result. The call is
+     * cancelled if it has not completed in time.
+     *
+     * @param timeout
+     *            the maximum time to wait
+     * @param unit
+     *            the unit of the timeout
+     * @return the result of the call
+     * @throws SocketTimeoutException
+     *             if the result was not available in time
+     * @throws IOException
+     *             if the call failed, was cancelled or the caller was interrupted
+     * @throws JSONException
+     *             if the response could not be parsed
+     * @throws ParameterNotSetException
+     *             if the query was missing a required parameter
+     */
+    public T await(long timeout, TimeUnit unit) throws IOException, JSONException, ParameterNotSetException {
+        try {
+            return get(timeout, unit);
+        } catch (TimeoutException e) {
+            cancel(true);
+            throw new SocketTimeoutException("Timed out waiting for a response.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response.");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("The request was cancelled.");
+        }
+    }
+
+    private static IOException unwrap(ExecutionException e) throws JSONException, ParameterNotSetException {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException)
+            return (IOException) cause;
+        if (cause instanceof JSONException)
+            throw (JSONException) cause;
+        if (cause instanceof ParameterNotSetException)
+            throw (ParameterNotSetException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        IOException wrapped = new IOException(String.valueOf(cause));
+        wrapped.initCause(cause);
+        return wrapped;
+    }
+}
@@ -0,0 +1,171 @@
+package net.sf.stackwrap4j;
+
+import net.sf.stackwrap4j.http.Deadline;
+import net.sf.stackwrap4j.json.JSONException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges single-id lookups made at about the same time into one vectorized request.
+ *
+ * The first lookup opens a batch and waits for the batch window; lookups from other threads made
+ * during the window join the batch instead of making requests of their own. When the window closes,
+ * or the batch reaches the most ids one request accepts, the first lookup fetches every id in the
+ * batch and each caller gets its own entity out of the result. Callers wait no longer than their
+ * Deadline allows, and the first lookup waits no longer than its deadline for the window either.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+abstract class BatchLoader<E> {
+
+    private final int maxBatch;
+
+    /* Guarded by this. The batch new lookups join, or null if none is open. */
+    private Batch<E> open = null;
+
+    BatchLoader(int maxBatch) {
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Fetches entities by id with one vectorized request.
+     */
+    abstract List<E> fetch(int... ids) throws IOException, JSONException;
+
+    /**
+     * Gets the id an entity was looked up by.
+     */
+    abstract int idOf(E entity);
+
+    /**
+     * Looks up one entity, sharing the request with other lookups made within the window.
+     *
+     * @param id
+     *            the id of the entity
+     * @param windowNanos
+     *            how long to wait for other lookups to join, or 0 to fetch the id on its own
+     * @return the entity, or null if the API did not return one with that id
+     * @throws IOException
+     *             if the shared request failed, or the thread was interrupted or its deadline passed
+     *             while waiting for it
+     * @throws JSONException
+     *             if the shared response could not be parsed
+     */
+    E load(int id, long windowNanos) throws IOException, JSONException {
+        if (windowNanos <= 0)
+            return find(fetch(id), id);
+        Deadline deadline = Deadline.current();
+        if (deadline != null)
+            windowNanos = Math.min(windowNanos, deadline.remaining(TimeUnit.NANOSECONDS));
+        Batch<E> batch;
+        boolean leader = false;
+        synchronized (this) {
+            if (open == null) {
+                open = new Batch<E>();
+                leader = true;
+            }
+            batch = open;
+            batch.ids.add(id);
+            if (batch.ids.size() >= maxBatch) {
+                open = null;
+                notifyAll();
+            }
+        }
+        if (leader) {
+            awaitWindow(batch, windowNanos);
+            batch.run(this);
+        }
+        return batch.get(id, deadline);
+    }
+
+    /*
+     * Waits until the window has passed or the batch has filled up, then closes it to new lookups.
+     * An interrupt closes the batch early, since the lookups that joined it depend on it being run.
+     */
+    private synchronized void awaitWindow(Batch<E> batch, long windowNanos) {
+        long deadline = System.nanoTime() + windowNanos;
+        try {
+            while (open == batch) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    break;
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (open == batch)
+            open = null;
+    }
+
+    private E find(List<E> entities, int id) {
+        for (E entity : entities) {
+            if (idOf(entity) == id)
+                return entity;
+        }
+        return null;
+    }
+
+    /**
+     * The ids looked up together and, once fetched, their entities or the failure.
+     */
+    private static final class Batch<E> {
+        /* Guarded by the loader until the batch is closed, then only read. */
+        final Set<Integer> ids = new LinkedHashSet<Integer>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private Map<Integer, E> entities;
+        /* Whatever the fetch threw, Errors included, to be rethrown to every caller. */
+        private Throwable failure;
+
+        void run(BatchLoader<E> loader) {
+            try {
+                int[] request = new int[ids.size()];
+                int i = 0;
+                for (Integer id : ids) {
+                    request[i++] = id.intValue();
+                }
+                Map<Integer, E> byId = new HashMap<Integer, E>();
+                for (E entity : loader.fetch(request)) {
+                    byId.put(Integer.valueOf(loader.idOf(entity)), entity);
+                }
+                entities = byId;
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        E get(int id, Deadline deadline) throws IOException, JSONException {
+            try {
+                if (deadline == null)
+                    done.await();
+                else if (!done.await(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS))
+                    throw new Deadline.Exceeded("The deadline passed while waiting for a batched lookup.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a batched lookup.");
+            }
+            if (failure instanceof IOException)
+                throw (IOException) failure;
+            if (failure instanceof JSONException)
+                throw (JSONException) failure;
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            if (failure instanceof Error)
+                throw (Error) failure;
+            if (failure != null)
+                throw new IOException(failure);
+            return entities.get(Integer.valueOf(id));
+        }
+    }
+}
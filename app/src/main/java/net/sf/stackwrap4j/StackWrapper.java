@@ -32,16 +32,19 @@ import net.sf.stackwrap4j.entities.PostTimeline;
 import net.sf.stackwrap4j.entities.Question;
 import net.sf.stackwrap4j.entities.Reputation;
 import net.sf.stackwrap4j.entities.Revision;
+import net.sf.stackwrap4j.entities.StackObjBase;
 import net.sf.stackwrap4j.entities.Tag;
 import net.sf.stackwrap4j.entities.User;
 import net.sf.stackwrap4j.entities.UserTimeline;
 import net.sf.stackwrap4j.exceptions.ParameterNotSetException;
 import net.sf.stackwrap4j.http.HttpClient;
-import net.sf.stackwrap4j.json.JSONArray;
+import net.sf.stackwrap4j.http.KeyPool;
+import net.sf.stackwrap4j.http.Transport;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
 import net.sf.stackwrap4j.query.AnswerQuery;
 import net.sf.stackwrap4j.query.BadgeQuery;
+import net.sf.stackwrap4j.query.BaseQuery;
 import net.sf.stackwrap4j.query.CommentQuery;
 import net.sf.stackwrap4j.query.FavoriteQuery;
 import net.sf.stackwrap4j.query.QuestionQuery;
@@ -53,6 +56,7 @@ import net.sf.stackwrap4j.query.TimelineQuery;
 import net.sf.stackwrap4j.query.UnansweredQuery;
 import net.sf.stackwrap4j.query.UserQuery;
 import net.sf.stackwrap4j.query.UserQuestionQuery;
+import net.sf.stackwrap4j.routes.BaseRoute;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -60,6 +64,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -69,6 +74,10 @@ import java.util.Map;
  * See the API documentation and help for information on what the API does.
  * Documentation: http://stackapps.com/questions/1/api-documentation-and-help
  * 
+ * A StackWrapper is thread-safe: its site and key are fixed when it is created, and one wrapper
+ * can serve any number of threads at once. Share a single wrapper rather than creating one per
+ * thread, so lookups from different threads can be batched together (see setBatchWindow).
+ * 
  * @author Bill Cruise
  * @author Justin Nelson
  * @author Ari Gesher <alephbass@users.sourceforge.net>
@@ -77,10 +86,54 @@ public class StackWrapper implements Serializable {
     
     private static final long serialVersionUID = -8206261687224998064L;
     
-	protected String API_URL;
+	protected final String API_URL;
     protected final String VERSION = "2.2/";
-    protected String soApiKey;
+    protected final String soApiKey;
+    private final Transport transport;
+    private final KeyPool keys;
 
+    /**
+     * The most ids the API accepts in one request. Longer id lists are split into several requests,
+     * and a query over that many ids can only ask for its first page.
+     */
+    public static final int MAX_IDS_PER_REQUEST = 100;
+
+    /*
+     * The parameters sent with each chunk of a plain id list. Without a pagesize the API returns
+     * only its default page of 30 items, dropping the rest of a full chunk. The batch loaders rely
+     * on this as well, since a full batch of single-id lookups is fetched as one chunk.
+     */
+    private static final String ID_CHUNK_PARAMS = "&pagesize=" + MAX_IDS_PER_REQUEST;
+
+    /**
+     * The default time a single-id lookup waits for lookups on other threads to share its request.
+     * Batching is off by default, so single-threaded callers never wait.
+     */
+    public static final long DEFAULT_BATCH_WINDOW_MILLIS = 0;
+
+    private static volatile long batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BATCH_WINDOW_MILLIS);
+
+    /**
+     * Sets how long getAnswerById, getCommentById, getQuestionById and getUserById wait for
+     * lookups of the same kind on other threads. Lookups made within the window are merged into one
+     * vectorized request, so code walking many entities from several threads makes about one
+     * request per hundred ids instead of one per id. Every lookup that opens a batch waits the
+     * whole window, so a window only pays off when several threads look up entities at once.
+     *
+     * @param window
+     *            the time to wait, or 0 to make every lookup its own request
+     * @param unit
+     *            the unit of the window
+     */
+    public static void setBatchWindow(long window, TimeUnit unit) {
+        if (window < 0)
+            throw new IllegalArgumentException("The batch window must not be negative.");
+        batchWindowNanos = unit.toNanos(window);
+    }
+
+    public static long getBatchWindow(TimeUnit unit) {
+        return unit.convert(batchWindowNanos, TimeUnit.NANOSECONDS);
+    }
 
     /**
      * Initializes a newly created StackWrapper object with the base URL of the SE site to communicate with.
@@ -100,8 +153,66 @@ public class StackWrapper implements Serializable {
      *            The API key for your application.
      */
     public StackWrapper(String url, String apiKey) {
+        this(url, apiKey, null);
+    }
+
+    /**
+     * Initializes a newly created StackWrapper object that makes its requests over its own
+     * transport, for example an HTTP/2 (MultiplexedTransport) one, rather than the one shared by
+     * every wrapper (see HttpClient.setTransport).
+     * 
+     * @param url
+     *            The base URL of a Stack Exchange site.
+     * @param apiKey
+     *            The API key for your application.
+     * @param transport
+     *            The transport to make requests over, or null for the shared one.
+     */
+    public StackWrapper(String url, String apiKey, Transport transport) {
+        this(url, apiKey, null, transport);
+    }
+
+    /**
+     * Initializes a newly created StackWrapper object that spreads its requests over several API
+     * keys, using whichever has the most quota left for each request.
+     * 
+     * @param url
+     *            The base URL of a Stack Exchange site.
+     * @param keys
+     *            The API keys for your application.
+     */
+    public StackWrapper(String url, KeyPool keys) {
+        this(url, keys, null);
+    }
+
+    /**
+     * Initializes a newly created StackWrapper object that spreads its requests over several API
+     * keys and makes them over its own transport.
+     * 
+     * @param url
+     *            The base URL of a Stack Exchange site.
+     * @param keys
+     *            The API keys for your application.
+     * @param transport
+     *            The transport to make requests over, or null for the shared one.
+     */
+    public StackWrapper(String url, KeyPool keys, Transport transport) {
+        this(url, keys.getPrimaryKey(), keys, transport);
+    }
+
+    private StackWrapper(String url, String apiKey, KeyPool keys, Transport transport) {
         this.API_URL = fixUrl(url);
         this.soApiKey = apiKey;
+        this.transport = transport;
+        this.keys = keys;
+        answerClient = new HttpClient(transport, keys);
+        badgeClient = new HttpClient(transport, keys);
+        commentClient = new HttpClient(transport, keys);
+        postClient = new HttpClient(transport, keys);
+        questionClient = new HttpClient(transport, keys);
+        revisionClient = new HttpClient(transport, keys);
+        tagsClient = new HttpClient(transport, keys);
+        userClient = new HttpClient(transport, keys);
     }
     
 	private static String fixUrl(String url){
@@ -118,7 +229,7 @@ public class StackWrapper implements Serializable {
     /***** Answer Methods *****/
     /**************************/
 
-    private final HttpClient answerClient = new HttpClient();
+    private final HttpClient answerClient;
     
     /**
      * Gets a single answer by its id.
@@ -129,15 +240,22 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public Answer getAnswerById(int id) throws IOException, JSONException {
-        String json = answerClient.sendGetRequest(API_URL, VERSION, "answers/" + id, soApiKey);
-    	MetadataList<Answer> hopefullyOneAnswer = new MetadataList<Answer>(json, Answer.fromJSONString(json, this));
-        if (hopefullyOneAnswer.size() > 1)
-            throw new JSONException("The query returned more than one result.");
-        if (hopefullyOneAnswer.size() == 0)
+        Answer answer = answerLoader.load(id, batchWindowNanos);
+        if (answer == null)
             throw new IllegalArgumentException("The provided id did not match any Answers.");
-    	return hopefullyOneAnswer.get(0);
+        return answer;
     }
 
+    private final BatchLoader<Answer> answerLoader = new BatchLoader<Answer>(MAX_IDS_PER_REQUEST) {
+        List<Answer> fetch(int... ids) throws IOException, JSONException {
+            return getAnswersById(ids);
+        }
+
+        int idOf(Answer answer) {
+            return answer.getPostId();
+        }
+    };
+
     /**
      * Gets a set of answers matching the given ids
      * @param ids A single answer id or a list of ids.
@@ -146,9 +264,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Answer> getAnswersById(int... ids) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(ids);
-    	String json = answerClient.sendGetRequest(API_URL, VERSION, "answers/" + vectorizedList, soApiKey);
-        return new MetadataList<Answer>(json, Answer.fromJSONString(json, this));
+        return getByIds(answerClient, idRoutes(ANSWERS_ROUTE, ids), ID_CHUNK_PARAMS, ANSWERS);
     }
     
     /**
@@ -161,8 +277,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Answer> getAnswers(AnswerQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = answerClient.sendGetRequest(API_URL, VERSION, "answers/" + query.getIds(), soApiKey, query.getUrlParams());
-        return new MetadataList<Answer>(json, Answer.fromJSONString(json, this));
+        return getByIds(answerClient, queryRoutes(ANSWERS_ROUTE, query), query.getUrlParams(), ANSWERS);
     }
 
     /**
@@ -174,9 +289,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Comment> getCommentsByAnswerId(int... answerIds) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(answerIds);
-    	String json = answerClient.sendGetRequest(API_URL, VERSION, "answers/" + vectorizedList + "/comments", soApiKey);
-    	return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(answerClient, idRoutes(ANSWERS_COMMENTS_ROUTE, answerIds), ID_CHUNK_PARAMS, COMMENTS);
     }
     
     /**
@@ -189,14 +302,12 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Comment> getCommentsByAnswerId(CommentQuery query) throws IOException, JSONException, ParameterNotSetException {
-    	String json = answerClient.sendGetRequest(API_URL, VERSION, "answers/" + query.getIds()
-    										    + "/comments", soApiKey, query.getUrlParams());
-    	return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(answerClient, queryRoutes(ANSWERS_COMMENTS_ROUTE, query), query.getUrlParams(), COMMENTS);
     }
     
     /***** Badges Methods *****/
 
-    private final HttpClient badgeClient = new HttpClient();
+    private final HttpClient badgeClient;
     
     /**
      * Get a list of all badges. Default sort order is by name.
@@ -206,8 +317,8 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Badge> listBadges() throws IOException, JSONException {
-        String json = badgeClient.sendGetRequest(API_URL, VERSION, "badges", soApiKey);
-        return Badge.fromJSONString(json, this);
+        JSONObject json = badgeClient.sendGetRequestForJSON(API_URL, VERSION, "badges", soApiKey);
+        return Badge.fromJSONObject(json, this);
     }
 
     /**
@@ -219,11 +330,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<User> getBadgeRecipients(int... ids) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(ids);
-    	String json = badgeClient.sendGetRequest(API_URL, VERSION, "badges/" + vectorizedList, soApiKey);
-    	JSONObject jo = new JSONObject(json);
-    	JSONArray ja = jo.getJSONArray("users");
-        return new MetadataList<User>(json, User.fromJSONArray(ja, this));
+        return getByIds(badgeClient, idRoutes(BADGES_ROUTE, ids), ID_CHUNK_PARAMS, USERS);
     }
     
     /**
@@ -236,9 +343,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<User> getBadgeRecipients(BadgeQuery query) throws IOException, JSONException, ParameterNotSetException {
-    	String json = badgeClient.sendGetRequest(API_URL, VERSION, "badges/" + query.getIds(), 
-    											soApiKey, query.getUrlParams());
-        return new MetadataList<User>(json, User.fromJSONArray(new JSONObject(json).getJSONArray("users"), this));
+        return getByIds(badgeClient, queryRoutes(BADGES_ROUTE, query), query.getUrlParams(), USERS);
     }
 
     /**
@@ -249,8 +354,8 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Badge> listStandardBadges() throws IOException, JSONException {
-        String json = badgeClient.sendGetRequest(API_URL, VERSION, "badges/name", soApiKey);
-        return Badge.fromJSONString(json, this);
+        JSONObject json = badgeClient.sendGetRequestForJSON(API_URL, VERSION, "badges/name", soApiKey);
+        return Badge.fromJSONObject(json, this);
     }
 
     /**
@@ -261,14 +366,14 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Badge> listTagBadges() throws IOException, JSONException {
-        String json = badgeClient.sendGetRequest(API_URL, VERSION, "badges/tags", soApiKey);
-        return Badge.fromJSONString(json, this);
+        JSONObject json = badgeClient.sendGetRequestForJSON(API_URL, VERSION, "badges/tags", soApiKey);
+        return Badge.fromJSONObject(json, this);
     }
     
     
     /***** Comment Methods *****/
     
-    private final HttpClient commentClient = new HttpClient();
+    private final HttpClient commentClient;
     
     /**
      * Get a comment specified by its id.
@@ -279,10 +384,22 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public Comment getCommentById(int id) throws IOException, JSONException {
-    	String json = commentClient.sendGetRequest(API_URL, VERSION, "comments/" + id, soApiKey);
-        return Comment.fromJSONString(json, this).get(0);
+        Comment comment = commentLoader.load(id, batchWindowNanos);
+        if (comment == null)
+            throw new IllegalArgumentException("The provided id did not match any Comments.");
+        return comment;
     }
 
+    private final BatchLoader<Comment> commentLoader = new BatchLoader<Comment>(MAX_IDS_PER_REQUEST) {
+        List<Comment> fetch(int... ids) throws IOException, JSONException {
+            return getCommentsById(ids);
+        }
+
+        int idOf(Comment comment) {
+            return comment.getPostId();
+        }
+    };
+
     /**
      * Get a comment(s) specified by comment ids.
      * 
@@ -292,9 +409,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Comment> getCommentsById(int... ids) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(ids);
-        String json = commentClient.sendGetRequest(API_URL, VERSION, "comments/" + vectorizedList, soApiKey);
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(commentClient, idRoutes(COMMENTS_ROUTE, ids), ID_CHUNK_PARAMS, COMMENTS);
     }
     
     /**
@@ -307,9 +422,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Comment> getComments(CommentQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = commentClient.sendGetRequest(API_URL, VERSION, "comments/" + 
-        										query.getIds(), soApiKey, query.getUrlParams());
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(commentClient, queryRoutes(COMMENTS_ROUTE, query), query.getUrlParams(), COMMENTS);
     }
     
 
@@ -321,14 +434,14 @@ public class StackWrapper implements Serializable {
 	 * @param errorId
      */
     public Error simulateError(int errorId) throws IOException, JSONException {
-        String json = new HttpClient().sendGetRequest(API_URL, VERSION, "errors/" + errorId, soApiKey, "type=jsontext");
+        String json = new HttpClient(transport, keys).sendGetRequest(API_URL, VERSION, "errors/" + errorId, soApiKey, "type=jsontext");
         throw new IOException("This should have thrown an error from the error code: " + json);
     }
     
     
     /***** Post Methods *****/
 
-    private final HttpClient postClient = new HttpClient();
+    private final HttpClient postClient;
     
     /**
      * Gets the comments associated with a post (question or answer).
@@ -339,9 +452,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Comment> getCommentsByPostId(int... ids) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(ids);
-        String json = postClient.sendGetRequest(API_URL, VERSION, "posts/" + vectorizedList + "/comments", soApiKey);
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(postClient, idRoutes(POSTS_COMMENTS_ROUTE, ids), ID_CHUNK_PARAMS, COMMENTS);
     }
     
     /**
@@ -354,15 +465,13 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Comment> getCommentsByPostId(CommentQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = postClient.sendGetRequest(API_URL, VERSION, "posts/" + query.getIds()
-        										+ "/comments", soApiKey, query.getUrlParams());
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(postClient, queryRoutes(POSTS_COMMENTS_ROUTE, query), query.getUrlParams(), COMMENTS);
     }
 
     
     /***** Question Methods *****/
 
-    private final HttpClient questionClient = new HttpClient();
+    private final HttpClient questionClient;
     
     /**
      * Gets a list of questions and summary information. By default, ordered by last activity, date descending.
@@ -372,8 +481,8 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Question> listQuestions() throws IOException, JSONException {
-        String json = questionClient.sendGetRequest(API_URL, VERSION, "/questions", soApiKey);
-        return new MetadataList<Question>(json, Question.fromJSONString(json, this));
+        JSONObject json = questionClient.sendGetRequestForJSON(API_URL, VERSION, "/questions", soApiKey);
+        return new MetadataList<Question>(json, Question.fromJSONObject(json, this));
     }
     
     /**
@@ -386,8 +495,8 @@ public class StackWrapper implements Serializable {
      */
     public List<Question> listQuestions(QuestionQuery query) throws IOException, JSONException {
     	String urlParams = query.getUrlParams();
-    	String json = questionClient.sendGetRequest(API_URL, VERSION, "/questions", soApiKey, urlParams);
-    	return new MetadataList<Question>(json, Question.fromJSONString(json, this));
+    	JSONObject json = questionClient.sendGetRequestForJSON(API_URL, VERSION, "/questions", soApiKey, urlParams);
+    	return new MetadataList<Question>(json, Question.fromJSONObject(json, this));
     }
 	
 	/**
@@ -399,10 +508,22 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public Question getQuestionById(int id) throws IOException, JSONException {
-    	String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + id, soApiKey);
-    	return new MetadataList<Question>(json, Question.fromJSONString(json, this)).get(0);
+        Question question = questionLoader.load(id, batchWindowNanos);
+        if (question == null)
+            throw new IllegalArgumentException("The provided id did not match any Questions.");
+        return question;
     }
 
+    private final BatchLoader<Question> questionLoader = new BatchLoader<Question>(MAX_IDS_PER_REQUEST) {
+        List<Question> fetch(int... ids) throws IOException, JSONException {
+            return getQuestionsById(ids);
+        }
+
+        int idOf(Question question) {
+            return question.getPostId();
+        }
+    };
+
     /**
      * Gets a list of questions specified by 'ids'.
      * 
@@ -412,9 +533,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Question> getQuestionsById(int... ids) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(ids);
-    	String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + vectorizedList, soApiKey);
-    	return new MetadataList<Question>(json, Question.fromJSONString(json, this));
+        return getByIds(questionClient, idRoutes(QUESTIONS_ROUTE, ids), ID_CHUNK_PARAMS, QUESTIONS);
     }
     
     /**
@@ -428,9 +547,7 @@ public class StackWrapper implements Serializable {
      */
     public List<Question> getQuestions(QuestionQuery query) 
     		throws IOException, JSONException, ParameterNotSetException {
-        String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + 
-        									    query.getIds(), soApiKey, query.getUrlParams());
-        return new MetadataList<Question>(json, Question.fromJSONString(json, this));
+        return getByIds(questionClient, queryRoutes(QUESTIONS_ROUTE, query), query.getUrlParams(), QUESTIONS);
     }
 
     /**
@@ -442,9 +559,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Answer> getAnswersByQuestionId(int... ids) throws IOException, JSONException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + vectorizedList + "/answers", soApiKey);
-        return new MetadataList<Answer>(json, Answer.fromJSONString(json, this));
+        return getByIds(questionClient, idRoutes(QUESTIONS_ANSWERS_ROUTE, ids), ID_CHUNK_PARAMS, ANSWERS);
     }
     
     /**
@@ -457,9 +572,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Answer> getAnswersByQuestionId(AnswerQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + query.getIds() 
-        										+ "/answers", soApiKey, query.getUrlParams());
-        return new MetadataList<Answer>(json, Answer.fromJSONString(json, this));
+        return getByIds(questionClient, queryRoutes(QUESTIONS_ANSWERS_ROUTE, query), query.getUrlParams(), ANSWERS);
     }
 
     /**
@@ -471,9 +584,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Comment> getCommentsByQuestionId(int... ids) throws IOException, JSONException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + vectorizedList + "/comments", soApiKey);
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(questionClient, idRoutes(QUESTIONS_COMMENTS_ROUTE, ids), ID_CHUNK_PARAMS, COMMENTS);
     }
     
     /**
@@ -486,9 +597,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Comment> getCommentsByQuestionId(CommentQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + query.getIds() 
-        										+ "/comments", soApiKey, query.getUrlParams());
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(questionClient, queryRoutes(QUESTIONS_COMMENTS_ROUTE, query), query.getUrlParams(), COMMENTS);
     }
     
     /**
@@ -500,9 +609,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<PostTimeline> getQuestionTimeline(int... ids) throws JSONException, IOException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + vectorizedList + "/timeline", soApiKey);
-        return PostTimeline.fromJSONString(json, this);
+        return getByIds(questionClient, idRoutes(QUESTIONS_TIMELINE_ROUTE, ids), ID_CHUNK_PARAMS, POST_TIMELINES);
     }
     
     /**
@@ -515,9 +622,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<PostTimeline> getQuestionTimeline(TimelineQuery query) throws JSONException, IOException, ParameterNotSetException {
-    	String json = questionClient.sendGetRequest(API_URL, VERSION, "questions/" + query.getIds() 
-    											+ "/timeline", soApiKey, query.getUrlParams());
-        return PostTimeline.fromJSONString(json, this);
+        return getByIds(questionClient, queryRoutes(QUESTIONS_TIMELINE_ROUTE, query), query.getUrlParams(), POST_TIMELINES);
     }
     
     /**
@@ -528,8 +633,8 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Question> listUnansweredQuestions() throws IOException, JSONException {
-        String json = questionClient.sendGetRequest(API_URL, VERSION, "/questions/unanswered", soApiKey);
-        return new MetadataList<Question>(json, Question.fromJSONString(json, this));
+        JSONObject json = questionClient.sendGetRequestForJSON(API_URL, VERSION, "/questions/unanswered", soApiKey);
+        return new MetadataList<Question>(json, Question.fromJSONObject(json, this));
     }
     
     /**
@@ -542,14 +647,14 @@ public class StackWrapper implements Serializable {
      */
     public List<Question> listUnansweredQuestions(UnansweredQuery query) throws IOException, JSONException {
     	String urlParams = query.getUrlParams();
-    	String json = questionClient.sendGetRequest(API_URL, VERSION, "/questions/unanswered", soApiKey, urlParams);
-    	return new MetadataList<Question>(json, Question.fromJSONString(json, this));
+    	JSONObject json = questionClient.sendGetRequestForJSON(API_URL, VERSION, "/questions/unanswered", soApiKey, urlParams);
+    	return new MetadataList<Question>(json, Question.fromJSONObject(json, this));
     }
     
 
     /***** Revision Methods *****/
     
-    private final HttpClient revisionClient = new HttpClient();
+    private final HttpClient revisionClient;
     
     /**
      * Gets the post history revisions for a set of posts in 'ids'. 
@@ -560,9 +665,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Revision> getRevisionsByPostId(int... ids) throws IOException, JSONException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = revisionClient.sendGetRequest(API_URL, VERSION, "/revisions/" + vectorizedList, soApiKey);
-        return Revision.fromJSONString(json, this);
+        return getByIds(revisionClient, idRoutes(REVISIONS_ROUTE, ids), ID_CHUNK_PARAMS, REVISIONS);
     }
         
     /**
@@ -575,9 +678,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Revision> getRevisionsByPostId(RevisionQuery query) throws IOException, JSONException, ParameterNotSetException {
-    	String json = revisionClient.sendGetRequest(API_URL, VERSION, "/revisions/" 
-    											+ query.getIds(), soApiKey, query.getUrlParams());
-        return Revision.fromJSONString(json, this);
+        return getByIds(revisionClient, queryRoutes(REVISIONS_ROUTE, query), query.getUrlParams(), REVISIONS);
     }
 
     /**
@@ -594,8 +695,8 @@ public class StackWrapper implements Serializable {
             throw new IllegalArgumentException("Invalid GUID format: " + guid);
         }
         String vectorizedList = buildVectorizedList(ids);
-        String json = revisionClient.sendGetRequest(API_URL, VERSION, "/revisions/" + vectorizedList + "/" + guid, soApiKey);
-        return Revision.fromJSONString(json, this).get(0);
+        JSONObject json = revisionClient.sendGetRequestForJSON(API_URL, VERSION, "/revisions/" + vectorizedList + "/" + guid, soApiKey);
+        return Revision.fromJSONObject(json, this).get(0);
     }
     
     /**
@@ -608,9 +709,9 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids and/or no guid are set in the query.
      */
     public Revision getRevisionByGuid(RevisionQuery query) throws IOException, JSONException, ParameterNotSetException {
-    	String json = revisionClient.sendGetRequest(API_URL, VERSION, "/revisions/" + query.getIds() 
+    	JSONObject json = revisionClient.sendGetRequestForJSON(API_URL, VERSION, "/revisions/" + query.getIds() 
     	                                        + "/" + query.getGuid(), soApiKey, query.getUrlParams());
-        return Revision.fromJSONString(json, this).get(0);
+        return Revision.fromJSONObject(json, this).get(0);
     }
 
     
@@ -628,10 +729,10 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Question> search(SearchQuery query) throws IOException, JSONException {
-    	String json = new HttpClient().sendGetRequest(API_URL, VERSION, "search", soApiKey, query.getUrlParams());
+    	JSONObject json = new HttpClient(transport, keys).sendGetRequestForJSON(API_URL, VERSION, "search", soApiKey, query.getUrlParams());
     	MetadataList<Question> questions = null;
     	try {
-    	    questions = new MetadataList<Question>(json, Question.fromJSONString(json, this));
+    	    questions = new MetadataList<Question>(json, Question.fromJSONObject(json, this));
     	}
     	catch(JSONException je) {
     	    // if the Error can't be parsed, a generic JSONException is thrown.
@@ -653,12 +754,12 @@ public class StackWrapper implements Serializable {
      * @throws IOException If an I/O error occurs.
      */
     /*public Stats getStats() throws JSONException, IOException {
-        String response = new HttpClient().sendGetRequest(API_URL, VERSION, "stats/", soApiKey);
+        String response = new HttpClient(transport, keys).sendGetRequest(API_URL, VERSION, "stats/", soApiKey);
         Stats stats = Stats.fromJSONString(response, this);
         return stats;
     }*/
     public String getStats() throws JSONException, IOException {
-        String response = new HttpClient().sendGetRequest(API_URL, VERSION, "stats/", soApiKey);
+        String response = new HttpClient(transport, keys).sendGetRequest(API_URL, VERSION, "stats/", soApiKey);
         //Stats stats = Stats.fromJSONString(response, this);
         return response;
     }
@@ -666,7 +767,7 @@ public class StackWrapper implements Serializable {
     
     /***** Tags Methods *****/
 
-    private final HttpClient tagsClient = new HttpClient();
+    private final HttpClient tagsClient;
     
     /**
      * Gets the tags on all questions, along with their usage counts. 
@@ -676,8 +777,8 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Tag> listTags() throws IOException, JSONException {
-        String json = tagsClient.sendGetRequest(API_URL, VERSION, "tags/", soApiKey);
-        return Tag.fromJSONString(json, this);
+        JSONObject json = tagsClient.sendGetRequestForJSON(API_URL, VERSION, "tags/", soApiKey);
+        return Tag.fromJSONObject(json, this);
     }
     
     /**
@@ -690,14 +791,14 @@ public class StackWrapper implements Serializable {
      */
     public List<Tag> listTags(TagQuery query) throws IOException, JSONException {
     	String urlParams = query.getUrlParams();
-    	String json = tagsClient.sendGetRequest(API_URL, VERSION, "tags/", soApiKey, urlParams);
-        return Tag.fromJSONString(json, this);
+    	JSONObject json = tagsClient.sendGetRequestForJSON(API_URL, VERSION, "tags/", soApiKey, urlParams);
+        return Tag.fromJSONObject(json, this);
     }
 
     
     /***** User Methods *****/
 
-    private final HttpClient userClient = new HttpClient();
+    private final HttpClient userClient;
     
     /**
      * Get the default list of Users.
@@ -707,8 +808,8 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<User> listUsers() throws IOException, JSONException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users", soApiKey);
-        return new MetadataList<User>(json, User.fromJSONArray(new JSONObject(json).getJSONArray("users"), this));
+        JSONObject json = userClient.sendGetRequestForJSON(API_URL, VERSION, "users", soApiKey);
+        return new MetadataList<User>(json, User.fromJSONArray(json.getJSONArray("users"), this));
     }
     
     /**
@@ -722,8 +823,8 @@ public class StackWrapper implements Serializable {
      */
     public List<User> listUsers(UserQuery query) throws IOException, JSONException {
     	String urlParams = query.getUrlParams();
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users", soApiKey, urlParams);
-    	return new MetadataList<User>(json, User.fromJSONArray(new JSONObject(json).getJSONArray("users"), this));
+    	JSONObject json = userClient.sendGetRequestForJSON(API_URL, VERSION, "users", soApiKey, urlParams);
+    	return new MetadataList<User>(json, User.fromJSONArray(json.getJSONArray("users"), this));
     }
     
     /**
@@ -734,9 +835,21 @@ public class StackWrapper implements Serializable {
      * @throws IOException If an I/O error occurs.
      */
     public User getUserById(int id) throws JSONException, IOException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + id, soApiKey);
-        return new MetadataList<User>(json, User.fromJSONArray(new JSONObject(json).getJSONArray("users"), this)).get(0);
+        User user = userLoader.load(id, batchWindowNanos);
+        if (user == null)
+            throw new IllegalArgumentException("The provided id did not match any Users.");
+        return user;
     }
+
+    private final BatchLoader<User> userLoader = new BatchLoader<User>(MAX_IDS_PER_REQUEST) {
+        List<User> fetch(int... ids) throws IOException, JSONException {
+            return getUsersById(ids);
+        }
+
+        int idOf(User user) {
+            return user.getId();
+        }
+    };
     
     /**
      * Gets user summary information.
@@ -746,9 +859,7 @@ public class StackWrapper implements Serializable {
      * @throws IOException If an I/O error occurs.
      */
     public List<User> getUsersById(int... ids) throws JSONException, IOException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList, soApiKey);
-        return new MetadataList<User>(json, User.fromJSONArray(new JSONObject(json).getJSONArray("users"), this));
+        return getByIds(userClient, idRoutes(USERS_ROUTE, ids), ID_CHUNK_PARAMS, USERS);
     }
     
     /**
@@ -760,8 +871,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<User> getUsersById(UserQuery query) throws JSONException, IOException, ParameterNotSetException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds(), soApiKey, query.getUrlParams());
-        return new MetadataList<User>(json, User.fromJSONArray(new JSONObject(json).getJSONArray("users"), this));
+        return getByIds(userClient, queryRoutes(USERS_ROUTE, query), query.getUrlParams(), USERS);
     }
 
     /**
@@ -773,9 +883,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Answer> getAnswersByUserId(int... ids) throws IOException, JSONException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/answers", soApiKey);
-        return new MetadataList<Answer>(json, Answer.fromJSONString(json, this));
+        return getByIds(userClient, idRoutes(USERS_ANSWERS_ROUTE, ids), ID_CHUNK_PARAMS, ANSWERS);
     }
     
     /**
@@ -788,9 +896,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Answer> getAnswersByUserId(AnswerQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-                                                + "/answers", soApiKey, query.getUrlParams());
-        return new MetadataList<Answer>(json, Answer.fromJSONString(json, this));
+        return getByIds(userClient, queryRoutes(USERS_ANSWERS_ROUTE, query), query.getUrlParams(), ANSWERS);
     }
     
     /**
@@ -802,9 +908,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Badge> getBadgesByUserId(int... ids) throws IOException, JSONException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/badges", soApiKey);
-        return Badge.fromJSONString(json, this);
+        return getByIds(userClient, idRoutes(USERS_BADGES_ROUTE, ids), ID_CHUNK_PARAMS, BADGES);
     }
 
     /**
@@ -816,9 +920,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Comment> getCommentsByUserId(int... ids) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(ids);
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/comments/", soApiKey);
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(userClient, idRoutes(USERS_COMMENTS_ROUTE, ids), ID_CHUNK_PARAMS, COMMENTS);
     }
     
     /**
@@ -831,9 +933,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Comment> getCommentsByUserId(CommentQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-                                                + "/comments/", soApiKey, query.getUrlParams());
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(userClient, queryRoutes(USERS_COMMENTS_ROUTE, query), query.getUrlParams(), COMMENTS);
     }
     
     /**
@@ -847,9 +947,8 @@ public class StackWrapper implements Serializable {
      */
     public List<Comment> getCommentsFromUsersToUser(int toId, int... fromIds)
     		throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(fromIds);
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/comments/" + toId + "/", soApiKey);
-    	return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(userClient, idRoutes(USERS_COMMENTS_TO_ROUTE, fromIds, Integer.toString(toId)), ID_CHUNK_PARAMS,
+                COMMENTS);
     }
     
     /**
@@ -864,9 +963,8 @@ public class StackWrapper implements Serializable {
      */
     public List<Comment> getCommentsFromUsersToUser(CommentQuery query, int toId)
     	    throws IOException, JSONException, ParameterNotSetException {
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-    	                                        + "/comments/" + toId + "/", soApiKey, query.getUrlParams());
-    	return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(userClient, queryRoutes(USERS_COMMENTS_TO_ROUTE, query, Integer.toString(toId)),
+                query.getUrlParams(), COMMENTS);
     }
 
     /**
@@ -879,9 +977,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Question> getFavoriteQuestionsByUserId(int... ids) throws IOException, JSONException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/favorites", soApiKey);
-        return new MetadataList<Question>(json, Question.fromJSONString(json, this));
+        return getByIds(userClient, idRoutes(USERS_FAVORITES_ROUTE, ids), ID_CHUNK_PARAMS, QUESTIONS);
     }
     
     /**
@@ -894,9 +990,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Question> getFavoriteQuestionsByUserId(FavoriteQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-                                                + "/favorites", soApiKey, query.getUrlParams());
-        return new MetadataList<Question>(json, Question.fromJSONString(json, this));
+        return getByIds(userClient, queryRoutes(USERS_FAVORITES_ROUTE, query), query.getUrlParams(), QUESTIONS);
     }
     
     /**
@@ -908,10 +1002,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Comment> getUserMentions(int... ids) throws IOException, JSONException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList
-                + "/mentioned", soApiKey);
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(userClient, idRoutes(USERS_MENTIONED_ROUTE, ids), ID_CHUNK_PARAMS, COMMENTS);
     }
     
     /**
@@ -924,9 +1015,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Comment> getUserMentions(CommentQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-                                                + "/mentioned", soApiKey, query.getUrlParams());
-        return new MetadataList<Comment>(json, Comment.fromJSONString(json, this));
+        return getByIds(userClient, queryRoutes(USERS_MENTIONED_ROUTE, query), query.getUrlParams(), COMMENTS);
     }
 
     /**
@@ -938,9 +1027,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Question> getQuestionsByUserId(int... userIds) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList( userIds );
-        String json = userClient.sendGetRequest( API_URL, VERSION, "users/" + vectorizedList + "/questions", soApiKey );
-        return new MetadataList<Question>(json, Question.fromJSONString( json, this ));
+        return getByIds(userClient, idRoutes(USERS_QUESTIONS_ROUTE, userIds), ID_CHUNK_PARAMS, QUESTIONS);
     }
     
     /**
@@ -953,9 +1040,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Question> getQuestionsByUserId(UserQuestionQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-                                                + "/questions", soApiKey, query.getUrlParams());
-        return new MetadataList<Question>(json, Question.fromJSONString( json, this ));
+        return getByIds(userClient, queryRoutes(USERS_QUESTIONS_ROUTE, query), query.getUrlParams(), QUESTIONS);
     }
     
     /**
@@ -967,9 +1052,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Reputation> getReputationByUserId(int... ids) throws JSONException, IOException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/reputation", soApiKey);
-        return new MetadataList<Reputation>(json, Reputation.fromJSONString(json, this));
+        return getByIds(userClient, idRoutes(USERS_REPUTATION_ROUTE, ids), ID_CHUNK_PARAMS, REPUTATIONS);
     }
 
     /**
@@ -982,10 +1065,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Reputation> getReputationByUserId(ReputationQuery query) throws JSONException, IOException, ParameterNotSetException {
-        String queryParams = query.getUrlParams();
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-                                                + "/reputation", soApiKey, queryParams);
-        return new MetadataList<Reputation>(json, Reputation.fromJSONString(json, this));
+        return getByIds(userClient, queryRoutes(USERS_REPUTATION_ROUTE, query), query.getUrlParams(), REPUTATIONS);
     }
 
     /**
@@ -997,9 +1077,7 @@ public class StackWrapper implements Serializable {
      * @throws JSONException If there is a problem parsing the response.
      */
     public List<Tag> getTagsByUserId(int... ids) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(ids);
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/tags", soApiKey);
-        return Tag.fromJSONString(json, this);
+        return getByIds(userClient, idRoutes(USERS_TAGS_ROUTE, ids), ID_CHUNK_PARAMS, TAGS);
     }
     
     /**
@@ -1012,9 +1090,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<Tag> getTagsByUserId(TagQuery query) throws IOException, JSONException, ParameterNotSetException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-                                                + "/tags", soApiKey, query.getUrlParams());
-        return Tag.fromJSONString(json, this);
+        return getByIds(userClient, queryRoutes(USERS_TAGS_ROUTE, query), query.getUrlParams(), TAGS);
     }
     
 
@@ -1028,18 +1104,16 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public Map<Integer,List<Tag>> getTagMapByUserId(int... ids) throws IOException, JSONException {
-    	String vectorizedList = buildVectorizedList(ids);
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/tags", soApiKey);
-    	Map<Integer,List<Tag>> rc = new HashMap<Integer,List<Tag>>();
-        List<Tag> allTags = Tag.fromJSONString(json, this);
+        List<Tag> allTags = getByIds(userClient, idRoutes(USERS_TAGS_ROUTE, ids), ID_CHUNK_PARAMS, TAGS);
+        Map<Integer,List<Tag>> rc = new HashMap<Integer,List<Tag>>();
         for(Tag t : allTags) {
-        	final Integer userId = t.getUserId();
-			List<Tag> userTags = rc.get(userId);
-        	if(userTags == null) {
-        		userTags = new ArrayList<Tag>();
-        		rc.put(userId, userTags);
-        	}
-        	userTags.add(t);
+            final Integer userId = t.getUserId();
+            List<Tag> userTags = rc.get(userId);
+            if(userTags == null) {
+                userTags = new ArrayList<Tag>();
+                rc.put(userId, userTags);
+            }
+            userTags.add(t);
         }
         return rc;
     }
@@ -1054,16 +1128,16 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public Map<Integer,List<Tag>> getTagMapByUserId(TagQuery q) throws IOException, JSONException, ParameterNotSetException {
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + q.getIds() + "/tags", soApiKey);
-    	Map<Integer,List<Tag>> rc = new HashMap<Integer,List<Tag>>();
-        List<Tag> allTags = Tag.fromJSONString(json, this);
+        List<Tag> allTags = getByIds(userClient, queryRoutes(USERS_TAGS_ROUTE, q), ID_CHUNK_PARAMS, TAGS);
+        Map<Integer,List<Tag>> rc = new HashMap<Integer,List<Tag>>();
         for(Tag t : allTags) {
-        	final Integer userId = t.getUserId();
-			List<Tag> userTags = rc.get(userId);
-        	if(userTags == null) {
-        		userTags = rc.put(userId, new ArrayList<Tag>());
-        	}
-        	userTags.add(t);
+            final Integer userId = t.getUserId();
+            List<Tag> userTags = rc.get(userId);
+            if(userTags == null) {
+                userTags = new ArrayList<Tag>();
+                rc.put(userId, userTags);
+            }
+            userTags.add(t);
         }
         return rc;
     }
@@ -1077,9 +1151,7 @@ public class StackWrapper implements Serializable {
      * @throws IOException If an I/O error occurs.
      */
     public List<UserTimeline> getUserTimeline(int... ids) throws JSONException, IOException {
-        String vectorizedList = buildVectorizedList(ids);
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + vectorizedList + "/timeline", soApiKey);
-        return UserTimeline.fromJSONString(json, this);
+        return getByIds(userClient, idRoutes(USERS_TIMELINE_ROUTE, ids), ID_CHUNK_PARAMS, USER_TIMELINES);
     }
     
     /**
@@ -1092,9 +1164,7 @@ public class StackWrapper implements Serializable {
      * @throws ParameterNotSetException if no ids are set in the query.
      */
     public List<UserTimeline> getUserTimeline(TimelineQuery query)  throws JSONException, IOException, ParameterNotSetException {
-    	String json = userClient.sendGetRequest(API_URL, VERSION, "users/" + query.getIds() 
-    	                                        + "/timeline", soApiKey, query.getUrlParams());
-        return UserTimeline.fromJSONString(json, this);
+        return getByIds(userClient, queryRoutes(USERS_TIMELINE_ROUTE, query), query.getUrlParams(), USER_TIMELINES);
     }
     
     /**
@@ -1105,8 +1175,8 @@ public class StackWrapper implements Serializable {
      * @throws IOException If an I/O error occurs.
      */
     public List<User> listModerators() throws JSONException, IOException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/moderators", soApiKey);
-        return new MetadataList<User>(json, User.fromJSONArray(new JSONObject(json).getJSONArray("users"), this));
+        JSONObject json = userClient.sendGetRequestForJSON(API_URL, VERSION, "users/moderators", soApiKey);
+        return new MetadataList<User>(json, User.fromJSONArray(json.getJSONArray("users"), this));
     }
     
     /**
@@ -1116,21 +1186,161 @@ public class StackWrapper implements Serializable {
      * @throws IOException If an I/O error occurs.
      */
     public List<User> listModerators(UserQuery query) throws JSONException, IOException {
-        String json = userClient.sendGetRequest(API_URL, VERSION, "users/moderators", soApiKey, query.getUrlParams());
-        return new MetadataList<User>(json, User.fromJSONArray(new JSONObject(json).getJSONArray("users"), this));
+        JSONObject json = userClient.sendGetRequestForJSON(API_URL, VERSION, "users/moderators", soApiKey, query.getUrlParams());
+        return new MetadataList<User>(json, User.fromJSONArray(json.getJSONArray("users"), this));
     }
 
     /******* Utility methods *********/
 
     /* Build a vectorized list of ids. */
     private static String buildVectorizedList(int... id) {
-        StringBuilder sb = new StringBuilder("" + id[0]);
-        for (int i = 1; i < id.length; ++i) {
-            sb.append(";" + id[i]);
+        return BaseRoute.appendIds(new StringBuilder(8 * id.length), id, 0, id.length).toString();
+    }
+
+    /*
+     * Expand a vectorized route once per chunk of ids the API accepts, keeping their order. The ids
+     * are written straight into one builder, reused for every chunk.
+     */
+    private static List<String> idRoutes(BaseRoute route, int[] ids, CharSequence... rest) {
+        if (ids.length == 0)
+            throw new IllegalArgumentException("At least one id is required.");
+        List<String> routes = new ArrayList<String>((ids.length + MAX_IDS_PER_REQUEST - 1) / MAX_IDS_PER_REQUEST);
+        StringBuilder sb = new StringBuilder(route.getTemplate().length()
+                + 8 * Math.min(ids.length, MAX_IDS_PER_REQUEST));
+        for (int start = 0; start < ids.length; start += MAX_IDS_PER_REQUEST) {
+            sb.setLength(0);
+            route.appendIdsTo(sb, ids, start, Math.min(ids.length, start + MAX_IDS_PER_REQUEST), rest);
+            routes.add(sb.toString());
+        }
+        return routes;
+    }
+
+    /*
+     * Expand a vectorized route once per chunk of a query's ids. A query whose ids fit in one
+     * request is sent as one request, so the API pages it as usual. The pages of several chunks
+     * can't be joined into pages of the whole query: page 2 of each chunk is not page 2 of the
+     * merged results, and one id of a route like questions/{ids}/answers can fill several pages on
+     * its own. Such a query can only ask for its first page, which holds the first page of every
+     * chunk; hasMore tells whether any chunk had more.
+     */
+    private static List<String> queryRoutes(BaseRoute route, BaseQuery query, CharSequence... rest)
+            throws ParameterNotSetException {
+        List<String> chunks = query.getIdChunks(MAX_IDS_PER_REQUEST);
+        if (chunks.size() > 1 && query.getPage() > 1)
+            throw new IllegalArgumentException("Only the first page of a query over more than "
+                    + MAX_IDS_PER_REQUEST + " ids can be requested.");
+        List<String> routes = new ArrayList<String>(chunks.size());
+        CharSequence[] values = new CharSequence[rest.length + 1];
+        System.arraycopy(rest, 0, values, 1, rest.length);
+        for (String chunk : chunks) {
+            values[0] = chunk;
+            routes.add(route.expand(values));
+        }
+        return routes;
+    }
+
+    /*
+     * Fetches a vectorized method once per route, in parallel, and merges the results in route
+     * order.
+     */
+    private <E extends StackObjBase> MetadataList<E> getByIds(HttpClient client, List<String> routes, String params,
+            EntityParser<E> parser) throws IOException, JSONException {
+        List<JSONObject> responses = client.sendGetRequestsForJSON(API_URL, VERSION, routes, soApiKey, params);
+        List<MetadataList<E>> parts = new ArrayList<MetadataList<E>>(responses.size());
+        for (JSONObject json : responses) {
+            parts.add(new MetadataList<E>(json, parser.parse(json, this)));
         }
-        return sb.toString();
+        return MetadataList.concat(parts);
+    }
+
+    /* The vectorized methods, compiled once. */
+    private static final BaseRoute ANSWERS_ROUTE = BaseRoute.compile("answers/{ids}");
+    private static final BaseRoute ANSWERS_COMMENTS_ROUTE = BaseRoute.compile("answers/{ids}/comments");
+    private static final BaseRoute BADGES_ROUTE = BaseRoute.compile("badges/{ids}");
+    private static final BaseRoute COMMENTS_ROUTE = BaseRoute.compile("comments/{ids}");
+    private static final BaseRoute POSTS_COMMENTS_ROUTE = BaseRoute.compile("posts/{ids}/comments");
+    private static final BaseRoute QUESTIONS_ROUTE = BaseRoute.compile("questions/{ids}");
+    private static final BaseRoute QUESTIONS_ANSWERS_ROUTE = BaseRoute.compile("questions/{ids}/answers");
+    private static final BaseRoute QUESTIONS_COMMENTS_ROUTE = BaseRoute.compile("questions/{ids}/comments");
+    private static final BaseRoute QUESTIONS_TIMELINE_ROUTE = BaseRoute.compile("questions/{ids}/timeline");
+    private static final BaseRoute REVISIONS_ROUTE = BaseRoute.compile("revisions/{ids}");
+    private static final BaseRoute USERS_ROUTE = BaseRoute.compile("users/{ids}");
+    private static final BaseRoute USERS_ANSWERS_ROUTE = BaseRoute.compile("users/{ids}/answers");
+    private static final BaseRoute USERS_BADGES_ROUTE = BaseRoute.compile("users/{ids}/badges");
+    private static final BaseRoute USERS_COMMENTS_ROUTE = BaseRoute.compile("users/{ids}/comments/");
+    private static final BaseRoute USERS_COMMENTS_TO_ROUTE = BaseRoute.compile("users/{ids}/comments/{toid}/");
+    private static final BaseRoute USERS_FAVORITES_ROUTE = BaseRoute.compile("users/{ids}/favorites");
+    private static final BaseRoute USERS_MENTIONED_ROUTE = BaseRoute.compile("users/{ids}/mentioned");
+    private static final BaseRoute USERS_QUESTIONS_ROUTE = BaseRoute.compile("users/{ids}/questions");
+    private static final BaseRoute USERS_REPUTATION_ROUTE = BaseRoute.compile("users/{ids}/reputation");
+    private static final BaseRoute USERS_TAGS_ROUTE = BaseRoute.compile("users/{ids}/tags");
+    private static final BaseRoute USERS_TIMELINE_ROUTE = BaseRoute.compile("users/{ids}/timeline");
+
+    /* Reads the entities out of a response. */
+    private interface EntityParser<E extends StackObjBase> {
+        List<E> parse(JSONObject json, StackWrapper originator) throws JSONException;
     }
 
+    private static final EntityParser<Answer> ANSWERS = new EntityParser<Answer>() {
+        public List<Answer> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return Answer.fromJSONObject(json, originator);
+        }
+    };
+
+    private static final EntityParser<Badge> BADGES = new EntityParser<Badge>() {
+        public List<Badge> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return Badge.fromJSONObject(json, originator);
+        }
+    };
+
+    private static final EntityParser<Comment> COMMENTS = new EntityParser<Comment>() {
+        public List<Comment> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return Comment.fromJSONObject(json, originator);
+        }
+    };
+
+    private static final EntityParser<PostTimeline> POST_TIMELINES = new EntityParser<PostTimeline>() {
+        public List<PostTimeline> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return PostTimeline.fromJSONObject(json, originator);
+        }
+    };
+
+    private static final EntityParser<Question> QUESTIONS = new EntityParser<Question>() {
+        public List<Question> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return Question.fromJSONObject(json, originator);
+        }
+    };
+
+    private static final EntityParser<Reputation> REPUTATIONS = new EntityParser<Reputation>() {
+        public List<Reputation> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return Reputation.fromJSONObject(json, originator);
+        }
+    };
+
+    private static final EntityParser<Revision> REVISIONS = new EntityParser<Revision>() {
+        public List<Revision> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return Revision.fromJSONObject(json, originator);
+        }
+    };
+
+    private static final EntityParser<Tag> TAGS = new EntityParser<Tag>() {
+        public List<Tag> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return Tag.fromJSONObject(json, originator);
+        }
+    };
+
+    private static final EntityParser<User> USERS = new EntityParser<User>() {
+        public List<User> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return User.fromJSONArray(json.getJSONArray("users"), originator);
+        }
+    };
+
+    private static final EntityParser<UserTimeline> USER_TIMELINES = new EntityParser<UserTimeline>() {
+        public List<UserTimeline> parse(JSONObject json, StackWrapper originator) throws JSONException {
+            return UserTimeline.fromJSONObject(json, originator);
+        }
+    };
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
 	 */
@@ -0,0 +1,841 @@
+package net.sf.stackwrap4j;
+
+import net.sf.stackwrap4j.entities.Answer;
+import net.sf.stackwrap4j.entities.Badge;
+import net.sf.stackwrap4j.entities.Comment;
+import net.sf.stackwrap4j.entities.PostTimeline;
+import net.sf.stackwrap4j.entities.Question;
+import net.sf.stackwrap4j.entities.Reputation;
+import net.sf.stackwrap4j.entities.Revision;
+import net.sf.stackwrap4j.entities.Tag;
+import net.sf.stackwrap4j.entities.User;
+import net.sf.stackwrap4j.entities.UserTimeline;
+import net.sf.stackwrap4j.http.Deadline;
+import net.sf.stackwrap4j.query.AnswerQuery;
+import net.sf.stackwrap4j.query.BadgeQuery;
+import net.sf.stackwrap4j.query.CommentQuery;
+import net.sf.stackwrap4j.query.FavoriteQuery;
+import net.sf.stackwrap4j.query.QuestionQuery;
+import net.sf.stackwrap4j.query.ReputationQuery;
+import net.sf.stackwrap4j.query.RevisionQuery;
+import net.sf.stackwrap4j.query.SearchQuery;
+import net.sf.stackwrap4j.query.TagQuery;
+import net.sf.stackwrap4j.query.TimelineQuery;
+import net.sf.stackwrap4j.query.UnansweredQuery;
+import net.sf.stackwrap4j.query.UserQuery;
+import net.sf.stackwrap4j.query.UserQuestionQuery;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking versions of the StackWrapper methods, for callers that should not hold a thread
+ * for the network round trip and the throttle wait (Example: an Android UI thread, instead of
+ * wrapping every call in an AsyncTask).
+ *
+ * Every method returns at once with an ApiFuture; the call is made on an executor, and the result
+ * can be waited for or handed to a callback. Calls made through a StackWrapperAsync share the
+ * wrapped StackWrapper's clients, so they are throttled, cached and batched with its blocking calls.
+ *
+ * By default calls run on a small shared pool of daemon threads. Each call holds its thread while
+ * the request is made, so the pool size bounds how many calls are in flight at once. Any executor
+ * can be supplied instead, including one that starts a virtual thread per call on runtimes that
+ * have them, which lifts that bound without adding platform threads.
+ *
+ * A Deadline started around a call applies to it, although the call runs on another thread.
+ *
+ * Queries are read when the call is made, not when it is submitted, so a query must not be changed
+ * until its call has completed.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class StackWrapperAsync {
+
+    /**
+     * The number of threads in the shared default executor.
+     */
+    public static final int DEFAULT_THREADS = 4;
+
+    private static ThreadPoolExecutor defaultExecutor = null;
+
+    private final StackWrapper wrapper;
+    private final Executor executor;
+
+    /**
+     * Creates asynchronous versions of a wrapper's methods, run on the shared default executor.
+     * @param wrapper the wrapper making the calls
+     */
+    public StackWrapperAsync(StackWrapper wrapper) {
+        this(wrapper, getDefaultExecutor());
+    }
+
+    /**
+     * Creates asynchronous versions of a wrapper's methods, run on the given executor.
+     *
+     * @param wrapper
+     *            the wrapper making the calls
+     * @param executor
+     *            runs the calls
+     */
+    public StackWrapperAsync(StackWrapper wrapper, Executor executor) {
+        if (wrapper == null || executor == null)
+            throw new IllegalArgumentException("The wrapper and executor must not be null.");
+        this.wrapper = wrapper;
+        this.executor = executor;
+    }
+
+    public StackWrapper getWrapper() {
+        return wrapper;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    private static synchronized ThreadPoolExecutor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private int count = 0;
+
+                        public synchronized Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "StackWrapperAsync-" + count++);
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            defaultExecutor.allowCoreThreadTimeOut(true);
+        }
+        return defaultExecutor;
+    }
+
+    /*
+     * Runs a call on the executor, under the deadline of the thread submitting it, if any.
+     */
+    private <T> ApiFuture<T> submit(final Callable<T> call) {
+        final Deadline deadline = Deadline.current();
+        ApiFuture<T> future = new ApiFuture<T>(deadline == null ? call : new Callable<T>() {
+            public T call() throws Exception {
+                Deadline scope = deadline.attach();
+                try {
+                    return call.call();
+                } finally {
+                    scope.end();
+                }
+            }
+        });
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getAnswerById(int)}.
+     */
+    public ApiFuture<Answer> getAnswerById(final int id) {
+        return submit(new Callable<Answer>() {
+            public Answer call() throws Exception {
+                return wrapper.getAnswerById(id);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getAnswersById(int[])}.
+     */
+    public ApiFuture<List<Answer>> getAnswersById(final int... ids) {
+        return submit(new Callable<List<Answer>>() {
+            public List<Answer> call() throws Exception {
+                return wrapper.getAnswersById(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getAnswers(AnswerQuery)}.
+     */
+    public ApiFuture<List<Answer>> getAnswers(final AnswerQuery query) {
+        return submit(new Callable<List<Answer>>() {
+            public List<Answer> call() throws Exception {
+                return wrapper.getAnswers(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsByAnswerId(int[])}.
+     */
+    public ApiFuture<List<Comment>> getCommentsByAnswerId(final int... answerIds) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsByAnswerId(answerIds);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsByAnswerId(CommentQuery)}.
+     */
+    public ApiFuture<List<Comment>> getCommentsByAnswerId(final CommentQuery query) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsByAnswerId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listBadges()}.
+     */
+    public ApiFuture<List<Badge>> listBadges() {
+        return submit(new Callable<List<Badge>>() {
+            public List<Badge> call() throws Exception {
+                return wrapper.listBadges();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getBadgeRecipients(int[])}.
+     */
+    public ApiFuture<List<User>> getBadgeRecipients(final int... ids) {
+        return submit(new Callable<List<User>>() {
+            public List<User> call() throws Exception {
+                return wrapper.getBadgeRecipients(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getBadgeRecipients(BadgeQuery)}.
+     */
+    public ApiFuture<List<User>> getBadgeRecipients(final BadgeQuery query) {
+        return submit(new Callable<List<User>>() {
+            public List<User> call() throws Exception {
+                return wrapper.getBadgeRecipients(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listStandardBadges()}.
+     */
+    public ApiFuture<List<Badge>> listStandardBadges() {
+        return submit(new Callable<List<Badge>>() {
+            public List<Badge> call() throws Exception {
+                return wrapper.listStandardBadges();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listTagBadges()}.
+     */
+    public ApiFuture<List<Badge>> listTagBadges() {
+        return submit(new Callable<List<Badge>>() {
+            public List<Badge> call() throws Exception {
+                return wrapper.listTagBadges();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentById(int)}.
+     */
+    public ApiFuture<Comment> getCommentById(final int id) {
+        return submit(new Callable<Comment>() {
+            public Comment call() throws Exception {
+                return wrapper.getCommentById(id);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsById(int[])}.
+     */
+    public ApiFuture<List<Comment>> getCommentsById(final int... ids) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsById(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getComments(CommentQuery)}.
+     */
+    public ApiFuture<List<Comment>> getComments(final CommentQuery query) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getComments(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsByPostId(int[])}.
+     */
+    public ApiFuture<List<Comment>> getCommentsByPostId(final int... ids) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsByPostId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsByPostId(CommentQuery)}.
+     */
+    public ApiFuture<List<Comment>> getCommentsByPostId(final CommentQuery query) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsByPostId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listQuestions()}.
+     */
+    public ApiFuture<List<Question>> listQuestions() {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.listQuestions();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listQuestions(QuestionQuery)}.
+     */
+    public ApiFuture<List<Question>> listQuestions(final QuestionQuery query) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.listQuestions(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getQuestionById(int)}.
+     */
+    public ApiFuture<Question> getQuestionById(final int id) {
+        return submit(new Callable<Question>() {
+            public Question call() throws Exception {
+                return wrapper.getQuestionById(id);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getQuestionsById(int[])}.
+     */
+    public ApiFuture<List<Question>> getQuestionsById(final int... ids) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.getQuestionsById(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getQuestions(QuestionQuery)}.
+     */
+    public ApiFuture<List<Question>> getQuestions(final QuestionQuery query) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.getQuestions(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getAnswersByQuestionId(int[])}.
+     */
+    public ApiFuture<List<Answer>> getAnswersByQuestionId(final int... ids) {
+        return submit(new Callable<List<Answer>>() {
+            public List<Answer> call() throws Exception {
+                return wrapper.getAnswersByQuestionId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getAnswersByQuestionId(AnswerQuery)}.
+     */
+    public ApiFuture<List<Answer>> getAnswersByQuestionId(final AnswerQuery query) {
+        return submit(new Callable<List<Answer>>() {
+            public List<Answer> call() throws Exception {
+                return wrapper.getAnswersByQuestionId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsByQuestionId(int[])}.
+     */
+    public ApiFuture<List<Comment>> getCommentsByQuestionId(final int... ids) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsByQuestionId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsByQuestionId(CommentQuery)}.
+     */
+    public ApiFuture<List<Comment>> getCommentsByQuestionId(final CommentQuery query) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsByQuestionId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getQuestionTimeline(int[])}.
+     */
+    public ApiFuture<List<PostTimeline>> getQuestionTimeline(final int... ids) {
+        return submit(new Callable<List<PostTimeline>>() {
+            public List<PostTimeline> call() throws Exception {
+                return wrapper.getQuestionTimeline(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getQuestionTimeline(TimelineQuery)}.
+     */
+    public ApiFuture<List<PostTimeline>> getQuestionTimeline(final TimelineQuery query) {
+        return submit(new Callable<List<PostTimeline>>() {
+            public List<PostTimeline> call() throws Exception {
+                return wrapper.getQuestionTimeline(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listUnansweredQuestions()}.
+     */
+    public ApiFuture<List<Question>> listUnansweredQuestions() {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.listUnansweredQuestions();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listUnansweredQuestions(UnansweredQuery)}.
+     */
+    public ApiFuture<List<Question>> listUnansweredQuestions(final UnansweredQuery query) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.listUnansweredQuestions(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getRevisionsByPostId(int[])}.
+     */
+    public ApiFuture<List<Revision>> getRevisionsByPostId(final int... ids) {
+        return submit(new Callable<List<Revision>>() {
+            public List<Revision> call() throws Exception {
+                return wrapper.getRevisionsByPostId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getRevisionsByPostId(RevisionQuery)}.
+     */
+    public ApiFuture<List<Revision>> getRevisionsByPostId(final RevisionQuery query) {
+        return submit(new Callable<List<Revision>>() {
+            public List<Revision> call() throws Exception {
+                return wrapper.getRevisionsByPostId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getRevisionByGuid(String, int[])}.
+     */
+    public ApiFuture<Revision> getRevisionByGuid(final String guid, final int... ids) {
+        return submit(new Callable<Revision>() {
+            public Revision call() throws Exception {
+                return wrapper.getRevisionByGuid(guid, ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getRevisionByGuid(RevisionQuery)}.
+     */
+    public ApiFuture<Revision> getRevisionByGuid(final RevisionQuery query) {
+        return submit(new Callable<Revision>() {
+            public Revision call() throws Exception {
+                return wrapper.getRevisionByGuid(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#search(SearchQuery)}.
+     */
+    public ApiFuture<List<Question>> search(final SearchQuery query) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.search(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getStats()}.
+     */
+    public ApiFuture<String> getStats() {
+        return submit(new Callable<String>() {
+            public String call() throws Exception {
+                return wrapper.getStats();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listTags()}.
+     */
+    public ApiFuture<List<Tag>> listTags() {
+        return submit(new Callable<List<Tag>>() {
+            public List<Tag> call() throws Exception {
+                return wrapper.listTags();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listTags(TagQuery)}.
+     */
+    public ApiFuture<List<Tag>> listTags(final TagQuery query) {
+        return submit(new Callable<List<Tag>>() {
+            public List<Tag> call() throws Exception {
+                return wrapper.listTags(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listUsers()}.
+     */
+    public ApiFuture<List<User>> listUsers() {
+        return submit(new Callable<List<User>>() {
+            public List<User> call() throws Exception {
+                return wrapper.listUsers();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listUsers(UserQuery)}.
+     */
+    public ApiFuture<List<User>> listUsers(final UserQuery query) {
+        return submit(new Callable<List<User>>() {
+            public List<User> call() throws Exception {
+                return wrapper.listUsers(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getUserById(int)}.
+     */
+    public ApiFuture<User> getUserById(final int id) {
+        return submit(new Callable<User>() {
+            public User call() throws Exception {
+                return wrapper.getUserById(id);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getUsersById(int[])}.
+     */
+    public ApiFuture<List<User>> getUsersById(final int... ids) {
+        return submit(new Callable<List<User>>() {
+            public List<User> call() throws Exception {
+                return wrapper.getUsersById(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getUsersById(UserQuery)}.
+     */
+    public ApiFuture<List<User>> getUsersById(final UserQuery query) {
+        return submit(new Callable<List<User>>() {
+            public List<User> call() throws Exception {
+                return wrapper.getUsersById(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getAnswersByUserId(int[])}.
+     */
+    public ApiFuture<List<Answer>> getAnswersByUserId(final int... ids) {
+        return submit(new Callable<List<Answer>>() {
+            public List<Answer> call() throws Exception {
+                return wrapper.getAnswersByUserId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getAnswersByUserId(AnswerQuery)}.
+     */
+    public ApiFuture<List<Answer>> getAnswersByUserId(final AnswerQuery query) {
+        return submit(new Callable<List<Answer>>() {
+            public List<Answer> call() throws Exception {
+                return wrapper.getAnswersByUserId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getBadgesByUserId(int[])}.
+     */
+    public ApiFuture<List<Badge>> getBadgesByUserId(final int... ids) {
+        return submit(new Callable<List<Badge>>() {
+            public List<Badge> call() throws Exception {
+                return wrapper.getBadgesByUserId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsByUserId(int[])}.
+     */
+    public ApiFuture<List<Comment>> getCommentsByUserId(final int... ids) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsByUserId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsByUserId(CommentQuery)}.
+     */
+    public ApiFuture<List<Comment>> getCommentsByUserId(final CommentQuery query) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsByUserId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsFromUsersToUser(int, int[])}.
+     */
+    public ApiFuture<List<Comment>> getCommentsFromUsersToUser(final int toId, final int... fromIds) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsFromUsersToUser(toId, fromIds);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getCommentsFromUsersToUser(CommentQuery, int)}.
+     */
+    public ApiFuture<List<Comment>> getCommentsFromUsersToUser(final CommentQuery query, final int toId) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getCommentsFromUsersToUser(query, toId);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getFavoriteQuestionsByUserId(int[])}.
+     */
+    public ApiFuture<List<Question>> getFavoriteQuestionsByUserId(final int... ids) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.getFavoriteQuestionsByUserId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getFavoriteQuestionsByUserId(FavoriteQuery)}.
+     */
+    public ApiFuture<List<Question>> getFavoriteQuestionsByUserId(final FavoriteQuery query) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.getFavoriteQuestionsByUserId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getUserMentions(int[])}.
+     */
+    public ApiFuture<List<Comment>> getUserMentions(final int... ids) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getUserMentions(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getUserMentions(CommentQuery)}.
+     */
+    public ApiFuture<List<Comment>> getUserMentions(final CommentQuery query) {
+        return submit(new Callable<List<Comment>>() {
+            public List<Comment> call() throws Exception {
+                return wrapper.getUserMentions(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getQuestionsByUserId(int[])}.
+     */
+    public ApiFuture<List<Question>> getQuestionsByUserId(final int... userIds) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.getQuestionsByUserId(userIds);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getQuestionsByUserId(UserQuestionQuery)}.
+     */
+    public ApiFuture<List<Question>> getQuestionsByUserId(final UserQuestionQuery query) {
+        return submit(new Callable<List<Question>>() {
+            public List<Question> call() throws Exception {
+                return wrapper.getQuestionsByUserId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getReputationByUserId(int[])}.
+     */
+    public ApiFuture<List<Reputation>> getReputationByUserId(final int... ids) {
+        return submit(new Callable<List<Reputation>>() {
+            public List<Reputation> call() throws Exception {
+                return wrapper.getReputationByUserId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getReputationByUserId(ReputationQuery)}.
+     */
+    public ApiFuture<List<Reputation>> getReputationByUserId(final ReputationQuery query) {
+        return submit(new Callable<List<Reputation>>() {
+            public List<Reputation> call() throws Exception {
+                return wrapper.getReputationByUserId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getTagsByUserId(int[])}.
+     */
+    public ApiFuture<List<Tag>> getTagsByUserId(final int... ids) {
+        return submit(new Callable<List<Tag>>() {
+            public List<Tag> call() throws Exception {
+                return wrapper.getTagsByUserId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getTagsByUserId(TagQuery)}.
+     */
+    public ApiFuture<List<Tag>> getTagsByUserId(final TagQuery query) {
+        return submit(new Callable<List<Tag>>() {
+            public List<Tag> call() throws Exception {
+                return wrapper.getTagsByUserId(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getTagMapByUserId(int[])}.
+     */
+    public ApiFuture<Map<Integer, List<Tag>>> getTagMapByUserId(final int... ids) {
+        return submit(new Callable<Map<Integer, List<Tag>>>() {
+            public Map<Integer, List<Tag>> call() throws Exception {
+                return wrapper.getTagMapByUserId(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getTagMapByUserId(TagQuery)}.
+     */
+    public ApiFuture<Map<Integer, List<Tag>>> getTagMapByUserId(final TagQuery q) {
+        return submit(new Callable<Map<Integer, List<Tag>>>() {
+            public Map<Integer, List<Tag>> call() throws Exception {
+                return wrapper.getTagMapByUserId(q);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getUserTimeline(int[])}.
+     */
+    public ApiFuture<List<UserTimeline>> getUserTimeline(final int... ids) {
+        return submit(new Callable<List<UserTimeline>>() {
+            public List<UserTimeline> call() throws Exception {
+                return wrapper.getUserTimeline(ids);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#getUserTimeline(TimelineQuery)}.
+     */
+    public ApiFuture<List<UserTimeline>> getUserTimeline(final TimelineQuery query) {
+        return submit(new Callable<List<UserTimeline>>() {
+            public List<UserTimeline> call() throws Exception {
+                return wrapper.getUserTimeline(query);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listModerators()}.
+     */
+    public ApiFuture<List<User>> listModerators() {
+        return submit(new Callable<List<User>>() {
+            public List<User> call() throws Exception {
+                return wrapper.listModerators();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous version of {@link StackWrapper#listModerators(UserQuery)}.
+     */
+    public ApiFuture<List<User>> listModerators(final UserQuery query) {
+        return submit(new Callable<List<User>>() {
+            public List<User> call() throws Exception {
+                return wrapper.listModerators(query);
+            }
+        });
+    }
+}
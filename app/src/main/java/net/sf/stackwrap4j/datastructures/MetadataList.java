@@ -22,6 +22,8 @@ public class MetadataList<E extends StackObjBase> extends ArrayList<E> {
     private static final long serialVersionUID = 968623794644895438L;
 
     private int total, page, pageSize;
+    private int quotaRemaining, quotaMax, backoff;
+    private boolean hasMore;
 
     /**
      * Creates a metadata list out of the JSON returned by a query
@@ -30,10 +32,62 @@ public class MetadataList<E extends StackObjBase> extends ArrayList<E> {
      * @throws JSONException
      */
     public MetadataList(String json, List<E> objects) throws JSONException {
+        this(new JSONObject(json), objects);
+    }
+
+    /**
+     * Creates a metadata list out of the parsed response to a query
+     * @param json
+     * @param objects
+     */
+    public MetadataList(JSONObject json, List<E> objects) {
         parseValues(json);
         addAll(objects);
     }
 
+    /* Creates an empty list whose metadata is filled in by the caller. */
+    private MetadataList() {
+    }
+
+    /**
+     * Joins the results of several requests, such as the chunks of a long id list, into one list.
+     * The totals are added up, and there are more results if any part has more. The page and page
+     * size are those the parts were requested with, or -1 if the parts differ; the quota fields are
+     * the last part's.
+     * @param parts the lists to join, in order
+     * @return a list holding every element of the parts
+     */
+    public static <E extends StackObjBase> MetadataList<E> concat(List<MetadataList<E>> parts) {
+        MetadataList<E> joined = new MetadataList<E>();
+        if (parts.isEmpty()) {
+            joined.total = joined.page = joined.pageSize = joined.quotaRemaining = joined.quotaMax = -1;
+            return joined;
+        }
+        int size = 0;
+        for (MetadataList<E> part : parts) {
+            size += part.size();
+        }
+        joined.ensureCapacity(size);
+        MetadataList<E> first = parts.get(0);
+        MetadataList<E> last = parts.get(parts.size() - 1);
+        joined.total = 0;
+        joined.page = first.page;
+        joined.pageSize = first.pageSize;
+        for (MetadataList<E> part : parts) {
+            joined.addAll(part);
+            joined.total = (joined.total < 0 || part.total < 0) ? -1 : joined.total + part.total;
+            if (part.page != joined.page)
+                joined.page = -1;
+            if (part.pageSize != joined.pageSize)
+                joined.pageSize = -1;
+            joined.hasMore |= part.hasMore;
+            joined.backoff = Math.max(joined.backoff, part.backoff);
+        }
+        joined.quotaRemaining = last.quotaRemaining;
+        joined.quotaMax = last.quotaMax;
+        return joined;
+    }
+
     /**
      * Gets the total number of items that can be fetched using the query
      * @return the total number of results possible
@@ -58,10 +112,47 @@ public class MetadataList<E extends StackObjBase> extends ArrayList<E> {
         return pageSize;
     }
     
-    private void parseValues(String json) throws JSONException{
-        PoliteJSONObject jOp = new PoliteJSONObject(new JSONObject(json));
+    /**
+     * Tells whether there are more results after this page. Uses the response's has_more field,
+     * or the total when the response has no such field.
+     * @return true if a later page has results
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Gets the number of requests left in the daily quota when this list was fetched
+     * @return the remaining quota, or -1 if the response didn't include it
+     */
+    public int getQuotaRemaining() {
+        return quotaRemaining;
+    }
+
+    /**
+     * Gets the daily request quota of the application that fetched this list
+     * @return the daily quota, or -1 if the response didn't include it
+     */
+    public int getQuotaMax() {
+        return quotaMax;
+    }
+
+    /**
+     * Gets the number of seconds the API asked for before the same method is called again
+     * @return the backoff in seconds, or 0 if none was requested
+     */
+    public int getBackoff() {
+        return backoff;
+    }
+    
+    private void parseValues(JSONObject json) {
+        PoliteJSONObject jOp = new PoliteJSONObject(json);
         total = jOp.tryGetInt("total", -1);
         page = jOp.tryGetInt("page", -1);
         pageSize = jOp.tryGetInt("pagesize", -1);
+        quotaRemaining = jOp.tryGetInt("quota_remaining", -1);
+        quotaMax = jOp.tryGetInt("quota_max", -1);
+        backoff = jOp.tryGetInt("backoff", 0);
+        hasMore = jOp.tryGetBoolean("has_more", total >= 0 && page > 0 && pageSize > 0 && (long) page * pageSize < total);
     }
 }
@@ -0,0 +1,244 @@
+package net.sf.stackwrap4j.datastructures;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.stackwrap4j.entities.StackObjBase;
+import net.sf.stackwrap4j.exceptions.ParameterNotSetException;
+import net.sf.stackwrap4j.json.JSONException;
+import net.sf.stackwrap4j.query.PageQuery;
+
+/**
+ * Publishes the results of a paged query item by item, fetching each page only once the
+ * subscriber has asked for more items than the pages fetched so far hold.
+ *
+ * Unlike an AutoFetchList, which can only block its caller while it fetches, a publisher lets the
+ * consumer set the pace: a subscriber that requests one item at a time while it writes each to a
+ * database never has more than a page in memory and never causes a request before it is ready.
+ * Pages are fetched and items delivered on the executor, one signal at a time, following the
+ * Reactive Streams rules (the same contract as java.util.concurrent.Flow, which is not available on
+ * every platform this library runs on).
+ *
+ * A publisher reads its query's pages from the current page on, so it can be subscribed to once.
+ * Implementing classes decide which API method fetches a page, as with AutoFetchList.
+ *
+ * @author Justin Nelson
+ * @author Bill Cruise
+ */
+public abstract class PagePublisher<E extends StackObjBase> {
+
+    /**
+     * Receives the items of a PagePublisher.
+     */
+    public interface Subscriber<E> {
+        /**
+         * Called once, before any other signal, with the subscription to request items through.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with each item, never more often than the items requested.
+         */
+        void onNext(E item);
+
+        /**
+         * Called once if fetching a page failed. No further signals follow.
+         */
+        void onError(Throwable failure);
+
+        /**
+         * Called once after the last item of the last page. No further signals follow.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and its subscriber.
+     */
+    public interface Subscription {
+        /**
+         * Asks for n more items. Requests add up; a request of Long.MAX_VALUE removes the limit.
+         * @param n the number of items, greater than 0
+         */
+        void request(long n);
+
+        /**
+         * Stops the publisher. No page is fetched after this and signals stop soon after.
+         */
+        void cancel();
+    }
+
+    private final PageQuery query;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Creates a publisher over the pages of a query.
+     *
+     * @param query
+     *            the query, positioned at the first page to publish
+     * @param executor
+     *            fetches pages and delivers signals
+     */
+    public PagePublisher(PageQuery query, Executor executor) {
+        this.query = query;
+        this.executor = executor;
+    }
+
+    /**
+     * Fetches the page the query is set to.
+     * Implementing classes should decide which API method they will use to fetch the page.
+     * @param query the query, set to the page to fetch
+     * @return the page
+     * @throws IOException
+     * @throws JSONException
+     * @throws ParameterNotSetException
+     */
+    protected abstract MetadataList<E> fetchPage(PageQuery query) throws IOException, JSONException,
+            ParameterNotSetException;
+
+    /**
+     * Starts publishing to a subscriber. A publisher can only be subscribed to once; later
+     * subscribers are sent an IllegalStateException.
+     * @param subscriber receives the items
+     */
+    public void subscribe(Subscriber<? super E> subscriber) {
+        if (subscriber == null)
+            throw new NullPointerException("The subscriber must not be null.");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                public void request(long n) {
+                }
+
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("This publisher already has a subscriber."));
+            return;
+        }
+        new PageSubscription(subscriber).start();
+    }
+
+    /**
+     * Delivers items to one subscriber. Every signal is sent from drain(), which runs on the
+     * executor and never on two threads at once.
+     */
+    private final class PageSubscription implements Subscription, Runnable {
+        private final Subscriber<? super E> subscriber;
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private final ArrayDeque<E> buffer = new ArrayDeque<E>();
+
+        /* Written by any thread, guarded by this. */
+        private long demand = 0;
+        private boolean cancelled = false;
+        private Throwable badRequest = null;
+
+        /* Only touched by drain(). */
+        private boolean started = false;
+        private boolean lastPage = false;
+        private boolean done = false;
+
+        PageSubscription(Subscriber<? super E> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void start() {
+            schedule();
+        }
+
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    badRequest = new IllegalArgumentException("The number of items requested must be positive.");
+                } else {
+                    demand += n;
+                    if (demand < 0)
+                        demand = Long.MAX_VALUE;
+                }
+            }
+            schedule();
+        }
+
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (pendingDrains.getAndIncrement() == 0)
+                executor.execute(this);
+        }
+
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done)
+                return;
+            if (!started) {
+                started = true;
+                subscriber.onSubscribe(this);
+            }
+            for (;;) {
+                Throwable failure;
+                boolean complete = lastPage && buffer.isEmpty();
+                synchronized (this) {
+                    if (cancelled) {
+                        done = true;
+                        buffer.clear();
+                        return;
+                    }
+                    failure = badRequest;
+                    if (failure == null && !complete && demand == 0)
+                        return;
+                    if (failure == null && !buffer.isEmpty() && demand != Long.MAX_VALUE)
+                        demand--;
+                }
+                if (failure != null) {
+                    finish(failure);
+                    return;
+                }
+                if (complete) {
+                    finish(null);
+                    return;
+                }
+                if (!buffer.isEmpty()) {
+                    subscriber.onNext(buffer.poll());
+                    continue;
+                }
+                try {
+                    int current = query.getPage();
+                    MetadataList<E> page = fetchPage(query);
+                    query.setPage(current + 1);
+                    buffer.addAll(page);
+                    lastPage = page.isEmpty() || !page.hasMore();
+                } catch (Exception e) {
+                    finish(e);
+                    return;
+                }
+            }
+        }
+
+        private void finish(Throwable failure) {
+            done = true;
+            synchronized (this) {
+                cancelled = true;
+            }
+            buffer.clear();
+            if (failure == null)
+                subscriber.onComplete();
+            else
+                subscriber.onError(failure);
+        }
+    }
+}
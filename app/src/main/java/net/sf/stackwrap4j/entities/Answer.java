@@ -34,6 +34,7 @@ import net.sf.stackwrap4j.exceptions.ParameterNotSetException;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.query.CommentQuery;
 
 /**
@@ -77,6 +78,14 @@ public class Answer extends MajorPost {
     /** The id for the question that this answer belongs to. */
     private int questionId;
 
+    /** Binds answers straight from a response. */
+    static final EntityCodec<Answer> CODEC = new EntityCodec<Answer>("answers") {
+        @Override
+        Answer create(final StackWrapper originator) {
+            return new Answer(originator);
+        }
+    };
+
     /**
      * Creates an Answer from a JSON string.
      * @param json the JSON String representing an answer.
@@ -113,6 +122,34 @@ public class Answer extends MajorPost {
         questionId = jA.getInt("question_id");
     }
 
+    /**
+     * Creates an empty Answer, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    private Answer(final StackWrapper originator) {
+        super(originator);
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "answer_id":
+            postId = reader.nextInt();
+            return true;
+        case "accepted":
+            isAccepted = reader.nextBoolean();
+            return true;
+        case "answer_comments_url":
+            commentsUrl = reader.nextString();
+            return true;
+        case "question_id":
+            questionId = reader.nextInt();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * Whether or not this answer is accepted.
      * @return true if this answer has been accepted by its parent.
@@ -232,7 +269,19 @@ public class Answer extends MajorPost {
      */
     public static List<Answer> fromJSONString(final String json, final StackWrapper originator)
             throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("answers"), originator);
+        return fromJSONObject(new JSONObject(json), originator);
+    }
+
+    /**
+     * Extracts a list of Answers from a parsed response.
+     * @param json the response object containing answers.
+     * @param originator the StackExchange instance that created this
+     * @return a List of answers.
+     * @throws JSONException if the response does not hold a list of answers.
+     */
+    public static List<Answer> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("answers"), originator);
     }
 
 }
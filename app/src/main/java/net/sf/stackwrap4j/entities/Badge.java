@@ -24,6 +24,7 @@
 
 package net.sf.stackwrap4j.entities;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import net.sf.stackwrap4j.StackWrapper;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 
 /**
  * Represents a badge in the Stack Exchange family of sites.
@@ -61,6 +63,14 @@ public class Badge extends StackObjBase {
     /** True if this badge is for a tag, false otherwise. */
     private boolean tagBased;
 
+    /** Binds badges straight from a response. */
+    static final EntityCodec<Badge> CODEC = new EntityCodec<Badge>("badges") {
+        @Override
+        Badge create(final StackWrapper originator) {
+            return new Badge(originator);
+        }
+    };
+
     /**
      * Construct a Badge object from a JSON string.
      * @param json a string containing badge information
@@ -87,6 +97,40 @@ public class Badge extends StackObjBase {
         this.tagBased = jsonObject.getBoolean("tag_based");
     }
 
+    /**
+     * Creates an empty Badge, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    private Badge(final StackWrapper originator) {
+        super(originator);
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "badge_id":
+            id = reader.nextInt();
+            return true;
+        case "rank":
+            rank = reader.nextString();
+            return true;
+        case "name":
+            this.name = reader.nextString();
+            return true;
+        case "description":
+            description = reader.nextString();
+            return true;
+        case "award_count":
+            awardCount = reader.nextInt();
+            return true;
+        case "tag_based":
+            tagBased = reader.nextBoolean();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * The number of times this badge has been awarded.
      * @return the number of times this badge has been awarded.
@@ -144,7 +188,19 @@ public class Badge extends StackObjBase {
      */
     public static List<Badge> fromJSONString(final String json, final StackWrapper originator)
             throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("badges"), originator);
+        return CODEC.readPage(json, originator);
+    }
+
+    /**
+     * Extracts a list of Badges from a parsed response.
+     * @param json the response object containing badges.
+     * @param originator the StackExchange instance that created this
+     * @return a List of badges.
+     * @throws JSONException if the response does not hold a list of badges.
+     */
+    public static List<Badge> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("badges"), originator);
     }
 
     /**
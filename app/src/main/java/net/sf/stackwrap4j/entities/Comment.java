@@ -24,6 +24,7 @@
 
 package net.sf.stackwrap4j.entities;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,6 +33,7 @@ import net.sf.stackwrap4j.enums.Order;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 
 /**
@@ -74,6 +76,14 @@ public class Comment extends Post {
     
     /** Type of the parent post.  Can be 'answer' or 'question'. */
     private String postType;
+
+    /** Binds comments straight from a response. */
+    static final EntityCodec<Comment> CODEC = new EntityCodec<Comment>("comments") {
+        @Override
+        Comment create(final StackWrapper originator) {
+            return new Comment(originator);
+        }
+    };
     
     /**
      * Creates a Comment from the JSON string provided.
@@ -109,6 +119,39 @@ public class Comment extends Post {
         this.editCount = jCp.tryGetInt("edit_count", -1);
     }
 
+    /**
+     * Creates an empty Comment, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    private Comment(final StackWrapper originator) {
+        super(originator);
+        editCount = -1;
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "comment_id":
+            postId = reader.nextInt();
+            return true;
+        case "reply_to_user":
+            replyToUser = User.CODEC.read(reader, getCreatingApi());
+            return true;
+        case "post_id":
+            parentId = reader.nextInt();
+            return true;
+        case "post_type":
+            postType = reader.nextString();
+            onQuestion = postType.equals("question");
+            return true;
+        case "edit_count":
+            editCount = reader.nextInt();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * If true, the comment is on a Question. If false, it's on an Answer
      * @return Whether or not the comment is on a question
@@ -179,7 +222,19 @@ public class Comment extends Post {
      */
     public static List<Comment> fromJSONString(final String json, final StackWrapper originator)
             throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("comments"), originator);
+        return CODEC.readPage(json, originator);
+    }
+
+    /**
+     * Extracts a list of Comments from a parsed response.
+     * @param json the response object containing comments.
+     * @param originator the StackExchange instance that created this
+     * @return a List of comments.
+     * @throws JSONException if the response does not hold a list of comments.
+     */
+    public static List<Comment> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("comments"), originator);
     }
 
 }
@@ -0,0 +1,134 @@
+package net.sf.stackwrap4j.entities;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.stackwrap4j.StackWrapper;
+import net.sf.stackwrap4j.json.JSONException;
+import net.sf.stackwrap4j.json.JsonReader;
+
+/**
+ * Binds one kind of entity straight from a JsonReader, without building a JSONObject for it first.
+ *
+ * The codec creates an entity with the defaults its JSON constructor would give the fields the API
+ * left out, then hands each member of the object to the entity's readField. Members the entity does
+ * not know are skipped without being decoded, and null members leave the default in place. Unlike
+ * the JSON constructors, a missing member is not an error.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+abstract class EntityCodec<E extends StackObjBase> {
+
+    /** The member of a response that holds the page of entities (Example: "questions"). */
+    private final String pageKey;
+
+    EntityCodec(final String pageKey) {
+        this.pageKey = pageKey;
+    }
+
+    /**
+     * Creates an entity with the defaults for the members a response can leave out.
+     * @param originator the StackExchange instance that created the entity
+     * @return the new entity
+     */
+    abstract E create(StackWrapper originator);
+
+    /**
+     * Reads one entity from the object at the reader's position.
+     * @param reader the reader, positioned at the start of an object
+     * @param originator the StackExchange instance that created the entity
+     * @return the entity
+     * @throws IOException if the reader's stream can't be read
+     * @throws JSONException if the JSON is poorly formatted or a member has the wrong type
+     */
+    final E read(final JsonReader reader, final StackWrapper originator) throws IOException, JSONException {
+        E entity = create(originator);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonReader.Token.NULL) {
+                reader.nextNull();
+            } else if (!entity.readField(name, reader)) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return entity;
+    }
+
+    /**
+     * Reads a list of entities from the array at the reader's position.
+     * @param reader the reader, positioned at the start of an array
+     * @param originator the StackExchange instance that created the entities
+     * @return the entities
+     * @throws IOException if the reader's stream can't be read
+     * @throws JSONException if the JSON is poorly formatted or a member has the wrong type
+     */
+    final List<E> readList(final JsonReader reader, final StackWrapper originator) throws IOException, JSONException {
+        List<E> ret = new ArrayList<E>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            ret.add(read(reader, originator));
+        }
+        reader.endArray();
+        return ret;
+    }
+
+    /**
+     * Reads the page of entities from a response, skipping the response's other members.
+     * @param json the response
+     * @param originator the StackExchange instance that made the request
+     * @return the entities
+     * @throws JSONException if the JSON is poorly formatted or has no page of entities
+     */
+    final List<E> readPage(final String json, final StackWrapper originator) throws JSONException {
+        JsonReader reader = new JsonReader(utf8(json));
+        try {
+            List<E> page = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (page == null && name.equals(pageKey)) {
+                    page = readList(reader, originator);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (page == null)
+                throw new JSONException("JSONObject[\"" + pageKey + "\"] not found.");
+            return page;
+        } catch (IOException e) {
+            // a byte array can always be read
+            throw new JSONException(e);
+        }
+    }
+
+    /**
+     * Reads an array of strings (Example: the tags of a question).
+     * @param reader the reader, positioned at the start of an array
+     * @return the strings
+     * @throws IOException if the reader's stream can't be read
+     * @throws JSONException if the JSON is poorly formatted or an element isn't a string
+     */
+    static List<String> readStrings(final JsonReader reader) throws IOException, JSONException {
+        List<String> ret = new ArrayList<String>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            ret.add(reader.nextString());
+        }
+        reader.endArray();
+        return ret;
+    }
+
+    private static byte[] utf8(final String json) {
+        try {
+            return json.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported.", e);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import net.sf.stackwrap4j.exceptions.ParameterNotSetException;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 import net.sf.stackwrap4j.query.CommentQuery;
 
@@ -105,6 +106,52 @@ public abstract class MajorPost extends Post {
         downVoteCount = jP.getInt("down_vote_count");
     }
 
+    /**
+     * Creates an empty MajorPost, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    MajorPost(final StackWrapper originator) {
+        super(originator);
+        lockedDate = -1;
+        lastEditDate = -1;
+        lastActivityDate = -1;
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "locked_date":
+            lockedDate = reader.nextLong();
+            return true;
+        case "last_edit_date":
+            lastEditDate = reader.nextLong();
+            return true;
+        case "last_activity_date":
+            lastActivityDate = reader.nextLong();
+            return true;
+        case "comments":
+            comments = Comment.CODEC.readList(reader, getCreatingApi());
+            return true;
+        case "title":
+            title = reader.nextString();
+            return true;
+        case "view_count":
+            viewCount = reader.nextInt();
+            return true;
+        case "community_owned":
+            isCommunityOwned = reader.nextBoolean();
+            return true;
+        case "up_vote_count":
+            upVoteCount = reader.nextInt();
+            return true;
+        case "down_vote_count":
+            downVoteCount = reader.nextInt();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * The date this post was locked.
      * @return the date this post was locked, or -1 if not locked.
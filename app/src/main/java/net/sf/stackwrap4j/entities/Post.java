@@ -28,6 +28,7 @@ import net.sf.stackwrap4j.StackWrapper;
 import net.sf.stackwrap4j.exceptions.ParameterNotSetException;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 import net.sf.stackwrap4j.query.AnswerQuery;
 import net.sf.stackwrap4j.query.QuestionQuery;
@@ -82,6 +83,34 @@ public class Post extends StackObjBase {
         score = jP.getInt("score");
     }
 
+    /**
+     * Creates an empty Post, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    Post(final StackWrapper originator) {
+        super(originator);
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "body":
+            body = reader.nextString();
+            return true;
+        case "owner":
+            owner = User.CODEC.read(reader, getCreatingApi());
+            return true;
+        case "creation_date":
+            creationDate = reader.nextLong();
+            return true;
+        case "score":
+            score = reader.nextInt();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * The id of this post.
      * @return the id for this post
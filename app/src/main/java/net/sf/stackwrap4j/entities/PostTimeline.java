@@ -24,6 +24,7 @@
 
 package net.sf.stackwrap4j.entities;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import net.sf.stackwrap4j.StackWrapper;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 
 /**
@@ -66,6 +68,14 @@ public class PostTimeline extends Timeline {
     /** A URL to the comments on the post. */
     private String commentUrl;
 
+    /** Binds post timelines straight from a response. */
+    static final EntityCodec<PostTimeline> CODEC = new EntityCodec<PostTimeline>("post_timelines") {
+        @Override
+        PostTimeline create(final StackWrapper originator) {
+            return new PostTimeline(originator);
+        }
+    };
+
     /**
      * Creates a PostTimeline from a JSON object.
      * @param json the JSON string representing a post timeline.
@@ -105,6 +115,43 @@ public class PostTimeline extends Timeline {
         commentUrl = jPTp.tryGetString("post_comment_url");
     }
 
+    /**
+     * Creates an empty PostTimeline, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    private PostTimeline(final StackWrapper originator) {
+        super(originator);
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "timeline_type":
+            timelineType = Type.valueOf(reader.nextString().toUpperCase());
+            return true;
+        case "revision_guid":
+            revisionGuid = reader.nextString();
+            return true;
+        case "user":
+            user = User.CODEC.read(reader, getCreatingApi());
+            return true;
+        case "owner":
+            owner = User.CODEC.read(reader, getCreatingApi());
+            return true;
+        case "post_revision_url":
+            postRevisionUrl = reader.nextString();
+            return true;
+        case "post_url":
+            postUrl = reader.nextString();
+            return true;
+        case "post_comment_url":
+            commentUrl = reader.nextString();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * Gets the type of this timeline.
      * @return the timelineType
@@ -211,7 +258,19 @@ public class PostTimeline extends Timeline {
      */
     public static List<PostTimeline> fromJSONString(final String json, final StackWrapper originator)
             throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("post_timelines"), originator);
+        return CODEC.readPage(json, originator);
+    }
+
+    /**
+     * Extracts a list of PostTimelines from a parsed response.
+     * @param json the response object containing post_timelines.
+     * @param originator the StackExchange instance that created this
+     * @return a List of PostTimelines.
+     * @throws JSONException if the response does not hold a list of post_timelines.
+     */
+    public static List<PostTimeline> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("post_timelines"), originator);
     }
     
 
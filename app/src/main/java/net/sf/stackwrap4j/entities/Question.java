@@ -29,6 +29,7 @@ import net.sf.stackwrap4j.enums.Order;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 import net.sf.stackwrap4j.query.QuestionQuery;
 
@@ -119,6 +120,14 @@ public class Question extends MajorPost {
     /** The list of tags on this question. */
     private List<String> tags;
 
+    /** Binds questions straight from a response. */
+    static final EntityCodec<Question> CODEC = new EntityCodec<Question>("questions") {
+        @Override
+        Question create(final StackWrapper originator) {
+            return new Question(originator);
+        }
+    };
+
     /**
      * Creates a Question from a JSON string.
      * @param json string containing questions.
@@ -166,6 +175,66 @@ public class Question extends MajorPost {
         }
     }
 
+    /**
+     * Creates an empty Question, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this
+     */
+    private Question(final StackWrapper originator) {
+        super(originator);
+        bountyClosesDate = -1;
+        closedDate = -1;
+        answers = new ArrayList<Answer>();
+        acceptedAnswerId = -1;
+        tags = new ArrayList<String>();
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "bounty_closes_date":
+            bountyClosesDate = reader.nextLong();
+            return true;
+        case "bounty_amount":
+            bountyAmount = reader.nextInt();
+            return true;
+        case "closed_date":
+            closedDate = reader.nextLong();
+            return true;
+        case "closed_reason":
+            closedReason = reader.nextString();
+            return true;
+        case "question_timeline_url":
+            questionTimelineUrl = reader.nextString();
+            return true;
+        case "question_answers_url":
+            questionAnswersUrl = reader.nextString();
+            return true;
+        case "question_id":
+            postId = reader.nextInt(); // inherited member
+            return true;
+        case "answer_count":
+            answerCount = reader.nextInt();
+            return true;
+        case "answers":
+            answers = Answer.CODEC.readList(reader, getCreatingApi());
+            return true;
+        case "accepted_answer_id":
+            acceptedAnswerId = reader.nextInt();
+            return true;
+        case "favorite_count":
+            favoriteCount = reader.nextInt();
+            return true;
+        case "question_comments_url":
+            commentsUrl = reader.nextString(); // inherited member
+            return true;
+        case "tags":
+            tags = EntityCodec.readStrings(reader);
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * The id of the answer that was accepted for this question.
      * @return the id of the accepted answer, or -1 if there was no accepted answer
@@ -311,7 +380,19 @@ public class Question extends MajorPost {
      */
     public static List<Question> fromJSONString(final String json, final StackWrapper originator)
             throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("questions"), originator);
+        return CODEC.readPage(json, originator);
+    }
+
+    /**
+     * Extracts a list of Questions from a parsed response.
+     * @param json the response object containing questions.
+     * @param originator the StackExchange instance that created this
+     * @return a List of questions.
+     * @throws JSONException if the response does not hold a list of questions.
+     */
+    public static List<Question> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("questions"), originator);
     }
     
 
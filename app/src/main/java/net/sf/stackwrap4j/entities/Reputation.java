@@ -24,6 +24,7 @@
 
 package net.sf.stackwrap4j.entities;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import net.sf.stackwrap4j.StackWrapper;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 
 
 /**
@@ -74,6 +76,14 @@ public class Reputation extends StackObjBase {
     /** The date of the reputation change. */
     private long onDate;
 
+    /** Binds reputation changes straight from a response. */
+    static final EntityCodec<Reputation> CODEC = new EntityCodec<Reputation>("rep_changes") {
+        @Override
+        Reputation create(final StackWrapper originator) {
+            return new Reputation(originator);
+        }
+    };
+
     
     /**
      * Construct a Reputation object from a JSON string.
@@ -100,6 +110,40 @@ public class Reputation extends StackObjBase {
         negativeRep = repObj.getInt("negative_rep");
         onDate = repObj.getLong("on_date");
     }
+
+    /**
+     * Creates an empty Reputation, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    private Reputation(final StackWrapper originator) {
+        super(originator);
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "post_id":
+            postId = reader.nextInt();
+            return true;
+        case "post_type":
+            postType = reader.nextString();
+            return true;
+        case "title":
+            title = reader.nextString();
+            return true;
+        case "positive_rep":
+            positiveRep = reader.nextInt();
+            return true;
+        case "negative_rep":
+            negativeRep = reader.nextInt();
+            return true;
+        case "on_date":
+            onDate = reader.nextLong();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
     
     /**
      * Gets the negative reputation change.
@@ -158,7 +202,19 @@ public class Reputation extends StackObjBase {
      */
     public static List<Reputation> fromJSONString(final String json, final StackWrapper originator) 
             throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("rep_changes"), originator);
+        return CODEC.readPage(json, originator);
+    }
+
+    /**
+     * Extracts a list of Reputations from a parsed response.
+     * @param json the response object containing rep_changes.
+     * @param originator the StackExchange instance that created this
+     * @return a List of reputations.
+     * @throws JSONException if the response does not hold a list of rep_changes.
+     */
+    public static List<Reputation> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("rep_changes"), originator);
     }
 
     /**
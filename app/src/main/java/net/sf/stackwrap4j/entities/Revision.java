@@ -24,6 +24,7 @@
 
 package net.sf.stackwrap4j.entities;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import net.sf.stackwrap4j.StackWrapper;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 
 /**
@@ -92,6 +94,14 @@ public class Revision extends StackObjBase {
     /** The numeric post id that the revision was made on. */
     private int postId;
 
+    /** Binds revisions straight from a response. */
+    static final EntityCodec<Revision> CODEC = new EntityCodec<Revision>("revisions") {
+        @Override
+        Revision create(final StackWrapper originator) {
+            return new Revision(originator);
+        }
+    };
+
     
     /**
      * Construct a Revision object from a JSON string.
@@ -148,6 +158,73 @@ public class Revision extends StackObjBase {
         
         this.postId = jsonObj.getInt("post_id");
     }
+
+    /**
+     * Creates an empty Revision, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    private Revision(final StackWrapper originator) {
+        super(originator);
+        revisionNumber = -1;
+        lastTags = new ArrayList<String>();
+        tags = new ArrayList<String>();
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "body":
+            body = reader.nextString();
+            return true;
+        case "comment":
+            comment = reader.nextString();
+            return true;
+        case "creation_date":
+            creationDate = reader.nextLong();
+            return true;
+        case "is_question":
+            isQuestion = reader.nextBoolean();
+            return true;
+        case "is_rollback":
+            isRollback = reader.nextBoolean();
+            return true;
+        case "last_body":
+            lastBody = reader.nextString();
+            return true;
+        case "last_title":
+            lastTitle = reader.nextString();
+            return true;
+        case "last_tags":
+            lastTags = EntityCodec.readStrings(reader);
+            return true;
+        case "revision_guid":
+            revisionGuid = reader.nextString();
+            return true;
+        case "revision_number":
+            revisionNumber = reader.nextInt();
+            return true;
+        case "tags":
+            tags = EntityCodec.readStrings(reader);
+            return true;
+        case "title":
+            title = reader.nextString();
+            return true;
+        case "revision_type":
+            revisionType = Type.valueOf(reader.nextString().toUpperCase());
+            return true;
+        case "set_community_wiki":
+            setCommunityWiki = reader.nextBoolean();
+            return true;
+        case "user":
+            user = User.CODEC.read(reader, getCreatingApi());
+            return true;
+        case "post_id":
+            postId = reader.nextInt();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
     
     
     /**
@@ -296,7 +373,19 @@ public class Revision extends StackObjBase {
      */
 	public static List<Revision> fromJSONString(final String json, final StackWrapper originator) 
 	        throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("revisions"), originator);
+        return CODEC.readPage(json, originator);
+    }
+
+    /**
+     * Extracts a list of Revisions from a parsed response.
+     * @param json the response object containing revisions.
+     * @param originator the StackExchange instance that created this
+     * @return a List of revisions.
+     * @throws JSONException if the response does not hold a list of revisions.
+     */
+    public static List<Revision> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("revisions"), originator);
     }
 
 	/**
@@ -24,9 +24,12 @@
 
 package net.sf.stackwrap4j.entities;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 import net.sf.stackwrap4j.StackWrapper;
+import net.sf.stackwrap4j.json.JSONException;
+import net.sf.stackwrap4j.json.JsonReader;
 
 /**
  * The base object for all other entities in the hierarchy of things returned by the API.
@@ -58,6 +61,19 @@ public abstract class StackObjBase implements Serializable {
         return creator;
     }
 
+    /**
+     * Sets a field from one member of the entity's JSON object, for the EntityCodec. Subclasses
+     * handle the members they know and pass the rest on to their superclass.
+     * @param name the member's name
+     * @param reader a reader positioned at the member's value, which is never null
+     * @return true if the value was read, false if it was left for the caller to skip
+     * @throws IOException if the reader's stream can't be read
+     * @throws JSONException if the value has the wrong type
+     */
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        return false;
+    }
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
 	 */
@@ -29,8 +29,10 @@ import net.sf.stackwrap4j.enums.Order;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -72,6 +74,14 @@ public class Tag extends StackObjBase {
     /** User associated with this tag, depends on context. Optional. */
     private Integer userId;
 
+    /** Binds tags straight from a response. */
+    static final EntityCodec<Tag> CODEC = new EntityCodec<Tag>("tags") {
+        @Override
+        Tag create(final StackWrapper originator) {
+            return new Tag(originator);
+        }
+    };
+
     /**
      * Constructs a new Tag from a JSON formatted String.
      * @param json The string containing the Tag data
@@ -97,6 +107,31 @@ public class Tag extends StackObjBase {
         userId = pjt.tryGetInteger("user_id");
     }
 
+    /**
+     * Creates an empty Tag, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    private Tag(final StackWrapper originator) {
+        super(originator);
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "name":
+            this.name = reader.nextString();
+            return true;
+        case "count":
+            count = reader.nextInt();
+            return true;
+        case "user_id":
+            userId = reader.nextInt();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * @return The number of instances of this Tag
      */
@@ -128,7 +163,19 @@ public class Tag extends StackObjBase {
      */
     public static List<Tag> fromJSONString(final String json, final StackWrapper originator)
             throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("tags"), originator);
+        return CODEC.readPage(json, originator);
+    }
+
+    /**
+     * Extracts a list of Tags from a parsed response.
+     * @param json the response object containing tags.
+     * @param originator the StackExchange instance that created this
+     * @return a List of tags.
+     * @throws JSONException if the response does not hold a list of tags.
+     */
+    public static List<Tag> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("tags"), originator);
     }
 
     /*
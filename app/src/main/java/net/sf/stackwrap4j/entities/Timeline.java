@@ -24,9 +24,12 @@
 
 package net.sf.stackwrap4j.entities;
 
+import java.io.IOException;
+
 import net.sf.stackwrap4j.StackWrapper;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 
 /**
@@ -72,6 +75,41 @@ public class Timeline extends StackObjBase {
     	creationDate = jTp.tryGetLong("creation_date", -1);
     	action = jTp.tryGetString("action");
     }
+
+    /**
+     * Creates an empty Timeline, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    Timeline(final StackWrapper originator) {
+        super(originator);
+        postId = -1;
+        questionId = -1;
+        commentId = -1;
+        creationDate = -1;
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "post_id":
+            postId = reader.nextInt();
+            return true;
+        case "question_id":
+            questionId = reader.nextInt();
+            return true;
+        case "comment_id":
+            commentId = reader.nextInt();
+            return true;
+        case "creation_date":
+            creationDate = reader.nextLong();
+            return true;
+        case "action":
+            action = reader.nextString();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
 	
 
 	/**
@@ -34,6 +34,7 @@ import net.sf.stackwrap4j.exceptions.ParameterNotSetException;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 import net.sf.stackwrap4j.query.AnswerQuery;
 import net.sf.stackwrap4j.query.CommentQuery;
@@ -123,6 +124,14 @@ public class User extends StackObjBase {
     /** The JSON string parsed to create this user. */
     private String json;
 
+    /** Binds users straight from a response. */
+    static final EntityCodec<User> CODEC = new EntityCodec<User>("users") {
+        @Override
+        User create(final StackWrapper originator) {
+            return new User(originator);
+        }
+    };
+
     /**
      * Constructs a new User from a String that represents a JSONObject.
      * @param jsonString A properly formatted JSON String
@@ -174,6 +183,88 @@ public class User extends StackObjBase {
         emailHash = jU.getString("email_hash");
     }
 
+    /**
+     * Creates an empty User, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this User.
+     */
+    private User(final StackWrapper originator) {
+        super(originator);
+        age = -1;
+        websiteUrl = null;
+        acceptRate = -1;
+        location = null;
+        aboutMe = null;
+        displayName = null;
+        creationDate = -1;
+        lastAccessDate = -1;
+        badgeCounts = new BadgeCounts(originator);
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "age":
+            age = reader.nextInt();
+            return true;
+        case "is_moderator":
+            isModerator = reader.nextBoolean();
+            return true;
+        case "website_url":
+            websiteUrl = reader.nextString();
+            return true;
+        case "accept_rate":
+            acceptRate = reader.nextInt();
+            return true;
+        case "location":
+            location = reader.nextString();
+            return true;
+        case "about_me":
+            aboutMe = reader.nextString();
+            return true;
+        case "display_name":
+            displayName = reader.nextString();
+            return true;
+        case "creation_date":
+            creationDate = reader.nextLong();
+            return true;
+        case "last_access_date":
+            lastAccessDate = reader.nextLong();
+            return true;
+        case "view_count":
+            views = reader.nextInt();
+            return true;
+        case "up_vote_count":
+            upVotes = reader.nextInt();
+            return true;
+        case "down_vote_count":
+            downVotes = reader.nextInt();
+            return true;
+        case "question_count":
+            questionCount = reader.nextInt();
+            return true;
+        case "answer_count":
+            answerCount = reader.nextInt();
+            return true;
+        case "association_id":
+            associationId = reader.nextString();
+            return true;
+        case "badge_counts":
+            badgeCounts = BadgeCounts.read(reader, getCreatingApi());
+            return true;
+        case "user_id":
+            id = reader.nextInt();
+            return true;
+        case "reputation":
+            reputation = reader.nextInt();
+            return true;
+        case "email_hash":
+            emailHash = reader.nextString();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
+
     /**
      * Convenience method for turning a JSONArray of JSONOBjects representing Users into a list of Users.
      * 
@@ -634,5 +725,47 @@ public class User extends StackObjBase {
 	        silver = jBP.tryGetInt("silver", 0);
 	        gold = jBP.tryGetInt("gold", 0);
         }
+
+		/**
+		 * Creates an object from counts already read.
+		 */
+		private BadgeCounts(final int bronze, final int silver, final int gold, final StackWrapper originator) {
+		    super(originator);
+		    this.bronze = bronze;
+		    this.silver = silver;
+		    this.gold = gold;
+		}
+
+		/**
+		 * Reads badge counts from the object at the reader's position, for the EntityCodec.
+		 * @param reader the reader, positioned at the start of an object
+		 * @param originator the StackExchange instance that created this User.
+		 * @return the badge counts
+		 * @throws IOException if the reader's stream can't be read
+		 * @throws JSONException if a count isn't a number
+		 */
+		static BadgeCounts read(final JsonReader reader, final StackWrapper originator)
+		        throws IOException, JSONException {
+		    int bronze = 0;
+		    int silver = 0;
+		    int gold = 0;
+		    reader.beginObject();
+		    while (reader.hasNext()) {
+		        String name = reader.nextName();
+		        if (reader.peek() == JsonReader.Token.NULL) {
+		            reader.nextNull();
+		        } else if (name.equals("bronze")) {
+		            bronze = reader.nextInt();
+		        } else if (name.equals("silver")) {
+		            silver = reader.nextInt();
+		        } else if (name.equals("gold")) {
+		            gold = reader.nextInt();
+		        } else {
+		            reader.skipValue();
+		        }
+		    }
+		    reader.endObject();
+		    return new BadgeCounts(bronze, silver, gold, originator);
+		}
     }
 }
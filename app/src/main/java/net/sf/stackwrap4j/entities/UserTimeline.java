@@ -24,6 +24,7 @@
 
 package net.sf.stackwrap4j.entities;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import net.sf.stackwrap4j.StackWrapper;
 import net.sf.stackwrap4j.json.JSONArray;
 import net.sf.stackwrap4j.json.JSONException;
 import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
 import net.sf.stackwrap4j.json.PoliteJSONObject;
 
 
@@ -60,6 +62,14 @@ public class UserTimeline extends Timeline {
 	
 	/** Details about the timeline. */
 	private String detail;
+
+    /** Binds user timelines straight from a response. */
+    static final EntityCodec<UserTimeline> CODEC = new EntityCodec<UserTimeline>("user_timelines") {
+        @Override
+        UserTimeline create(final StackWrapper originator) {
+            return new UserTimeline(originator);
+        }
+    };
 	
 	/**
      * Creates a user timeline from a JSON string.
@@ -97,6 +107,44 @@ public class UserTimeline extends Timeline {
 		description = jUTp.tryGetString("description");
 		detail = jUTp.tryGetString("detail");
 	}
+
+    /**
+     * Creates an empty UserTimeline, for the EntityCodec to fill in.
+     * @param originator the StackExchange instance that created this.
+     */
+    private UserTimeline(final StackWrapper originator) {
+        super(originator);
+        userId = -1;
+    }
+
+    @Override
+    boolean readField(final String name, final JsonReader reader) throws IOException, JSONException {
+        switch (name) {
+        case "user_id":
+            userId = reader.nextInt();
+            return true;
+        case "timeline_type":
+            String type = reader.nextString();
+            if (!type.equals("")) {
+                timelineType = Type.valueOf(type.toUpperCase());
+            }
+            return true;
+        case "post_type":
+            String postTypeName = reader.nextString();
+            if (!postTypeName.equals("")) {
+                postType = PostType.valueOf(postTypeName.toUpperCase());
+            }
+            return true;
+        case "description":
+            description = reader.nextString();
+            return true;
+        case "detail":
+            detail = reader.nextString();
+            return true;
+        default:
+            return super.readField(name, reader);
+        }
+    }
 	
 	
 	
@@ -211,6 +259,18 @@ public class UserTimeline extends Timeline {
      */
     public static List<UserTimeline> fromJSONString(final String json, final StackWrapper originator) 
             throws JSONException {
-        return fromJSONArray(new JSONObject(json).getJSONArray("user_timelines"), originator);
+        return CODEC.readPage(json, originator);
+    }
+
+    /**
+     * Extracts a list of UserTimelines from a parsed response.
+     * @param json the response object containing user_timelines.
+     * @param originator the StackExchange instance that created this
+     * @return a List of UserTimelines.
+     * @throws JSONException if the response does not hold a list of user_timelines.
+     */
+    public static List<UserTimeline> fromJSONObject(final JSONObject json, final StackWrapper originator)
+            throws JSONException {
+        return fromJSONArray(json.getJSONArray("user_timelines"), originator);
     }
 }
@@ -0,0 +1,325 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import net.sf.stackwrap4j.json.JSONObject;
+
+/**
+ * Tunes a shared RateLimiter from the throttle fields the API returns with every response.
+ *
+ * When a response carries backoff, no request is made to the same method until that many seconds
+ * have passed. The quota_remaining and quota_max fields set the limiter's rate: while more than
+ * the headroom fraction of the daily quota is left the limiter runs at the rate it was configured
+ * with (see RateLimiter.setDefaults), below that the rate falls linearly towards the minimum rate
+ * as the quota runs out. The throttle only ever slows a limiter down.
+ *
+ * Methods are told apart by their route with the id segments replaced, so "questions/1;2/answers"
+ * and "questions/3/answers" share a backoff window.
+ *
+ * Each key has its own quota, so the keys of a KeyPool, which share one limiter, each get their
+ * own controller (see forKey). All of them tune the shared limiter, which runs at the rate for the
+ * key of the latest response: with a pool, normally the key with the most quota left.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class AdaptiveThrottle {
+
+	/**
+	 * The fastest rate used while the quota has headroom, if the limiter is configured faster. The
+	 * API drops requests from an IP making more than 30 requests a second, so this leaves room for
+	 * the limiter's burst.
+	 */
+	public static final double DEFAULT_MAX_RATE = 10.0;
+
+	/**
+	 * The rate used once the quota is exhausted, one request every ten seconds.
+	 */
+	public static final double DEFAULT_MIN_RATE = 0.1;
+
+	/**
+	 * The fraction of the quota below which the rate starts to fall.
+	 */
+	public static final double DEFAULT_HEADROOM = 0.5;
+
+	private static final ConcurrentMap<Owner, AdaptiveThrottle> throttles =
+	        new ConcurrentHashMap<Owner, AdaptiveThrottle>();
+	private static volatile boolean enabled = true;
+	private static double maxRate = DEFAULT_MAX_RATE;
+	private static double minRate = DEFAULT_MIN_RATE;
+	private static double headroom = DEFAULT_HEADROOM;
+
+	private final RateLimiter limiter;
+
+	/* Guarded by this. */
+	private final Map<String, Long> backoffs = new HashMap<String, Long>();
+	private int quotaRemaining = -1;
+	private int quotaMax = -1;
+
+	private AdaptiveThrottle(RateLimiter limiter) {
+		this.limiter = limiter;
+	}
+
+	/**
+	 * Gets the controller for a shared limiter.
+	 *
+	 * @param limiter
+	 *            the limiter to tune
+	 * @return the controller feeding that limiter
+	 */
+	public static AdaptiveThrottle forLimiter(RateLimiter limiter) {
+		return forKey(limiter, null);
+	}
+
+	/**
+	 * Gets the controller for one key of the several sharing a limiter.
+	 *
+	 * @param limiter
+	 *            the limiter to tune
+	 * @param apiKey
+	 *            the key whose quota the controller tracks, or null for the limiter's own controller
+	 * @return the controller feeding that limiter for that key
+	 */
+	static AdaptiveThrottle forKey(RateLimiter limiter, String apiKey) {
+		Owner owner = new Owner(limiter, apiKey);
+		AdaptiveThrottle throttle = throttles.get(owner);
+		if (throttle == null) {
+			AdaptiveThrottle created = new AdaptiveThrottle(limiter);
+			throttle = throttles.putIfAbsent(owner, created);
+			if (throttle == null)
+				throttle = created;
+		}
+		return throttle;
+	}
+
+	/**
+	 * Turns rate adjustment from the quota fields on or off. Backoff windows are always honored,
+	 * since ignoring them gets the application banned.
+	 *
+	 * @param enabled
+	 *            whether the quota fields adjust the limiter's rate
+	 */
+	public static void setEnabled(boolean enabled) {
+		AdaptiveThrottle.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets the range the rate is adjusted within.
+	 *
+	 * @param minPermitsPerSecond
+	 *            the rate once the quota is exhausted
+	 * @param maxPermitsPerSecond
+	 *            the rate while the quota has headroom, if the limiter is configured faster
+	 * @param headroomFraction
+	 *            the fraction of the quota below which the rate starts to fall, between 0 and 1
+	 */
+	public static void setRange(double minPermitsPerSecond, double maxPermitsPerSecond, double headroomFraction) {
+		if (!(minPermitsPerSecond > 0) || maxPermitsPerSecond < minPermitsPerSecond)
+			throw new IllegalArgumentException("The rates must be positive and the maximum at least the minimum.");
+		if (!(headroomFraction > 0) || headroomFraction > 1)
+			throw new IllegalArgumentException("The headroom must be between 0 and 1.");
+		synchronized (throttles) {
+			minRate = minPermitsPerSecond;
+			maxRate = maxPermitsPerSecond;
+			headroom = headroomFraction;
+		}
+	}
+
+	/**
+	 * Gets the quota left as of the last response, or -1 if no response has reported it yet.
+	 * @return the remaining quota
+	 */
+	public synchronized int getQuotaRemaining() {
+		return quotaRemaining;
+	}
+
+	/**
+	 * Gets the daily quota as of the last response, or -1 if no response has reported it yet.
+	 * @return the daily quota
+	 */
+	public synchronized int getQuotaMax() {
+		return quotaMax;
+	}
+
+	/**
+	 * Gets how long requests to a method must still wait because of a backoff.
+	 *
+	 * @param route
+	 *            the route of the method (Example: "questions/1234/answers")
+	 * @return the remaining backoff, in milliseconds, or 0 if there is none
+	 */
+	public long getBackoffMillis(String route) {
+		long wait = backoffNanos(methodOf(route));
+		return wait <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(wait);
+	}
+
+	/**
+	 * Parks the calling thread until the method's backoff window, if any, has passed.
+	 *
+	 * @param route
+	 *            the route about to be requested
+	 * @return the time spent waiting, in nanoseconds
+	 * @throws InterruptedIOException
+	 *             if the thread is interrupted while waiting
+	 */
+	long awaitBackoff(String route) throws InterruptedIOException {
+		String method = methodOf(route);
+		long wait = backoffNanos(method);
+		if (wait <= 0)
+			return 0;
+		long deadline = System.nanoTime() + wait;
+		for (;;) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				return wait;
+			LockSupport.parkNanos(this, remaining);
+			if (Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while backing off from " + method);
+			}
+		}
+	}
+
+	/**
+	 * Reads the throttle fields from a parsed response.
+	 */
+	void observe(String route, JSONObject response) {
+		observe(route, response.optInt("backoff", 0), response.optInt("quota_remaining", -1),
+		        response.optInt("quota_max", -1));
+	}
+
+	/**
+	 * Reads the throttle fields from a response's text without parsing the rest of it. The fields
+	 * belong to the wrapper object and come after the items, so the text is searched from the end.
+	 */
+	void observe(String route, String response) {
+		observe(route, findInt(response, "\"backoff\""), findInt(response, "\"quota_remaining\""),
+		        findInt(response, "\"quota_max\""));
+	}
+
+	private void observe(String route, int backoff, int remaining, int max) {
+		long now = System.nanoTime();
+		double rate = -1;
+		synchronized (this) {
+			if (backoff > 0)
+				backoffs.put(methodOf(route), now + TimeUnit.SECONDS.toNanos(backoff));
+			for (Iterator<Long> it = backoffs.values().iterator(); it.hasNext();) {
+				if (it.next() - now <= 0)
+					it.remove();
+			}
+			if (remaining < 0 || max <= 0)
+				return;
+			quotaRemaining = remaining;
+			quotaMax = max;
+			if (enabled)
+				rate = rateFor(remaining, max, limiter.getConfiguredRate());
+		}
+		if (rate > 0)
+			limiter.throttle(rate);
+	}
+
+	private static double rateFor(int remaining, int max, double configuredRate) {
+		synchronized (throttles) {
+			double top = Math.min(maxRate, configuredRate);
+			double bottom = Math.min(minRate, top);
+			if (remaining <= 0)
+				return bottom;
+			double fraction = (double) remaining / max;
+			if (fraction >= headroom)
+				return top;
+			return bottom + (top - bottom) * fraction / headroom;
+		}
+	}
+
+	private synchronized long backoffNanos(String method) {
+		Long until = backoffs.get(method);
+		return until == null ? 0 : until.longValue() - System.nanoTime();
+	}
+
+	/*
+	 * Replaces the id segments of a route, so every request to one method shares its backoff.
+	 */
+	static String methodOf(String route) {
+		String[] segments = HttpCache.normalizeRoute(route).split("/");
+		StringBuilder sb = new StringBuilder(route.length());
+		for (int i = 0; i < segments.length; i++) {
+			if (i > 0)
+				sb.append('/');
+			sb.append(isIds(segments[i]) ? "{ids}" : segments[i]);
+		}
+		return sb.toString();
+	}
+
+	private static boolean isIds(String segment) {
+		if (segment.length() == 0)
+			return false;
+		for (int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			if ((c < '0' || c > '9') && c != ';')
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Finds the integer value of the last occurrence of a quoted key, or -1.
+	 */
+	private static int findInt(String json, String quotedKey) {
+		int at = json.lastIndexOf(quotedKey);
+		if (at < 0)
+			return -1;
+		int i = at + quotedKey.length();
+		while (i < json.length() && (json.charAt(i) == ':' || Character.isWhitespace(json.charAt(i)))) {
+			i++;
+		}
+		int value = 0;
+		int start = i;
+		while (i < json.length() && json.charAt(i) >= '0' && json.charAt(i) <= '9') {
+			value = value * 10 + (json.charAt(i) - '0');
+			i++;
+		}
+		return i == start ? -1 : value;
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptiveThrottle[" + limiter + "]";
+	}
+
+	/*
+	 * A limiter and the key a controller tracks the quota of.
+	 */
+	private static final class Owner {
+		final RateLimiter limiter;
+		final String apiKey;
+
+		Owner(RateLimiter limiter, String apiKey) {
+			this.limiter = limiter;
+			this.apiKey = apiKey;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Owner))
+				return false;
+			Owner other = (Owner) o;
+			return limiter == other.limiter && (apiKey == null ? other.apiKey == null : apiKey.equals(other.apiKey));
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(limiter) * 31 + (apiKey == null ? 0 : apiKey.hashCode());
+		}
+	}
+}
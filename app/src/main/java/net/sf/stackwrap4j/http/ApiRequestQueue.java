@@ -3,80 +3,520 @@ package net.sf.stackwrap4j.http;
 import net.sf.stackwrap4j.http.HttpClient.ApiRequest;
 
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class ApiRequestQueue extends Thread {
+/**
+ * Dispatches API requests on a fixed set of worker threads.
+ *
+ * Requests wait in one bounded lane per Priority; callers offering to a full lane block until a
+ * slot frees up. Workers serve the lanes by smooth weighted round robin, so while every lane is
+ * busy interactive requests get six dispatches for every three normal and one background request.
+ * A request that has waited longer than the maximum wait is dispatched next regardless of its lane,
+ * so no lane starves.
+ *
+ * Workers block on the lanes instead of polling them, and take a permit from the request's shared
+ * RateLimiter before making it, so the rate holds no matter how many workers or lanes are busy. A
+ * worker that had to wait for its permit hands it to a more urgent request that arrived meanwhile.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class ApiRequestQueue {
 
-	private static final long WAIT_TIME = 170;
-	private static final long SLEEP_TIME = 1700;
-	private Queue<Future> requests;
+	public static final int DEFAULT_WORKERS = 1;
+	public static final int DEFAULT_CAPACITY = 256;
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 5000;
 
+	private final Lane[] lanes;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final int capacity;
+	private final Thread[] workers;
+	private volatile long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_WAIT_MILLIS);
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Creates a queue with a single worker and the default capacity.
+	 */
 	public ApiRequestQueue() {
-		requests = new LinkedList<Future>();
-		start();
+		this(DEFAULT_WORKERS, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a queue and starts its workers.
+	 *
+	 * @param workerCount
+	 *            the number of threads making requests
+	 * @param capacity
+	 *            the maximum number of requests waiting to be made in each lane
+	 */
+	public ApiRequestQueue(int workerCount, int capacity) {
+		if (workerCount < 1)
+			throw new IllegalArgumentException("There must be at least one worker.");
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity must be positive.");
+		this.capacity = capacity;
+		Priority[] priorities = Priority.values();
+		lanes = new Lane[priorities.length];
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new Lane(priorities[i]);
+		}
+		workers = new Thread[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = new Thread(new Worker(), "ApiRequestQueue-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Sets how long a request may wait before it is dispatched ahead of busier lanes.
+	 *
+	 * @param maxWait
+	 *            the maximum wait
+	 * @param unit
+	 *            the unit of the maximum wait
+	 */
+	public void setMaxWait(long maxWait, TimeUnit unit) {
+		if (maxWait <= 0)
+			throw new IllegalArgumentException("The maximum wait must be positive.");
+		maxWaitNanos = unit.toNanos(maxWait);
+	}
+
+	/**
+	 * Queues a request at normal priority. Blocks while the lane is full.
+	 *
+	 * @param req
+	 *            the request to make
+	 * @return a Future holding the response once the request has been made
+	 * @throws IOException
+	 *             if the queue was shut down or the caller was interrupted while waiting for space
+	 */
+	public Future<String> offer(ApiRequest req) throws IOException {
+		return offer(req, Priority.NORMAL);
+	}
+
+	/**
+	 * Queues a request. Blocks while its lane is full.
+	 *
+	 * @param req
+	 *            the request to make
+	 * @param priority
+	 *            the lane to queue the request in
+	 * @return a Future holding the response once the request has been made
+	 * @throws IOException
+	 *             if the queue was shut down or the caller was interrupted while waiting for space
+	 */
+	public Future<String> offer(ApiRequest req, Priority priority) throws IOException {
+		return offer(req, HttpClient.STRING_BODY, priority);
 	}
 
-	public Future offer(ApiRequest req) {
-		Future fut = new Future(req);
-		requests.offer(fut);
+	<T> Future<T> offer(final ApiRequest req, final HttpClient.BodyReader<T> reader, Priority priority)
+	        throws IOException {
+		return enqueue(new Future<T>(req, req.getLimiter(), new Callable<T>() {
+			public T call() throws IOException {
+				return req.makeRequest(reader);
+			}
+		}), priority);
+	}
+
+	/**
+	 * Queues an arbitrary task at normal priority. Blocks while the lane is full.
+	 *
+	 * @param task
+	 *            the work to do
+	 * @param limiter
+	 *            the limiter to take a permit from before running the task, or null to run it unthrottled
+	 * @return a Future holding the result of the task
+	 * @throws IOException
+	 *             if the queue was shut down or the caller was interrupted while waiting for space
+	 */
+	public <T> Future<T> offer(Callable<T> task, RateLimiter limiter) throws IOException {
+		return offer(task, limiter, Priority.NORMAL);
+	}
+
+	/**
+	 * Queues an arbitrary task. Blocks while its lane is full.
+	 *
+	 * @param task
+	 *            the work to do
+	 * @param limiter
+	 *            the limiter to take a permit from before running the task, or null to run it unthrottled
+	 * @param priority
+	 *            the lane to queue the task in
+	 * @return a Future holding the result of the task
+	 * @throws IOException
+	 *             if the queue was shut down or the caller was interrupted while waiting for space
+	 */
+	public <T> Future<T> offer(Callable<T> task, RateLimiter limiter, Priority priority) throws IOException {
+		return enqueue(new Future<T>(null, limiter, task), priority);
+	}
+
+	private <T> Future<T> enqueue(Future<T> fut, Priority priority) throws IOException {
+		Lane lane = lanes[priority.ordinal()];
+		fut.priority = priority;
+		try {
+			lock.lockInterruptibly();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for space in the request queue.");
+		}
+		try {
+			while (!shutdown && lane.requests.size() >= capacity) {
+				lane.notFull.await();
+			}
+			if (shutdown)
+				throw new IOException("The request queue has been shut down.");
+			fut.enqueued = System.nanoTime();
+			lane.requests.add(fut);
+			notEmpty.signal();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for space in the request queue.");
+		} finally {
+			lock.unlock();
+		}
 		return fut;
 	}
 
-	public void run() {
-		while (true) {
-			if (requests.isEmpty()) {
-				try {
-					Thread.sleep(SLEEP_TIME);
-				} catch (InterruptedException e) {
+	/*
+	 * Removes the next request to dispatch, blocking until there is one.
+	 */
+	private Future<?> take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			for (;;) {
+				Lane lane = next();
+				if (lane != null) {
+					lane.notFull.signal();
+					return lane.requests.poll();
 				}
+				notEmpty.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * Picks the lane to dispatch from: the one holding a request that has waited too long, if any,
+	 * otherwise the next lane in smooth weighted round robin order. Must hold the lock.
+	 */
+	private Lane next() {
+		long now = System.nanoTime();
+		Lane overdue = null;
+		for (Lane lane : lanes) {
+			Future<?> head = lane.requests.peek();
+			if (head != null && now - head.enqueued > maxWaitNanos
+			        && (overdue == null || head.enqueued - overdue.requests.peek().enqueued < 0))
+				overdue = lane;
+		}
+		if (overdue != null)
+			return overdue;
+
+		Lane best = null;
+		int total = 0;
+		for (Lane lane : lanes) {
+			if (lane.requests.isEmpty())
 				continue;
+			lane.current += lane.weight;
+			total += lane.weight;
+			if (best == null || lane.current > best.current)
+				best = lane;
+		}
+		if (best != null)
+			best.current -= total;
+		return best;
+	}
+
+	/*
+	 * Removes a request more urgent than the given one that uses the same limiter and was queued
+	 * after the given time, or returns null. Requests that were already waiting were passed over
+	 * fairly and keep their place.
+	 */
+	private Future<?> pollMoreUrgent(Future<?> fut, long since) {
+		lock.lock();
+		try {
+			for (int i = 0; i < fut.priority.ordinal(); i++) {
+				Future<?> head = lanes[i].requests.peek();
+				if (head != null && head.limiter == fut.limiter && head.enqueued - since > 0) {
+					lanes[i].notFull.signal();
+					return lanes[i].requests.poll();
+				}
 			}
-			Future fut = requests.poll();
-			try {
-				ApiRequest req = fut.getReq();
-				String result = req.makeRequest();
-				fut.set(result);
-			} catch (IOException e) {
-				fut.setException(e);
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * Puts a request back at the front of its lane.
+	 */
+	private void requeue(Future<?> fut) {
+		lock.lock();
+		try {
+			lanes[fut.priority.ordinal()].requests.addFirst(fut);
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of requests waiting for a worker.
+	 * @return the number of queued requests
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			int size = 0;
+			for (Lane lane : lanes) {
+				size += lane.requests.size();
 			}
-			try {
-				Thread.sleep(WAIT_TIME);
-			} catch (InterruptedException e) {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of requests waiting for a worker in one lane.
+	 * @param priority the lane
+	 * @return the number of queued requests in the lane
+	 */
+	public int size(Priority priority) {
+		lock.lock();
+		try {
+			return lanes[priority.ordinal()].requests.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of worker threads.
+	 * @return the worker count
+	 */
+	public int getWorkerCount() {
+		return workers.length;
+	}
+
+	/**
+	 * Stops the workers. Requests still waiting in the queue are cancelled.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		for (Thread t : workers) {
+			t.interrupt();
+		}
+		lock.lock();
+		try {
+			for (Lane lane : lanes) {
+				Future<?> fut;
+				while ((fut = lane.requests.poll()) != null) {
+					fut.cancel(false);
+				}
+				lane.notFull.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private class Lane {
+		final ArrayDeque<Future<?>> requests = new ArrayDeque<Future<?>>();
+		final Condition notFull = lock.newCondition();
+		final int weight;
+		int current = 0;
+
+		Lane(Priority priority) {
+			this.weight = priority.getWeight();
+		}
+	}
+
+	/*
+	 * Workers are interrupted by shutdown, and by Future.await(timeout) cancelling the request they
+	 * are making. The second kind must not leak into the next request, so the flag is cleared after
+	 * every request and an interrupt only cancels a request once the queue is shut down.
+	 */
+	private class Worker implements Runnable {
+		public void run() {
+			while (!shutdown) {
+				Future<?> fut;
+				try {
+					fut = take();
+				} catch (InterruptedException e) {
+					continue;
+				}
+				if (fut.isCancelled())
+					continue;
+				try {
+					long waitStart = System.nanoTime();
+					long waited = fut.limiter != null ? fut.limiter.acquire() : 0;
+					if (waited > 0) {
+						// something more urgent may have arrived while we waited for the permit
+						Future<?> urgent = pollMoreUrgent(fut, waitStart);
+						if (urgent != null) {
+							requeue(fut);
+							fut = urgent;
+						}
+					}
+					if (fut.req != null)
+						fut.req.addThrottleWait(waited);
+				} catch (InterruptedIOException e) {
+					Thread.interrupted();
+					if (shutdown)
+						fut.cancel(false);
+					else
+						requeue(fut);
+					continue;
+				}
+				fut.run();
+				// a cancel(true) of the request just made may have interrupted this thread
+				Thread.interrupted();
 			}
 		}
 	}
 
-	public static class Future {
+	/**
+	 * The pending result of a queued request.
+	 *
+	 * Waiting threads are parked until the result is available, so waiting costs no CPU.
+	 */
+	public static class Future<T> extends FutureTask<T> {
 		private final ApiRequest req;
-		private IOException e;
-		private String reqResult;
+		private final RateLimiter limiter;
+		private Priority priority = Priority.NORMAL;
+		private long enqueued;
 
-		public Future(ApiRequest req) {
+		Future(ApiRequest req, RateLimiter limiter, Callable<T> task) {
+			super(task);
 			this.req = req;
+			this.limiter = limiter;
+		}
+
+		/**
+		 * Waits for the request to be made and returns its result.
+		 *
+		 * @return the result of the request
+		 * @throws IOException
+		 *             if the request failed, was cancelled or the caller was interrupted
+		 */
+		public T await() throws IOException {
+			try {
+				return get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a response.");
+			} catch (ExecutionException e) {
+				throw unwrap(e);
+			} catch (CancellationException e) {
+				throw new InterruptedIOException("The request was cancelled.");
+			}
 		}
 
-		public String get() {
-			while (reqResult == null && e == null) {
+		/**
+		 * Waits at most the given time for the request to be made and returns its result.
+		 * The request is cancelled if it has not completed in time.
+		 *
+		 * @param timeout
+		 *            the maximum time to wait
+		 * @param unit
+		 *            the unit of the timeout
+		 * @return the result of the request
+		 * @throws SocketTimeoutException
+		 *             if the result was not available in time
+		 * @throws IOException
+		 *             if the request failed, was cancelled or the caller was interrupted
+		 */
+		public T await(long timeout, TimeUnit unit) throws IOException {
+			try {
+				return get(timeout, unit);
+			} catch (TimeoutException e) {
+				cancel(true);
+				throw new SocketTimeoutException("Timed out waiting for a response.");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a response.");
+			} catch (ExecutionException e) {
+				throw unwrap(e);
+			} catch (CancellationException e) {
+				throw new InterruptedIOException("The request was cancelled.");
+			}
+		}
 
+		/**
+		 * Waits for the request to be made until the deadline passes. Unlike await(timeout), the
+		 * request is not cancelled when the deadline passes, since other callers may be waiting for
+		 * it too.
+		 *
+		 * @param deadline
+		 *            the caller's deadline, or null to wait as long as the request takes
+		 * @return the result of the request
+		 * @throws Deadline.Exceeded
+		 *             if the deadline passed first
+		 * @throws IOException
+		 *             if the request failed, was cancelled or the caller was interrupted
+		 */
+		T join(Deadline deadline) throws IOException {
+			if (deadline == null)
+				return await();
+			try {
+				return get(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				throw new Deadline.Exceeded("The deadline passed while waiting for a shared request.");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a response.");
+			} catch (ExecutionException e) {
+				throw unwrap(e);
+			} catch (CancellationException e) {
+				throw new InterruptedIOException("The request was cancelled.");
 			}
-			return reqResult;
 		}
 
 		public ApiRequest getReq() {
 			return req;
 		}
 
-		public IOException getException(){
-			return e;
-		}
-		
-		protected void set(String result) {
-			reqResult = result;
+		/**
+		 * Gets the exception thrown by the request, if any. Does not wait for the request.
+		 * @return the failure, or null if the request succeeded or has not completed
+		 */
+		public IOException getException() {
+			if (!isDone() || isCancelled())
+				return null;
+			try {
+				get();
+				return null;
+			} catch (ExecutionException e) {
+				return unwrap(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
 		}
-		
-		protected void setException(IOException e){
-			this.e = e;
+
+		private static IOException unwrap(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				return (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			return new IOException(cause);
 		}
 	}
 }
@@ -0,0 +1,425 @@
+package net.sf.stackwrap4j.http;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling an endpoint that is failing, so callers fail fast instead of tying up threads and
+ * quota on requests that are unlikely to succeed.
+ *
+ * Each endpoint (a route with its id segments replaced, as in RequestMetrics) has its own breaker.
+ * While closed, the breaker counts the outcomes of requests over a rolling window. Once the window
+ * holds enough requests and the share of failures or slow requests passes its threshold, the
+ * breaker opens: requests to the endpoint are answered from the cache if it has any response for
+ * them, however old, and otherwise fail with a CircuitOpenException without being made. After the
+ * open duration the breaker lets a few probe requests through (half-open); if they all succeed it
+ * closes again, and if any fails it opens for another open duration.
+ *
+ * Failures are requests that got no response, timed out, or got a 429 or 5xx response. Requests the
+ * API rejected as invalid (other 4xx responses) count as successes, since the endpoint is working.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public final class CircuitBreaker {
+
+	/**
+	 * The states of a breaker.
+	 */
+	public enum State {
+		/** Requests are made and their outcomes counted. */
+		CLOSED,
+		/** Requests are answered from the cache or fail without being made. */
+		OPEN,
+		/** A few probe requests are made to see whether the endpoint has recovered. */
+		HALF_OPEN
+	}
+
+	/**
+	 * The default share of failed requests in the window that opens the breaker.
+	 */
+	public static final double DEFAULT_FAILURE_RATE = 0.5;
+
+	/**
+	 * The default time after which a successful request counts as slow.
+	 */
+	public static final long DEFAULT_SLOW_CALL_MILLIS = 10000;
+
+	/**
+	 * The default share of slow requests in the window that opens the breaker.
+	 */
+	public static final double DEFAULT_SLOW_CALL_RATE = 0.8;
+
+	/**
+	 * The default number of requests the window must hold before the breaker can open.
+	 */
+	public static final int DEFAULT_MIN_REQUESTS = 20;
+
+	/**
+	 * The default length of the rolling window.
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = 30000;
+
+	/**
+	 * The default time a breaker stays open before probing the endpoint.
+	 */
+	public static final long DEFAULT_OPEN_MILLIS = 30000;
+
+	/**
+	 * The default number of probe requests made while half-open.
+	 */
+	public static final int DEFAULT_PROBES = 3;
+
+	private static final int BUCKETS = 10;
+
+	private static final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+	private static volatile boolean enabled = true;
+	private static volatile Settings settings = new Settings(DEFAULT_FAILURE_RATE, TimeUnit.MILLISECONDS
+	        .toNanos(DEFAULT_SLOW_CALL_MILLIS), DEFAULT_SLOW_CALL_RATE, DEFAULT_MIN_REQUESTS, TimeUnit.MILLISECONDS
+	        .toNanos(DEFAULT_WINDOW_MILLIS), TimeUnit.MILLISECONDS.toNanos(DEFAULT_OPEN_MILLIS), DEFAULT_PROBES);
+
+	private final String endpoint;
+
+	/* Guarded by this. */
+	private State state = State.CLOSED;
+	private long stateSince = System.nanoTime();
+	private int probesLeft = 0;
+	private int probeSuccesses = 0;
+	private final long[] bucketEpoch = new long[BUCKETS];
+	private final int[] bucketRequests = new int[BUCKETS];
+	private final int[] bucketFailures = new int[BUCKETS];
+	private final int[] bucketSlow = new int[BUCKETS];
+	private long opened = 0;
+	private long halfOpened = 0;
+	private long closed = 0;
+	private long rejected = 0;
+
+	private CircuitBreaker(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * Gets the breaker of an endpoint, creating it on first use.
+	 */
+	static CircuitBreaker forEndpoint(String endpoint) {
+		CircuitBreaker breaker = breakers.get(endpoint);
+		if (breaker == null) {
+			CircuitBreaker created = new CircuitBreaker(endpoint);
+			breaker = breakers.putIfAbsent(endpoint, created);
+			if (breaker == null)
+				breaker = created;
+		}
+		return breaker;
+	}
+
+	/**
+	 * Turns the breakers on or off. While off, every request is made and breakers stay closed.
+	 *
+	 * @param enabled
+	 *            whether breakers open on failing endpoints
+	 */
+	public static void setEnabled(boolean enabled) {
+		CircuitBreaker.enabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets when breakers open.
+	 *
+	 * @param failureRate
+	 *            the share of failed requests in the window that opens a breaker, between 0 and 1
+	 * @param slowCall
+	 *            the time after which a request counts as slow
+	 * @param slowCallRate
+	 *            the share of slow requests in the window that opens a breaker, between 0 and 1
+	 * @param minRequests
+	 *            the number of requests the window must hold before a breaker can open
+	 * @param window
+	 *            the length of the rolling window
+	 * @param unit
+	 *            the unit of slowCall and window
+	 */
+	public static void setThresholds(double failureRate, long slowCall, double slowCallRate, int minRequests,
+	        long window, TimeUnit unit) {
+		if (!(failureRate > 0) || failureRate > 1 || !(slowCallRate > 0) || slowCallRate > 1)
+			throw new IllegalArgumentException("The rates must be between 0 and 1.");
+		if (slowCall <= 0 || window <= 0 || minRequests < 1)
+			throw new IllegalArgumentException("The slow call time, window and minimum requests must be positive.");
+		Settings s = settings;
+		settings = new Settings(failureRate, unit.toNanos(slowCall), slowCallRate, minRequests, unit.toNanos(window),
+		        s.openNanos, s.probes);
+	}
+
+	/**
+	 * Sets how long breakers stay open and how many probes they make before closing.
+	 *
+	 * @param openDuration
+	 *            the time a breaker stays open
+	 * @param unit
+	 *            the unit of openDuration
+	 * @param probes
+	 *            the number of successful probe requests that close a half-open breaker
+	 */
+	public static void setRecovery(long openDuration, TimeUnit unit, int probes) {
+		if (openDuration <= 0 || probes < 1)
+			throw new IllegalArgumentException("The open duration and probes must be positive.");
+		Settings s = settings;
+		settings = new Settings(s.failureRate, s.slowCallNanos, s.slowCallRate, s.minRequests, s.windowNanos,
+		        unit.toNanos(openDuration), probes);
+	}
+
+	/**
+	 * Copies the state and transition counts of every breaker.
+	 * @return the breakers, sorted by endpoint
+	 */
+	public static Map<String, Snapshot> snapshot() {
+		Map<String, Snapshot> snapshot = new TreeMap<String, Snapshot>();
+		for (Map.Entry<String, CircuitBreaker> e : breakers.entrySet()) {
+			snapshot.put(e.getKey(), e.getValue().snapshotOne());
+		}
+		return Collections.unmodifiableMap(snapshot);
+	}
+
+	/**
+	 * Closes and forgets every breaker.
+	 */
+	public static void reset() {
+		breakers.clear();
+	}
+
+	/**
+	 * Gets the state of an endpoint's breaker.
+	 *
+	 * @param route
+	 *            a route of the endpoint (Example: "questions/1234/answers")
+	 * @return the breaker's state, CLOSED if no request has been made to the endpoint
+	 */
+	public static State getState(String route) {
+		CircuitBreaker breaker = breakers.get(AdaptiveThrottle.methodOf(route));
+		return breaker == null ? State.CLOSED : breaker.currentState();
+	}
+
+	String getEndpoint() {
+		return endpoint;
+	}
+
+	private synchronized State currentState() {
+		return state;
+	}
+
+	/**
+	 * Tells whether a request to the endpoint may be made now. Counts the request as rejected if not.
+	 */
+	synchronized boolean allow() {
+		if (!enabled)
+			return true;
+		long now = System.nanoTime();
+		Settings s = settings;
+		switch (state) {
+		case OPEN:
+			if (now - stateSince < s.openNanos)
+				break;
+			transition(State.HALF_OPEN, now);
+			probeSuccesses = 0;
+			// this request is the first probe
+			probesLeft = s.probes - 1;
+			return true;
+		case HALF_OPEN:
+			// probes whose outcome never arrived are handed out again after another open duration
+			if (probesLeft == 0 && now - stateSince >= s.openNanos) {
+				stateSince = now;
+				probesLeft = s.probes - probeSuccesses;
+			}
+			if (probesLeft > 0) {
+				probesLeft--;
+				return true;
+			}
+			break;
+		default:
+			return true;
+		}
+		rejected++;
+		return false;
+	}
+
+	/**
+	 * Records the outcome of a request that was made.
+	 *
+	 * @param failed
+	 *            whether the request failed
+	 * @param nanos
+	 *            how long the request took
+	 */
+	synchronized void record(boolean failed, long nanos) {
+		if (!enabled)
+			return;
+		long now = System.nanoTime();
+		Settings s = settings;
+		boolean slow = nanos >= s.slowCallNanos;
+		if (state == State.HALF_OPEN) {
+			if (failed || slow) {
+				open(now);
+			} else if (++probeSuccesses >= s.probes) {
+				transition(State.CLOSED, now);
+				clearWindow();
+			}
+			return;
+		}
+		if (state == State.OPEN)
+			return;
+		long bucketNanos = Math.max(1, s.windowNanos / BUCKETS);
+		long epoch = now / bucketNanos;
+		int i = (int) (epoch % BUCKETS);
+		if (bucketEpoch[i] != epoch) {
+			bucketEpoch[i] = epoch;
+			bucketRequests[i] = 0;
+			bucketFailures[i] = 0;
+			bucketSlow[i] = 0;
+		}
+		bucketRequests[i]++;
+		if (failed)
+			bucketFailures[i]++;
+		else if (slow)
+			bucketSlow[i]++;
+
+		int requests = 0;
+		int failures = 0;
+		int slowCalls = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			if (epoch - bucketEpoch[b] < BUCKETS) {
+				requests += bucketRequests[b];
+				failures += bucketFailures[b];
+				slowCalls += bucketSlow[b];
+			}
+		}
+		if (requests >= s.minRequests
+		        && (failures >= s.failureRate * requests || slowCalls >= s.slowCallRate * requests))
+			open(now);
+	}
+
+	private void open(long now) {
+		transition(State.OPEN, now);
+		probesLeft = 0;
+	}
+
+	private void transition(State to, long now) {
+		state = to;
+		stateSince = now;
+		switch (to) {
+		case OPEN:
+			opened++;
+			break;
+		case HALF_OPEN:
+			halfOpened++;
+			break;
+		default:
+			closed++;
+		}
+	}
+
+	private void clearWindow() {
+		for (int b = 0; b < BUCKETS; b++) {
+			bucketEpoch[b] = 0;
+			bucketRequests[b] = 0;
+			bucketFailures[b] = 0;
+			bucketSlow[b] = 0;
+		}
+	}
+
+	private synchronized Snapshot snapshotOne() {
+		return new Snapshot(endpoint, state, opened, halfOpened, closed, rejected);
+	}
+
+	@Override
+	public String toString() {
+		return "CircuitBreaker[" + endpoint + "]";
+	}
+
+	/*
+	 * The thresholds, replaced as a whole so a breaker never sees half of an update.
+	 */
+	private static final class Settings {
+		final double failureRate;
+		final long slowCallNanos;
+		final double slowCallRate;
+		final int minRequests;
+		final long windowNanos;
+		final long openNanos;
+		final int probes;
+
+		Settings(double failureRate, long slowCallNanos, double slowCallRate, int minRequests, long windowNanos,
+		        long openNanos, int probes) {
+			this.failureRate = failureRate;
+			this.slowCallNanos = slowCallNanos;
+			this.slowCallRate = slowCallRate;
+			this.minRequests = minRequests;
+			this.windowNanos = windowNanos;
+			this.openNanos = openNanos;
+			this.probes = probes;
+		}
+	}
+
+	/**
+	 * The state of one breaker at the time of a snapshot, with the number of times it has entered
+	 * each state and the number of requests it turned away.
+	 */
+	public static final class Snapshot {
+		private final String endpoint;
+		private final State state;
+		private final long opened;
+		private final long halfOpened;
+		private final long closed;
+		private final long rejected;
+
+		Snapshot(String endpoint, State state, long opened, long halfOpened, long closed, long rejected) {
+			this.endpoint = endpoint;
+			this.state = state;
+			this.opened = opened;
+			this.halfOpened = halfOpened;
+			this.closed = closed;
+			this.rejected = rejected;
+		}
+
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		public long getOpened() {
+			return opened;
+		}
+
+		public long getHalfOpened() {
+			return halfOpened;
+		}
+
+		public long getClosed() {
+			return closed;
+		}
+
+		/**
+		 * Gets the number of requests answered from the cache or failed while the breaker was open.
+		 * @return the rejected request count
+		 */
+		public long getRejected() {
+			return rejected;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "%s: %s opened=%d halfOpened=%d closed=%d rejected=%d", endpoint, state,
+			        opened, halfOpened, closed, rejected);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a request to an endpoint whose CircuitBreaker is open, when the cache
+ * has no response to fall back on.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class CircuitOpenException extends IOException {
+
+	private static final long serialVersionUID = -6215873052319650114L;
+
+	private final String endpoint;
+
+	public CircuitOpenException(String endpoint) {
+		super("The circuit for " + endpoint + " is open; the endpoint has been failing.");
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * Gets the endpoint that was not called.
+	 * @return the endpoint (Example: "questions/{ids}/answers")
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+}
@@ -0,0 +1,152 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps connections to the API alive between requests.
+ *
+ * HttpURLConnection already returns a socket to the platform's keep-alive cache, but only once its
+ * response body has been read to the end and closed, and only as many sockets per host as
+ * http.maxConnections allows. This class sizes that cache, evicts idle sockets after the configured
+ * keep-alive time (http.keepAliveDuration), caps the number of connections open to one host at a
+ * time so no request opens a socket the cache cannot keep, and drains response bodies so every
+ * socket can be reused.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class ConnectionPool {
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+	public static final long DEFAULT_KEEP_ALIVE_MILLIS = 30 * 1000L;
+
+	private static final int DRAIN_BUFFER_SIZE = 4096;
+
+	private static final Map<String, Semaphore> hosts = new HashMap<String, Semaphore>();
+	private static int maxConnectionsPerHost;
+	private static long keepAliveMillis;
+
+	static {
+		configure(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_KEEP_ALIVE_MILLIS);
+	}
+
+	// Disallow instantiation
+	private ConnectionPool() {
+	}
+
+	/**
+	 * Sets the pool limits. Connections already open keep the limits they were opened under.
+	 *
+	 * @param maxPerHost
+	 *            the maximum number of connections open to one host at a time
+	 * @param keepAlive
+	 *            how long, in milliseconds, an idle connection is kept before it is closed
+	 */
+	public static void configure(int maxPerHost, long keepAlive) {
+		if (maxPerHost < 1)
+			throw new IllegalArgumentException("There must be at least one connection per host.");
+		if (keepAlive < 0)
+			throw new IllegalArgumentException("The keep-alive time must not be negative.");
+		synchronized (hosts) {
+			maxConnectionsPerHost = maxPerHost;
+			keepAliveMillis = keepAlive;
+			hosts.clear();
+			System.setProperty("http.keepAlive", keepAlive > 0 ? "true" : "false");
+			System.setProperty("http.maxConnections", Integer.toString(maxPerHost));
+			System.setProperty("http.keepAliveDuration", Long.toString(keepAlive));
+		}
+	}
+
+	public static int getMaxConnectionsPerHost() {
+		synchronized (hosts) {
+			return maxConnectionsPerHost;
+		}
+	}
+
+	public static long getKeepAliveMillis() {
+		synchronized (hosts) {
+			return keepAliveMillis;
+		}
+	}
+
+	/**
+	 * Waits until a connection to the URL's host may be opened.
+	 *
+	 * @param url
+	 *            the URL about to be requested
+	 * @return the lease to release once the response has been drained
+	 * @throws InterruptedIOException
+	 *             if the thread is interrupted while waiting
+	 */
+	static Lease acquire(URL url) throws InterruptedIOException {
+		Semaphore permits;
+		String host = url.getProtocol() + "://" + url.getHost() + ":" + url.getPort();
+		synchronized (hosts) {
+			permits = hosts.get(host);
+			if (permits == null) {
+				permits = new Semaphore(maxConnectionsPerHost, true);
+				hosts.put(host, permits);
+			}
+		}
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a connection to " + host);
+		}
+		return new Lease(permits);
+	}
+
+	/**
+	 * Reads whatever is left of a response body and closes it, so the underlying socket goes back
+	 * to the keep-alive cache. Failures are ignored; the socket is simply not reused.
+	 *
+	 * @param in
+	 *            the response body, may be null
+	 */
+	static void drain(InputStream in) {
+		if (in == null)
+			return;
+		try {
+			byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+			while (in.read(buffer) != -1) {
+			}
+		} catch (IOException ignore) {
+		} finally {
+			try {
+				in.close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
+	/**
+	 * Permission to hold one connection open to a host.
+	 */
+	static final class Lease {
+		/**
+		 * A lease that holds no permit, for requests over a MultiplexedTransport.
+		 */
+		static final Lease NONE = new Lease(null);
+
+		private final Semaphore permits;
+		private boolean released = false;
+
+		private Lease(Semaphore permits) {
+			this.permits = permits;
+		}
+
+		synchronized void release() {
+			if (permits != null && !released) {
+				released = true;
+				permits.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package net.sf.stackwrap4j.http;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which the calls made on a thread must finish.
+ *
+ * A deadline is started around a block of calls and applies to every request they make, including
+ * the requests a StackWrapper method makes in parallel and the retries of failed requests. Time
+ * spent waiting for the rate limiter or a backoff counts against it; connect and read timeouts are
+ * shortened to the time left; and once it has passed, requests fail with a SocketTimeoutException
+ * instead of being made.
+ *
+ * <pre>
+ * Deadline deadline = Deadline.start(2, TimeUnit.SECONDS);
+ * try {
+ *     answers = wrapper.getAnswersByQuestionId(id);
+ * } finally {
+ *     deadline.end();
+ * }
+ * </pre>
+ *
+ * Deadlines nest: a deadline started inside another never ends later than the outer one.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public final class Deadline {
+
+	private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+	private final long expiresAt;
+	private final Deadline previous;
+	private final Thread owner;
+
+	private Deadline(long expiresAt, Deadline previous) {
+		this.expiresAt = expiresAt;
+		this.previous = previous;
+		this.owner = Thread.currentThread();
+	}
+
+	/**
+	 * Starts a deadline on the calling thread.
+	 *
+	 * @param timeout
+	 *            the time the calls may take
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the deadline, to be ended once the calls are done
+	 */
+	public static Deadline start(long timeout, TimeUnit unit) {
+		if (timeout < 0)
+			throw new IllegalArgumentException("The timeout must not be negative.");
+		long expiresAt = System.nanoTime() + unit.toNanos(timeout);
+		Deadline outer = current.get();
+		if (outer != null && outer.expiresAt - expiresAt < 0)
+			expiresAt = outer.expiresAt;
+		return install(expiresAt, outer);
+	}
+
+	/**
+	 * Gets the deadline of the calling thread.
+	 * @return the innermost deadline started on this thread, or null if there is none
+	 */
+	public static Deadline current() {
+		return current.get();
+	}
+
+	/**
+	 * Applies this deadline to the calling thread as well, for work handed to another thread on
+	 * behalf of the thread that started it.
+	 *
+	 * @return the deadline on the calling thread, to be ended once the work is done
+	 */
+	public Deadline attach() {
+		return install(expiresAt, current.get());
+	}
+
+	private static Deadline install(long expiresAt, Deadline previous) {
+		Deadline deadline = new Deadline(expiresAt, previous);
+		current.set(deadline);
+		return deadline;
+	}
+
+	/**
+	 * Ends this deadline, restoring the one it was started inside of, if any. Must be called on the
+	 * thread that started it.
+	 */
+	public void end() {
+		if (Thread.currentThread() != owner)
+			throw new IllegalStateException("A deadline must be ended by the thread that started it.");
+		if (current.get() != this)
+			throw new IllegalStateException("Deadlines started inside this one must be ended first.");
+		if (previous == null)
+			current.remove();
+		else
+			current.set(previous);
+	}
+
+	/**
+	 * Gets the time left.
+	 * @param unit the unit of the result
+	 * @return the time left, or 0 if the deadline has passed
+	 */
+	public long remaining(TimeUnit unit) {
+		long left = expiresAt - System.nanoTime();
+		return left <= 0 ? 0 : unit.convert(left, TimeUnit.NANOSECONDS);
+	}
+
+	public boolean isExpired() {
+		return expiresAt - System.nanoTime() <= 0;
+	}
+
+	/*
+	 * Fails if the deadline has passed.
+	 */
+	void check(String what) throws SocketTimeoutException {
+		if (isExpired())
+			throw new Exceeded("The deadline passed before " + what + ".");
+	}
+
+	/*
+	 * Shortens a timeout in milliseconds, 0 meaning none, to the time left. Never returns 0, which
+	 * would mean no timeout at all.
+	 */
+	int limit(int timeoutMillis) {
+		long left = Math.max(1, remaining(TimeUnit.MILLISECONDS));
+		if (timeoutMillis > 0 && timeoutMillis < left)
+			return timeoutMillis;
+		return (int) Math.min(Integer.MAX_VALUE, left);
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline[" + remaining(TimeUnit.MILLISECONDS) + "ms left]";
+	}
+
+	/**
+	 * Thrown instead of making or waiting on a request the deadline leaves no time for. Never
+	 * retried.
+	 */
+	public static final class Exceeded extends SocketTimeoutException {
+		private static final long serialVersionUID = 5309824158746101873L;
+
+		public Exceeded(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,560 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, disk-backed cache of API responses, keyed by canonical request URL.
+ *
+ * Responses are stored decoded, one metadata file and one body file per URL, and evicted least
+ * recently used first once the bodies exceed the size limit. Freshness comes from the response's
+ * Cache-Control max-age or Expires header, unless a TTL override is set for the endpoint. Stale
+ * entries that carry an ETag or Last-Modified date are revalidated with a conditional request;
+ * a 304 response refreshes the entry without downloading it again. Stale entries are kept until
+ * evicted, and are served as they are while the endpoint's CircuitBreaker is open.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class HttpCache {
+
+	private static final int META_MAGIC = 0x53573443;
+	private static final String META_SUFFIX = ".0";
+	private static final String BODY_SUFFIX = ".1";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final File directory;
+	private final long maxSize;
+
+	/* Guarded by this. */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+	private final Map<String, Long> ttlOverrides = new HashMap<String, Long>();
+	private long size = 0;
+	private int hitCount = 0;
+	private int conditionalHitCount = 0;
+	private int networkCount = 0;
+	private int tempCounter = 0;
+
+	/**
+	 * Opens a cache in the given directory, loading any entries already stored there.
+	 *
+	 * @param directory
+	 *            where responses are stored. Created if it doesn't exist.
+	 * @param maxSize
+	 *            the maximum number of bytes of response bodies to keep
+	 * @throws IOException
+	 *             if the directory cannot be created
+	 */
+	public HttpCache(File directory, long maxSize) throws IOException {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("The cache size must be positive.");
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Unable to create cache directory " + directory);
+		this.directory = directory;
+		this.maxSize = maxSize;
+		load();
+	}
+
+	/**
+	 * Sets how long responses from an endpoint stay fresh, overriding the response headers.
+	 *
+	 * @param routePrefix
+	 *            the start of the endpoint path after the version (Example: "badges", "tags/")
+	 * @param ttlMillis
+	 *            how long responses stay fresh, in milliseconds
+	 */
+	public synchronized void setTtl(String routePrefix, long ttlMillis) {
+		if (ttlMillis < 0)
+			throw new IllegalArgumentException("The TTL must not be negative.");
+		ttlOverrides.put(normalizeRoute(routePrefix), ttlMillis);
+	}
+
+	/**
+	 * Removes a TTL override.
+	 * @param routePrefix the endpoint prefix the override was set for
+	 */
+	public synchronized void removeTtl(String routePrefix) {
+		ttlOverrides.remove(normalizeRoute(routePrefix));
+	}
+
+	/**
+	 * Removes every entry from the cache.
+	 */
+	public synchronized void clear() {
+		for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+			delete(it.next());
+			it.remove();
+		}
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of bytes of response bodies stored.
+	 * @return the cache size
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Gets the number of requests answered from the cache without touching the network.
+	 * @return the hit count
+	 */
+	public synchronized int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Gets the number of requests answered from the cache after a 304 Not Modified response.
+	 * @return the conditional hit count
+	 */
+	public synchronized int getConditionalHitCount() {
+		return conditionalHitCount;
+	}
+
+	/**
+	 * Gets the number of requests whose body had to be downloaded.
+	 * @return the network count
+	 */
+	public synchronized int getNetworkCount() {
+		return networkCount;
+	}
+
+	/**
+	 * Builds the cache key for a URL: the URL with its query parameters in sorted order, so the
+	 * same request made with parameters in a different order hits the same entry. The app key is
+	 * left out, since it only decides whose quota a request counts against, so requests spread
+	 * over a KeyPool share entries.
+	 *
+	 * @param url
+	 *            the request URL
+	 * @return the canonical form of the URL
+	 */
+	public static String canonicalize(String url) {
+		int q = url.indexOf('?');
+		if (q < 0)
+			return url;
+		String[] params = url.substring(q + 1).split("&");
+		Arrays.sort(params);
+		StringBuilder sb = new StringBuilder(url.length());
+		sb.append(url, 0, q + 1);
+		boolean first = true;
+		for (String param : params) {
+			if (param.length() == 0 || param.startsWith("key="))
+				continue;
+			if (!first)
+				sb.append('&');
+			sb.append(param);
+			first = false;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Finds a usable entry: a fresh one, or a stale one that can be revalidated. Other stale
+	 * entries are left for eviction, since they can still stand in for an endpoint whose
+	 * CircuitBreaker is open.
+	 */
+	synchronized Entry lookup(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null || (!entry.isFresh() && !entry.canRevalidate()))
+			return null;
+		return entry;
+	}
+
+	/**
+	 * Finds an entry however stale, to serve when the network can't be used.
+	 */
+	synchronized Entry lookupStale(String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Reads a stored body. Returns null if the body has disappeared from disk.
+	 */
+	<T> T read(Entry entry, HttpClient.BodyReader<T> reader, boolean conditional) throws IOException {
+		InputStream in;
+		try {
+			in = new BufferedInputStream(new FileInputStream(bodyFile(entry.fileName)), ResponseDecoder.BUFFER_SIZE);
+		} catch (IOException e) {
+			synchronized (this) {
+				if (entries.get(entry.key) == entry) {
+					entries.remove(entry.key);
+					size -= entry.bodyLength;
+				}
+			}
+			return null;
+		}
+		try {
+			T result = reader.read(in);
+			synchronized (this) {
+				if (conditional)
+					conditionalHitCount++;
+				else
+					hitCount++;
+			}
+			return result;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Adds conditional request headers for a stale entry.
+	 */
+	static void addValidators(Entry entry, HttpURLConnection conn) {
+		if (entry.etag != null)
+			conn.setRequestProperty("If-None-Match", entry.etag);
+		if (entry.lastModified != null)
+			conn.setRequestProperty("If-Modified-Since", entry.lastModified);
+	}
+
+	/**
+	 * Records that the server confirmed a stale entry with 304 Not Modified.
+	 */
+	synchronized void revalidated(Entry entry, HttpURLConnection conn) {
+		if (entries.get(entry.key) != entry)
+			return;
+		String etag = conn.getHeaderField("ETag");
+		String lastModified = conn.getHeaderField("Last-Modified");
+		long expires = expiresAt(entry.route, conn);
+		Entry updated = new Entry(entry.key, entry.route, entry.fileName,
+		        etag != null ? etag : entry.etag,
+		        lastModified != null ? lastModified : entry.lastModified,
+		        expires > 0 ? expires : System.currentTimeMillis(), entry.bodyLength);
+		entries.put(entry.key, updated);
+		try {
+			writeMeta(updated);
+		} catch (IOException ignore) {
+			// the entry stays usable for this session
+		}
+	}
+
+	/**
+	 * Starts storing a response, or returns null if it cannot be cached.
+	 */
+	Editor edit(String key, String route, HttpURLConnection conn) throws IOException {
+		synchronized (this) {
+			networkCount++;
+		}
+		String cacheControl = conn.getHeaderField("Cache-Control");
+		if (cacheControl != null && cacheControl.toLowerCase().contains("no-store"))
+			return null;
+		String etag = conn.getHeaderField("ETag");
+		String lastModified = conn.getHeaderField("Last-Modified");
+		long expires = expiresAt(route, conn);
+		if (expires <= System.currentTimeMillis() && etag == null && lastModified == null)
+			return null;
+		String fileName = fileName(key);
+		File temp;
+		synchronized (this) {
+			temp = new File(directory, fileName + "." + (tempCounter++) + TEMP_SUFFIX);
+		}
+		Entry entry = new Entry(key, route, fileName, etag, lastModified, Math.max(expires, 0), 0);
+		return new Editor(entry, temp);
+	}
+
+	/*
+	 * When a response from this route stops being fresh, or 0 if it has no freshness information.
+	 */
+	private long expiresAt(String route, HttpURLConnection conn) {
+		long now = System.currentTimeMillis();
+		Long ttl = ttlFor(route);
+		if (ttl != null)
+			return now + ttl.longValue();
+		String cacheControl = conn.getHeaderField("Cache-Control");
+		if (cacheControl != null) {
+			for (String directive : cacheControl.toLowerCase().split(",")) {
+				directive = directive.trim();
+				if (directive.equals("no-cache"))
+					return now;
+				if (directive.startsWith("max-age=")) {
+					try {
+						return now + Long.parseLong(directive.substring(8).trim()) * 1000L;
+					} catch (NumberFormatException ignore) {
+					}
+				}
+			}
+		}
+		return conn.getExpiration();
+	}
+
+	private synchronized Long ttlFor(String route) {
+		Long best = null;
+		int bestLength = -1;
+		for (Map.Entry<String, Long> e : ttlOverrides.entrySet()) {
+			String prefix = e.getKey();
+			if (route.startsWith(prefix) && prefix.length() > bestLength) {
+				best = e.getValue();
+				bestLength = prefix.length();
+			}
+		}
+		return best;
+	}
+
+	private synchronized void commit(Entry entry, File temp) throws IOException {
+		File body = bodyFile(entry.fileName);
+		body.delete();
+		if (!temp.renameTo(body))
+			throw new IOException("Unable to store cache entry " + body);
+		writeMeta(entry);
+		Entry previous = entries.put(entry.key, entry);
+		if (previous != null)
+			size -= previous.bodyLength;
+		size += entry.bodyLength;
+		trimToSize();
+	}
+
+	private void trimToSize() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Entry eldest = it.next();
+			it.remove();
+			size -= eldest.bodyLength;
+			delete(eldest);
+		}
+	}
+
+	private void load() {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		List<File> metas = new ArrayList<File>();
+		for (File f : files) {
+			if (f.getName().endsWith(META_SUFFIX))
+				metas.add(f);
+			else if (f.getName().endsWith(TEMP_SUFFIX))
+				f.delete();
+		}
+		// oldest first, so the most recently written entries end up most recently used
+		Collections.sort(metas, new Comparator<File>() {
+			public int compare(File a, File b) {
+				long diff = a.lastModified() - b.lastModified();
+				return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+			}
+		});
+		for (File meta : metas) {
+			Entry entry = readMeta(meta);
+			if (entry == null || !bodyFile(entry.fileName).isFile()) {
+				meta.delete();
+				bodyFile(meta.getName().substring(0, meta.getName().length() - META_SUFFIX.length())).delete();
+				continue;
+			}
+			entries.put(entry.key, entry);
+			size += entry.bodyLength;
+		}
+		trimToSize();
+	}
+
+	private Entry readMeta(File meta) {
+		String name = meta.getName();
+		String fileName = name.substring(0, name.length() - META_SUFFIX.length());
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(meta)));
+			if (in.readInt() != META_MAGIC)
+				return null;
+			String key = in.readUTF();
+			String route = in.readUTF();
+			String etag = in.readUTF();
+			String lastModified = in.readUTF();
+			long expires = in.readLong();
+			long bodyLength = in.readLong();
+			return new Entry(key, route, fileName, etag.length() == 0 ? null : etag,
+			        lastModified.length() == 0 ? null : lastModified, expires, bodyLength);
+		} catch (IOException e) {
+			return null;
+		} finally {
+			closeQuietly(in);
+		}
+	}
+
+	private void writeMeta(Entry entry) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+		        new FileOutputStream(new File(directory, entry.fileName + META_SUFFIX))));
+		try {
+			out.writeInt(META_MAGIC);
+			out.writeUTF(entry.key);
+			out.writeUTF(entry.route);
+			out.writeUTF(entry.etag == null ? "" : entry.etag);
+			out.writeUTF(entry.lastModified == null ? "" : entry.lastModified);
+			out.writeLong(entry.expiresAt);
+			out.writeLong(entry.bodyLength);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void delete(Entry entry) {
+		new File(directory, entry.fileName + META_SUFFIX).delete();
+		bodyFile(entry.fileName).delete();
+	}
+
+	private File bodyFile(String fileName) {
+		return new File(directory, fileName + BODY_SUFFIX);
+	}
+
+	static String normalizeRoute(String route) {
+		return route.startsWith("/") ? route.substring(1) : route;
+	}
+
+	private static String fileName(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (java.io.UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void closeQuietly(InputStream in) {
+		if (in == null)
+			return;
+		try {
+			in.close();
+		} catch (IOException ignore) {
+		}
+	}
+
+	/**
+	 * A stored response. Immutable; revalidation replaces the entry.
+	 */
+	static final class Entry {
+		final String key;
+		final String route;
+		final String fileName;
+		final String etag;
+		final String lastModified;
+		final long expiresAt;
+		final long bodyLength;
+
+		Entry(String key, String route, String fileName, String etag, String lastModified,
+		        long expiresAt, long bodyLength) {
+			this.key = key;
+			this.route = route;
+			this.fileName = fileName;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.expiresAt = expiresAt;
+			this.bodyLength = bodyLength;
+		}
+
+		boolean isFresh() {
+			return System.currentTimeMillis() < expiresAt;
+		}
+
+		boolean canRevalidate() {
+			return etag != null || lastModified != null;
+		}
+	}
+
+	/**
+	 * Copies a decoded response body to disk as it is read, and stores it once it has been read
+	 * to the end.
+	 */
+	final class Editor {
+		private final Entry entry;
+		private final File temp;
+		private final OutputStream out;
+		private long written = 0;
+		private boolean done = false;
+
+		private Editor(Entry entry, File temp) throws IOException {
+			this.entry = entry;
+			this.temp = temp;
+			this.out = new BufferedOutputStream(new FileOutputStream(temp), ResponseDecoder.BUFFER_SIZE);
+		}
+
+		/**
+		 * Wraps a decoded body so everything read from it is also written to the cache.
+		 */
+		InputStream tee(final InputStream in) {
+			return new InputStream() {
+				@Override
+				public int read() throws IOException {
+					int b = in.read();
+					if (b != -1) {
+						out.write(b);
+						written++;
+					}
+					return b;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int n = in.read(b, off, len);
+					if (n > 0) {
+						out.write(b, off, n);
+						written += n;
+					}
+					return n;
+				}
+
+				@Override
+				public void close() throws IOException {
+					in.close();
+				}
+			};
+		}
+
+		/**
+		 * Reads whatever the body reader left unread through the tee, then stores the entry.
+		 */
+		void commit(InputStream tee) throws IOException {
+			if (done)
+				return;
+			byte[] buffer = ResponseDecoder.takeBytes();
+			try {
+				while (tee.read(buffer) != -1) {
+				}
+			} finally {
+				ResponseDecoder.giveBytes(buffer);
+			}
+			out.close();
+			HttpCache.this.commit(new Entry(entry.key, entry.route, entry.fileName, entry.etag,
+			        entry.lastModified, entry.expiresAt, written), temp);
+			done = true;
+		}
+
+		void abort() {
+			if (done)
+				return;
+			done = true;
+			try {
+				out.close();
+			} catch (IOException ignore) {
+			}
+			temp.delete();
+		}
+	}
+}
@@ -24,62 +24,409 @@
 
 package net.sf.stackwrap4j.http;
 
-import java.io.BufferedReader;
+import net.sf.stackwrap4j.json.JSONException;
+import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.json.JsonReader;
+
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.Proxy;
+import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A tiny HTTP client that does only what we need to interact with the Stack Exchange API.
  * 
+ * Clients are thread-safe, and one client can make requests from any number of threads at once.
+ * The settings below are shared by every client; each is read once when a request is made, so
+ * changing one affects only requests made afterwards. The request counters of a client are atomic,
+ * and the shared rate limiter, cache and metrics hold their own locks only briefly, so threads
+ * never wait on each other except for the rate limiter's permits.
+ * 
  * @author Justin Nelson
  * @author Bill Cruise
  */
 public class HttpClient {
 
 	/**
-	 * The proxy to use for this session. Defaults to no proxy
+	 * The proxy to use for this session. Defaults to no proxy. Used by the default transport.
 	 */
-	public static Proxy proxyServer = null;
+	public static volatile Proxy proxyServer = null;
 	
 	/**
 	 * The throttling method used for this session.
 	 */
-	public static Throttle throttle = Throttle.NON_THREADED;
+	public static volatile Throttle throttle = Throttle.NON_THREADED;
 	
-	/*
-	 * Timestamp when the last request was made.
+	/**
+	 * Whether concurrent requests for the same URL share one network call. Defaults to true.
 	 */
-	private long lastRequest = 0;
+	public static volatile boolean coalesceRequests = true;
 	
-	private int requests = 0;
-	private int throttledRequests = 0;
+	/**
+	 * Whether JSON responses are read lazily. Defaults to false.
+	 * 
+	 * When true, a response is read into memory and scanned once for where its values are; the
+	 * strings, objects and arrays in it are decoded when they are first asked for (see
+	 * JsonReader.nextLazyValue). Callers that use a few fields of a large response, such as the
+	 * titles and scores of a page of questions, then skip decoding the bodies and answers. The
+	 * response's bytes are kept for as long as any part of it is in use.
+	 */
+	public static volatile boolean lazyJson = false;
 	
-	private static final long WAIT_TIME = 170;
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong throttledRequests = new AtomicLong();
+	private volatile Priority priority = Priority.NORMAL;
 	
 
 	/*
 	 * The minimum amount of time to delay between requests.
 	 */
-	private static int timeout = 0;
+	private static volatile int timeout = 0;
 	
-	private ApiRequestQueue queue = null; //new ApiRequestQueue();
+	/*
+	 * The request dispatcher shared by every client using Throttle.THREADED. Created on first use.
+	 */
+	private static volatile ApiRequestQueue queue = null;
+
+	/**
+	 * The default number of threads making the requests of one batch in parallel.
+	 */
+	public static final int DEFAULT_FAN_OUT = 4;
+
+	/*
+	 * Makes the requests of a batch in parallel. Created on first use.
+	 */
+	private static volatile ThreadPoolExecutor fanOut = null;
+	private static int fanOutThreads = DEFAULT_FAN_OUT;
+
+	/*
+	 * Opens the connections requests are made over.
+	 */
+	private static volatile Transport transport = new UrlConnectionTransport();
+
+	/*
+	 * The response cache shared by every client, or null to always go to the network.
+	 */
+	private static volatile HttpCache cache = null;
+
+	/*
+	 * The requests currently in flight, shared by every client.
+	 */
+	private static final SingleFlight inFlight = new SingleFlight();
+
+	/*
+	 * How failed requests are retried.
+	 */
+	private static volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private static final AtomicLong retries = new AtomicLong();
+
+	/**
+	 * The percentile of an endpoint's latency after which an interactive request is hedged.
+	 */
+	public static final double HEDGE_PERCENTILE = 95;
+
+	/**
+	 * The number of requests an endpoint must have completed before its requests are hedged.
+	 */
+	public static final int MIN_HEDGE_SAMPLES = 20;
+
+	/*
+	 * Whether slow interactive requests are raced against a second request.
+	 */
+	private static volatile boolean hedging = false;
+	private static final AtomicLong hedges = new AtomicLong();
+
+	/*
+	 * Runs both sides of hedged requests. Created on first use.
+	 */
+	private static volatile ThreadPoolExecutor hedgePool = null;
+
+	/*
+	 * The transport of this client's requests, or null to use the shared one.
+	 */
+	private final Transport clientTransport;
+
+	/*
+	 * The keys this client's requests are spread over, or null to use the key each request names.
+	 */
+	private final KeyPool keys;
 
 	public HttpClient(){
-		// queue = new ApiRequestQueue();
+		this(null);
+	}
+
+	/**
+	 * Creates a client whose requests are made over its own transport rather than the shared one,
+	 * for example an HTTP/2 transport for one StackWrapper only.
+	 * 
+	 * @param transport
+	 *            the transport to use, or null to use the shared transport (see setTransport)
+	 */
+	public HttpClient(Transport transport) {
+		this(transport, null);
+	}
+
+	/**
+	 * Creates a client whose requests are spread over several app keys. The key passed with each
+	 * request is replaced by the one the pool picks.
+	 * 
+	 * @param transport
+	 *            the transport to use, or null to use the shared transport (see setTransport)
+	 * @param keys
+	 *            the keys to spread requests over, or null to use the key each request names
+	 */
+	public HttpClient(Transport transport, KeyPool keys) {
+		this.clientTransport = transport;
+		this.keys = keys;
+	}
+
+	/*
+	 * Gets the transport this client's requests are made over.
+	 */
+	private Transport transport() {
+		return clientTransport == null ? transport : clientTransport;
+	}
+
+	/*
+	 * Gets the key to make a request with.
+	 */
+	private String key(String baseURL, String apiKey) throws IOException {
+		return keys == null ? apiKey : keys.select(baseURL);
+	}
+
+	/**
+	 * Sets the cache responses are stored in and served from. Requests answered from a fresh cache
+	 * entry skip the throttle entirely.
+	 * 
+	 * @param newCache
+	 *            the cache to use, or null to disable caching
+	 */
+	public static void setCache(HttpCache newCache) {
+		cache = newCache;
+	}
+
+	public static HttpCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Sets how many requests of one batch (see sendGetRequestsForJSON) are made in parallel.
+	 * Requests still wait for the throttle, so this only bounds how many wait at once.
+	 * 
+	 * @param threads
+	 *            the number of threads making batch requests
+	 */
+	public static synchronized void setFanOut(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("There must be at least one fan-out thread.");
+		fanOutThreads = threads;
+		if (fanOut != null) {
+			if (threads > fanOut.getMaximumPoolSize()) {
+				fanOut.setMaximumPoolSize(threads);
+				fanOut.setCorePoolSize(threads);
+			} else {
+				fanOut.setCorePoolSize(threads);
+				fanOut.setMaximumPoolSize(threads);
+			}
+		}
+	}
+
+	private static ThreadPoolExecutor getFanOut() {
+		ThreadPoolExecutor pool = fanOut;
+		if (pool != null)
+			return pool;
+		synchronized (HttpClient.class) {
+			if (fanOut == null)
+				fanOut = createFanOut();
+			return fanOut;
+		}
+	}
+
+	private static ThreadPoolExecutor createFanOut() {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 30, TimeUnit.SECONDS,
+		        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			        private int count = 0;
+
+			        public synchronized Thread newThread(Runnable r) {
+				        Thread t = new Thread(r, "HttpClient-fanout-" + count++);
+				        t.setDaemon(true);
+				        return t;
+			        }
+		        });
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Replaces the transport requests are made over, for example with an in-memory stand-in for
+	 * the API. Requests already created keep the transport they were created with, and clients
+	 * created with a transport of their own keep using it.
+	 * 
+	 * @param newTransport
+	 *            the transport to use
+	 */
+	public static void setTransport(Transport newTransport) {
+		if (newTransport == null)
+			throw new IllegalArgumentException("The transport must not be null.");
+		transport = newTransport;
+	}
+
+	public static Transport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Gets the number of requests that were answered by an identical request already in flight,
+	 * and so made no network call of their own.
+	 * @return the number of coalesced requests
+	 */
+	public static long getCoalescedRequests() {
+		return inFlight.getHits();
+	}
+
+	/**
+	 * Gets the number of requests that found no identical request in flight and made their own call.
+	 * @return the number of uncoalesced requests
+	 */
+	public static long getUncoalescedRequests() {
+		return inFlight.getMisses();
+	}
+
+	/**
+	 * Sets how failed requests are retried. Defaults to RetryPolicy.DEFAULT.
+	 * 
+	 * @param policy
+	 *            the policy to use, RetryPolicy.NONE to never retry
+	 */
+	public static void setRetryPolicy(RetryPolicy policy) {
+		if (policy == null)
+			throw new IllegalArgumentException("The retry policy must not be null.");
+		retryPolicy = policy;
+	}
+
+	public static RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Gets the number of times a failed request was made again.
+	 */
+	public static long getRetriedRequests() {
+		return retries.get();
+	}
+
+	/**
+	 * Turns hedging on or off. Off by default.
+	 * 
+	 * When on, a request from a client with Priority.INTERACTIVE that has not completed within the
+	 * HEDGE_PERCENTILE latency of its endpoint is raced against a second, identical request, and
+	 * whichever finishes first is used. The second request is only made if the rate limiter has a
+	 * permit to spare right away, so hedging never delays other requests. The slower request still
+	 * runs to completion; its response is discarded.
+	 * 
+	 * @param enabled
+	 *            whether to hedge slow interactive requests
+	 */
+	public static void setHedging(boolean enabled) {
+		hedging = enabled;
+	}
+
+	public static boolean isHedging() {
+		return hedging;
+	}
+
+	/**
+	 * Gets the number of second requests made to hedge slow ones.
+	 */
+	public static long getHedgedRequests() {
+		return hedges.get();
+	}
+
+	private static ThreadPoolExecutor getHedgePool() {
+		ThreadPoolExecutor pool = hedgePool;
+		if (pool != null)
+			return pool;
+		synchronized (HttpClient.class) {
+			if (hedgePool == null)
+				hedgePool = createHedgePool();
+			return hedgePool;
+		}
+	}
+
+	private static ThreadPoolExecutor createHedgePool() {
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+		        new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			        private int count = 0;
+
+			        public synchronized Thread newThread(Runnable r) {
+				        Thread t = new Thread(r, "HttpClient-hedge-" + count++);
+				        t.setDaemon(true);
+				        return t;
+			        }
+		        });
+	}
+
+	/**
+	 * Sets the lane this client's requests are queued in when using Throttle.THREADED.
+	 * 
+	 * @param priority
+	 *            the priority of this client's requests. Defaults to Priority.NORMAL.
+	 */
+	public void setPriority(Priority priority) {
+		if (priority == null)
+			throw new IllegalArgumentException("The priority must not be null.");
+		this.priority = priority;
+	}
+
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Replaces the request dispatcher used by Throttle.THREADED, for example to change the number of
+	 * worker threads. The previous dispatcher is shut down.
+	 * 
+	 * @param newQueue
+	 *            the dispatcher to use
+	 */
+	public static synchronized void setRequestQueue(ApiRequestQueue newQueue) {
+		if (newQueue == null)
+			throw new IllegalArgumentException("The request queue must not be null.");
+		if (queue != null && queue != newQueue)
+			queue.shutdown();
+		queue = newQueue;
+	}
+
+	private static ApiRequestQueue getRequestQueue() {
+		ApiRequestQueue current = queue;
+		if (current != null)
+			return current;
+		synchronized (HttpClient.class) {
+			if (queue == null)
+				queue = new ApiRequestQueue();
+			return queue;
+		}
 	}
 	
 	/**
 	 * Sets the read timeout on the connection.
 	 * 
 	 * A timeout of zero means infinite (that's the default). If a request times out, it will throw
-	 * a java.net.SocketTimeoutTxeption
+	 * a java.net.SocketTimeoutTxeption. The thread's Deadline, if any, shortens it further.
 	 * 
 	 * @param timeout
 	 *            the time in milliseconds
@@ -130,93 +477,419 @@ public class HttpClient {
 	 */
 	public String sendGetRequest(String baseURL, String versionString, String extendedURL,
 	        String apiKey, String requestParams) throws IOException {
+		return send(new ApiRequest(transport(), keys, baseURL, versionString, extendedURL, key(baseURL, apiKey),
+		        requestParams), STRING_BODY);
+	}
+
+	/**
+	 * Makes a HTTP request to a server and parses the response as it arrives, without building the
+	 * response text first.
+	 * 
+	 * @param baseURL
+	 *            - The URL of the server (Example: "http://api.stackoverflow.com/")
+	 * @param versionString
+	 *            - The current version of the API (Example: "0.8/")
+	 * @param extendedURL
+	 *            - The rest of the URL (Example: "users/{id}/favorites/recent")
+	 * @param apiKey
+	 *            - The API key for your application (Example: "knockknock")
+	 * @param requestParams
+	 *            - The parameters for this request (Example: "param1=val1&param2=val2"), may be null
+	 * @return - The JSON object that was requested
+	 * @throws IOException
+	 *             - If the given URL doesn't exist
+	 * @throws JSONException
+	 *             - If the response is not a JSON object
+	 */
+	public JSONObject sendGetRequestForJSON(String baseURL, String versionString, String extendedURL,
+	        String apiKey, String requestParams) throws IOException, JSONException {
+		try {
+			return send(new ApiRequest(transport(), keys, baseURL, versionString, extendedURL, key(baseURL, apiKey),
+			        requestParams), JSON_BODY);
+		} catch (JSONFailure e) {
+			throw e.getCause();
+		}
+	}
+
+	public JSONObject sendGetRequestForJSON(String baseURL, String versionString, String extendedURL,
+	        String apiKey) throws IOException, JSONException {
+		return sendGetRequestForJSON(baseURL, versionString, extendedURL, apiKey, null);
+	}
+
+	/**
+	 * Makes several requests to a server in parallel, for example one per chunk of a long id list.
+	 * Each request goes through the throttle, the cache and the in-flight coalescing like any other.
+	 * 
+	 * @param baseURL
+	 *            - The URL of the server (Example: "http://api.stackoverflow.com/")
+	 * @param versionString
+	 *            - The current version of the API (Example: "0.8/")
+	 * @param extendedURLs
+	 *            - The rest of the URL of each request (Example: "users/1;2;3")
+	 * @param apiKey
+	 *            - The API key for your application (Example: "knockknock")
+	 * @param requestParams
+	 *            - The parameters for every request (Example: "param1=val1&param2=val2"), may be null
+	 * @return - The JSON objects that were requested, in the order of extendedURLs
+	 * @throws IOException
+	 *             - If any of the requests failed. The requests not started yet are cancelled.
+	 * @throws JSONException
+	 *             - If any of the responses is not a JSON object
+	 */
+	public List<JSONObject> sendGetRequestsForJSON(final String baseURL, final String versionString,
+	        List<String> extendedURLs, final String apiKey, final String requestParams)
+	        throws IOException, JSONException {
+		List<JSONObject> responses = new ArrayList<JSONObject>(extendedURLs.size());
+		if (extendedURLs.isEmpty())
+			return responses;
+		List<ApiRequestQueue.Future<JSONObject>> pending = new ArrayList<ApiRequestQueue.Future<JSONObject>>(
+		        extendedURLs.size() - 1);
+		final Deadline deadline = Deadline.current();
+		final Transport transport = transport();
+		try {
+			// the first request is made on this thread, the rest by the fan-out pool
+			for (final String extendedURL : extendedURLs.subList(1, extendedURLs.size())) {
+				ApiRequestQueue.Future<JSONObject> fut = new ApiRequestQueue.Future<JSONObject>(null, null,
+				        new Callable<JSONObject>() {
+					        public JSONObject call() throws IOException {
+						        Deadline scope = deadline == null ? null : deadline.attach();
+						        try {
+							        return send(new ApiRequest(transport, keys, baseURL, versionString, extendedURL,
+							                key(baseURL, apiKey), requestParams), JSON_BODY);
+						        } finally {
+							        if (scope != null)
+								        scope.end();
+						        }
+					        }
+				        });
+				getFanOut().execute(fut);
+				pending.add(fut);
+			}
+			responses.add(send(new ApiRequest(transport, keys, baseURL, versionString, extendedURLs.get(0),
+			        key(baseURL, apiKey), requestParams), JSON_BODY));
+			for (ApiRequestQueue.Future<JSONObject> fut : pending) {
+				responses.add(fut.await());
+			}
+			return responses;
+		} catch (JSONFailure e) {
+			throw e.getCause();
+		} finally {
+			for (ApiRequestQueue.Future<JSONObject> fut : pending) {
+				fut.cancel(false);
+			}
+		}
+	}
+
+	private <T> T send(final ApiRequest req, final BodyReader<T> reader) throws IOException {
+		if (!coalesceRequests) {
+			return execute(req, reader);
+		}
+		return inFlight.execute(req.getCanonicalUrl(), reader, new Callable<T>() {
+			public T call() throws IOException {
+				return execute(req, reader);
+			}
+		});
+	}
+
+	/*
+	 * Makes a request, retrying it by the retry policy. Every attempt is a new request that waits
+	 * for the throttle again.
+	 */
+	private <T> T execute(ApiRequest req, BodyReader<T> reader) throws IOException {
+		RetryPolicy policy = retryPolicy;
+		for (int attempt = 1;; attempt++) {
+			try {
+				return attempt(req, reader);
+			} catch (IOException e) {
+				if (attempt >= policy.getMaxAttempts() || !isRetryable(policy, req, e)) {
+					throw e;
+				}
+				long backoff = policy.backoffNanos(attempt);
+				Deadline deadline = req.getDeadline();
+				if (deadline != null && deadline.remaining(TimeUnit.NANOSECONDS) <= backoff) {
+					throw e;
+				}
+				sleep(backoff);
+				retries.incrementAndGet();
+				req = req.copy();
+			}
+		}
+	}
+
+	private static boolean isRetryable(RetryPolicy policy, ApiRequest req, IOException e) {
+		if (e instanceof JSONFailure || e instanceof Deadline.Exceeded || e instanceof CircuitOpenException
+		        || Thread.currentThread().isInterrupted()) {
+			return false;
+		}
+		// cancellations are InterruptedIOExceptions as well, timeouts are worth another try
+		if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+			return false;
+		}
+		if (req.getDeadline() != null && req.getDeadline().isExpired()) {
+			return false;
+		}
+		return policy.isRetryable(req.getFailureStatus());
+	}
+
+	private static void sleep(long nanos) throws InterruptedIOException {
+		long deadline = System.nanoTime() + nanos;
+		for (long remaining = nanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+			LockSupport.parkNanos(remaining);
+			if (Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to retry a request.");
+			}
+		}
+	}
+
+	/*
+	 * Makes one attempt at a request, hedged if this client is interactive and its endpoint has
+	 * enough history to know when a request is slow.
+	 */
+	private <T> T attempt(ApiRequest req, BodyReader<T> reader) throws IOException {
+		long delay = hedging && priority == Priority.INTERACTIVE ? req.hedgeDelayNanos() : 0;
+		if (delay <= 0) {
+			return fetch(req, reader);
+		}
+		return hedge(req, reader, delay);
+	}
+
+	/*
+	 * Races a request against a second one started after the delay, if the first hasn't completed by
+	 * then, and returns the first success.
+	 */
+	private <T> T hedge(final ApiRequest req, final BodyReader<T> reader, long delayNanos) throws IOException {
+		final BlockingQueue<ApiRequestQueue.Future<T>> finished = new LinkedBlockingQueue<ApiRequestQueue.Future<T>>();
+		ApiRequestQueue.Future<T> primary = hedgeTask(req, finished, new Callable<T>() {
+			public T call() throws IOException {
+				return fetch(req, reader);
+			}
+		});
+		getHedgePool().execute(primary);
+		ApiRequestQueue.Future<T> first = poll(finished, delayNanos, null);
+		boolean raced = false;
+		if (first == null && req.getLimiter().tryAcquire()) {
+			final ApiRequest second = req.copy();
+			getHedgePool().execute(hedgeTask(second, finished, new Callable<T>() {
+				public T call() throws IOException {
+					return second.makeRequest(reader);
+				}
+			}));
+			hedges.incrementAndGet();
+			raced = true;
+		}
+		if (first == null) {
+			first = poll(finished, Long.MAX_VALUE, req.getDeadline());
+		}
+		if (raced && first.getException() != null) {
+			// the other request may still succeed
+			return poll(finished, Long.MAX_VALUE, req.getDeadline()).await();
+		}
+		return first.await();
+	}
+
+	private static <T> ApiRequestQueue.Future<T> hedgeTask(ApiRequest req,
+	        final BlockingQueue<ApiRequestQueue.Future<T>> finished, Callable<T> call) {
+		return new ApiRequestQueue.Future<T>(req, null, call) {
+			@Override
+			protected void done() {
+				finished.add(this);
+			}
+		};
+	}
+
+	/*
+	 * Waits for the next hedged request to finish, at most the timeout and until the deadline.
+	 * Returns null if the timeout passed first.
+	 */
+	private static <T> ApiRequestQueue.Future<T> poll(BlockingQueue<ApiRequestQueue.Future<T>> finished,
+	        long timeoutNanos, Deadline deadline) throws IOException {
+		long wait = timeoutNanos;
+		if (deadline != null) {
+			wait = Math.min(wait, deadline.remaining(TimeUnit.NANOSECONDS));
+		}
+		try {
+			ApiRequestQueue.Future<T> fut = finished.poll(wait, TimeUnit.NANOSECONDS);
+			if (fut == null && wait < timeoutNanos) {
+				throw new Deadline.Exceeded("The deadline passed before the hedged request completed.");
+			}
+			return fut;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a hedged request.");
+		}
+	}
+	
+	private <T> T fetch(ApiRequest req, BodyReader<T> reader) throws IOException {
+		T response = req.readFromCache(reader);
+		if (response != null) {
+			// fresh responses don't count against the rate limit
+			requests.incrementAndGet();
+			return response;
+		}
+		if (!req.getBreaker().allow()) {
+			// the endpoint is failing: answer from the cache however stale, or not at all
+			return req.readFallback(reader);
+		}
 	    
-	    String response = null;
-		final long now = System.currentTimeMillis();
-	    
-	    switch( throttle ) {
-	    case NON_THREADED:
-	        // delay before making the request in the next case.
-	        long elapsed = now - lastRequest;
-	        if( elapsed < WAIT_TIME ) {
-	            throttledRequests++;
-	            try {
-                    Thread.sleep( WAIT_TIME - elapsed );
-	            } catch(InterruptedException ie) {} // We don't really mind if this gets interrupted.
-	        }
-	    case NONE:
-	        ApiRequest req = new ApiRequest(baseURL, versionString, extendedURL, apiKey, requestParams);
-	        response =  req.makeRequest();
-	        break;
-	    case THREADED:
-	        response =  sendGetRequestThrottled(baseURL, versionString, extendedURL, apiKey, requestParams);
-	    }
-	    // moved counter after request has been processed - guarantees that our time lags behind 
-	    // theirs instead of getting out in front by not accounting for the time it takes for
-	    // for them to process the request
-	    final long later = System.currentTimeMillis();
-        lastRequest = later;
-	    requests++;
+		switch (throttle) {
+		case NON_THREADED:
+			// wait for a permit from the limiter shared by every client of this host and key, or pool.
+			long waited = req.getLimiter().acquire();
+			if (waited > 0) {
+				throttledRequests.incrementAndGet();
+			}
+			req.addThrottleWait(waited);
+			response = req.makeRequest(reader);
+			break;
+		case NONE:
+			response = req.makeRequest(reader);
+			break;
+		case THREADED:
+			ApiRequestQueue.Future<T> fut = getRequestQueue().offer(req, reader, priority);
+			Deadline deadline = req.getDeadline();
+			response = deadline == null ? fut.await() : fut.await(deadline.remaining(TimeUnit.NANOSECONDS),
+			        TimeUnit.NANOSECONDS);
+		}
+		requests.incrementAndGet();
 	    
-        return response;
+		return response;
 	}
 	
 	public String sendGetRequestThrottled(String baseURL, String versionString, String extendedURL,
 	        String apiKey, String requestParams) throws IOException{
-		ApiRequest req = new ApiRequest(baseURL, versionString, extendedURL, apiKey, requestParams);
-		ApiRequestQueue.Future result = queue.offer(req);
-		String resultS = result.get();
-		if (result.getException() != null) 
-			throw result.getException();
-		return resultS;
+		ApiRequest req = new ApiRequest(transport(), keys, baseURL, versionString, extendedURL, key(baseURL, apiKey),
+		        requestParams);
+		return getRequestQueue().offer(req, priority).await();
 	}
 
-	private static String combineUrlParts(String first, String second) {
-		String ret = first;
-		if (!ret.endsWith("/")) {
-			ret = ret + "/";
+	/*
+	 * Consumes a decoded response body.
+	 */
+	interface BodyReader<T> {
+		T read(InputStream body) throws IOException;
+	}
+
+	static final BodyReader<String> STRING_BODY = new BodyReader<String>() {
+		public String read(InputStream body) throws IOException {
+			return ResponseDecoder.readString(body);
+		}
+	};
+
+	static final BodyReader<JSONObject> JSON_BODY = new BodyReader<JSONObject>() {
+		public JSONObject read(InputStream body) throws IOException {
+			try {
+				Object value = lazyJson ? new JsonReader(ResponseDecoder.readBytes(body)).nextLazyValue()
+				        : new JsonReader(body).nextValue();
+				if (!(value instanceof JSONObject))
+					throw new JSONException("A JSONObject text must begin with '{'");
+				return (JSONObject) value;
+			} catch (JSONException e) {
+				throw new JSONFailure(e);
+			}
 		}
-		if (second.startsWith("/"))
-			return ret + second.substring(1);
-		else
-			return ret + second;
+	};
+
+	/*
+	 * Carries a parse failure through code that only expects IOExceptions.
+	 */
+	private static class JSONFailure extends IOException {
+		private static final long serialVersionUID = -3112453876018526512L;
+
+		JSONFailure(JSONException cause) {
+			super(cause.getMessage());
+			initCause(cause);
+		}
+
+		@Override
+		public JSONException getCause() {
+			return (JSONException) super.getCause();
+		}
+	}
+
+	/*
+	 * Appends a part of a URL, with exactly one slash between it and what came before.
+	 */
+	private static void appendUrlPart(StringBuilder url, String part) {
+		if (url.length() == 0 || url.charAt(url.length() - 1) != '/')
+			url.append('/');
+		url.append(part, part.startsWith("/") ? 1 : 0, part.length());
 	}
 
+	/*
+	 * Request URLs are built in one builder per thread. A builder grown past this size by an
+	 * unusually long URL is dropped rather than kept.
+	 */
+	private static final int MAX_REUSED_URL_LENGTH = 4096;
+
+	private static final ThreadLocal<StringBuilder> urlBuilder = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+
 	public static class ApiRequest {
 		private HttpURLConnection conn;
 		private boolean used;
+		private final RateLimiter limiter;
+		private final AdaptiveThrottle control;
+		private final RequestMetrics.Endpoint metrics;
+		private final CircuitBreaker breaker;
+		private long throttleWait = 0;
+		private final HttpCache cache;
+		private final String canonicalUrl;
+		private final String route;
+		private HttpCache.Entry stale;
+		private final String apiKey;
+		private final KeyPool keys;
+		private final Deadline deadline;
+		private final Transport transport;
+		private int errorStatus = RequestMetrics.NO_STATUS;
 
 		public ApiRequest(String baseURL, String versionString, String extendedURL,
 		        String apiKey, String requestParams) throws IOException {
-			this.used = false;
-			
-			// Begin building up the request URL
-			String urlStr = baseURL;
+			this(getTransport(), null, baseURL, versionString, extendedURL, apiKey, requestParams);
+		}
 
-			urlStr = combineUrlParts(urlStr, versionString);
-			urlStr = combineUrlParts(urlStr, extendedURL);
-			// if no key, start with ? otherwise &
-			urlStr += (apiKey == null) ? "?" : "?key=" + apiKey + "&";
-			if (requestParams != null && requestParams.length() > 0) {
-				if (requestParams.startsWith("&")) {
-					// if the &amp; was on the beginning of the string, remove it
-					requestParams = requestParams.substring(1);
-				}
-				urlStr += requestParams;
-			}
+		/*
+		 * Creates a request made with the given key. If the key was picked from a pool, the request
+		 * waits on the limiter every key of the pool shares, since the API limits requests per IP.
+		 */
+		ApiRequest(Transport transport, KeyPool keys, String baseURL, String versionString, String extendedURL,
+		        String apiKey, String requestParams) throws IOException {
+			this(transport, keys, buildUrl(baseURL, versionString, extendedURL, apiKey, requestParams),
+			        extendedURL, apiKey, Deadline.current());
+		}
 
-			// Done building the string, now we create a request
+		private ApiRequest(Transport transport, KeyPool keys, String urlStr, String extendedURL, String apiKey,
+		        Deadline deadline) throws IOException {
+			this.used = false;
+			this.transport = transport;
+			this.keys = keys;
+			this.apiKey = apiKey;
+			this.deadline = deadline;
+			if (deadline != null)
+				deadline.check("the request was made");
 
 			URL url = new URL(urlStr);
-			HttpURLConnection conn;
-			if (proxyServer == null)
-				conn = (HttpURLConnection) url.openConnection();
-			else
-				conn = (HttpURLConnection) url.openConnection(proxyServer);
+			if (keys == null) {
+				limiter = RateLimiter.forKey(url.getHost(), apiKey);
+				control = AdaptiveThrottle.forLimiter(limiter);
+			} else {
+				limiter = RateLimiter.forHost(url.getHost());
+				control = AdaptiveThrottle.forKey(limiter, apiKey);
+			}
+			cache = getCache();
+			canonicalUrl = HttpCache.canonicalize(urlStr);
+			route = HttpCache.normalizeRoute(extendedURL);
+			String endpoint = AdaptiveThrottle.methodOf(route);
+			metrics = RequestMetrics.forEndpoint(endpoint);
+			breaker = CircuitBreaker.forEndpoint(endpoint);
+			HttpURLConnection conn = transport.open(url);
 			conn.setInstanceFollowRedirects(true);
 
-			conn.setReadTimeout(timeout);
-			conn.setConnectTimeout(timeout);
+			setTimeouts(conn);
 
 			// allow both GZip and Deflate (ZLib) encodings
 			conn.setRequestProperty("Accept-Encoding", "gzip, deflate");
@@ -225,45 +898,294 @@ public class HttpClient {
 			this.conn = conn;
 		}
 
+		private static String buildUrl(String baseURL, String versionString, String extendedURL,
+		        String apiKey, String requestParams) {
+			// Begin building up the request URL, in this thread's reusable builder
+			StringBuilder urlStr = urlBuilder.get();
+			urlStr.setLength(0);
+			urlStr.append(baseURL);
+			appendUrlPart(urlStr, versionString);
+			appendUrlPart(urlStr, extendedURL);
+			// if no key, start with ? otherwise &
+			if (apiKey == null)
+				urlStr.append('?');
+			else
+				urlStr.append("?key=").append(apiKey).append('&');
+			if (requestParams != null && requestParams.length() > 0) {
+				// if the &amp; was on the beginning of the string, skip it
+				urlStr.append(requestParams, requestParams.charAt(0) == '&' ? 1 : 0, requestParams.length());
+			}
+			String url = urlStr.toString();
+			if (urlStr.capacity() > MAX_REUSED_URL_LENGTH)
+				urlBuilder.remove();
+			return url;
+		}
+
+		/*
+		 * Creates an unused request for the same URL, to make it again.
+		 */
+		ApiRequest copy() throws IOException {
+			return new ApiRequest(transport, keys, conn.getURL().toString(), route, apiKey, deadline);
+		}
+
+		/*
+		 * Applies the timeout, shortened to the time left before the deadline.
+		 */
+		private void setTimeouts(HttpURLConnection conn) {
+			int limit = deadline == null ? timeout : deadline.limit(timeout);
+			conn.setReadTimeout(limit);
+			conn.setConnectTimeout(limit);
+		}
+
+		/*
+		 * Gets the deadline of the thread that created the request, or null.
+		 */
+		Deadline getDeadline() {
+			return deadline;
+		}
+
+		/*
+		 * Gets the HTTP status of the failed response, or RequestMetrics.NO_STATUS if the request
+		 * has not failed or failed without one.
+		 */
+		int getFailureStatus() {
+			return errorStatus;
+		}
+
+		/*
+		 * Gets how long to wait for this request before hedging it, or 0 if its endpoint has too
+		 * little history to tell.
+		 */
+		long hedgeDelayNanos() {
+			RequestMetrics.HistogramSnapshot latency = metrics.latency.snapshot();
+			if (latency.getCount() < MIN_HEDGE_SAMPLES)
+				return 0;
+			return (long) (latency.getPercentileMillis(HEDGE_PERCENTILE) * 1e6);
+		}
+
+		/*
+		 * Gets the circuit breaker of this request's endpoint.
+		 */
+		CircuitBreaker getBreaker() {
+			return breaker;
+		}
+
+		/**
+		 * Gets the rate limiter shared by all requests to this request's host and key, or by every key
+		 * of its pool.
+		 * @return the rate limiter for this request
+		 */
+		public RateLimiter getLimiter() {
+			return limiter;
+		}
+
+		/*
+		 * The request URL with its query parameters sorted, identifying the response.
+		 */
+		String getCanonicalUrl() {
+			return canonicalUrl;
+		}
+
+		/*
+		 * Serves the request from a fresh cache entry, or returns null. A stale entry that can be
+		 * revalidated turns this into a conditional request.
+		 */
+		<T> T readFromCache(BodyReader<T> reader) throws IOException {
+			if (cache == null || used)
+				return null;
+			HttpCache.Entry entry = cache.lookup(canonicalUrl);
+			if (entry == null)
+				return null;
+			if (entry.isFresh()) {
+				T cached = cache.read(entry, reader, false);
+				if (cached != null)
+					return cached;
+			} else {
+				stale = entry;
+				HttpCache.addValidators(entry, conn);
+			}
+			return null;
+		}
+
+		/*
+		 * Serves the request from any cache entry, fresh or not, for when its endpoint's circuit is
+		 * open. Fails if there is none.
+		 */
+		<T> T readFallback(BodyReader<T> reader) throws IOException {
+			if (cache != null) {
+				HttpCache.Entry entry = cache.lookupStale(canonicalUrl);
+				if (entry != null) {
+					T cached = cache.read(entry, reader, false);
+					if (cached != null)
+						return cached;
+				}
+			}
+			throw new CircuitOpenException(breaker.getEndpoint());
+		}
+
+		/*
+		 * Records time spent waiting for a rate limiter permit before the request is made.
+		 */
+		void addThrottleWait(long nanos) {
+			throttleWait += nanos;
+		}
+
+		/*
+		 * Gets the status of a failed request, if the server sent one.
+		 */
+		private int failureStatus() {
+			try {
+				int status = conn.getResponseCode();
+				return status > 0 ? status : RequestMetrics.NO_STATUS;
+			} catch (IOException e) {
+				return RequestMetrics.NO_STATUS;
+			}
+		}
+
+		/*
+		 * Tells whether a failure counts against the endpoint's circuit breaker: no response, a
+		 * timeout, or a 429 or 5xx response. Invalid requests and unreadable bodies don't, and
+		 * neither do cancelled requests.
+		 */
+		private boolean isOutage(IOException e) {
+			if (e instanceof JSONFailure)
+				return false;
+			if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException))
+				return false;
+			return errorStatus == RequestMetrics.NO_STATUS || errorStatus == 429 || errorStatus >= 500;
+		}
+
+		/*
+		 * Feeds the throttle fields of a response from the network to the limiter's controller.
+		 */
+		private <T> T observe(T response) {
+			if (response instanceof JSONObject)
+				control.observe(route, (JSONObject) response);
+			else if (response instanceof String)
+				control.observe(route, (String) response);
+			return response;
+		}
+
 		public String makeRequest() throws IOException {
+			return makeRequest(STRING_BODY);
+		}
+
+		<T> T makeRequest(BodyReader<T> reader) throws IOException {
 			if (used) 
 				throw new IOException("Content already read from this request.");
-			conn.connect();
-
-			// Request built, lets get a response
-			String encoding = conn.getContentEncoding();
-			InputStream inStr = null;
-
-			// create the appropriate stream wrapper based on
-			// the encoding type
-			if (encoding != null && encoding.equalsIgnoreCase("gzip")) {
-				inStr = new GZIPInputStream(conn.getInputStream());
-			} else if (encoding != null && encoding.equalsIgnoreCase("deflate")) {
-				inStr = new InflaterInputStream(conn.getInputStream(), new Inflater(true));
-			} else {
-				inStr = conn.getInputStream();
+			used = true;
+			if (deadline != null) {
+				if (control.getBackoffMillis(route) >= deadline.remaining(TimeUnit.MILLISECONDS))
+					throw new Deadline.Exceeded("The deadline would pass during the API's backoff from " + route + ".");
+			}
+			// the API asks for no more requests to a method until its backoff has passed
+			throttleWait += control.awaitBackoff(route);
+			metrics.throttleWait.record(throttleWait);
+			if (deadline != null) {
+				deadline.check("the request was made");
+				// the throttle took some of the time left
+				setTimeouts(conn);
 			}
+			// multiplexed requests share connections, so only HTTP/1.1 requests need one of their own
+			ConnectionPool.Lease lease = transport instanceof MultiplexedTransport ? ConnectionPool.Lease.NONE
+			        : ConnectionPool.acquire(conn.getURL());
+			metrics.inFlight.incrementAndGet();
+			InputStream body = null;
+			InputStream decoded = null;
+			boolean recorded = false;
+			long start = System.nanoTime();
+			try {
+				conn.connect();
+				long connected = System.nanoTime();
+				metrics.connect.record(connected - start);
+				try {
+					body = conn.getInputStream();
+				} catch (IOException e) {
+					// drain the error body too, otherwise the socket can't be reused
+					ConnectionPool.drain(conn.getErrorStream());
+					errorStatus = failureStatus();
+					metrics.error(errorStatus);
+					recorded = true;
+					throw e;
+				}
+				metrics.firstByte.record(System.nanoTime() - connected);
+
+				int status = conn.getResponseCode();
+				if (stale != null && status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					cache.revalidated(stale, conn);
+					T cached = cache.read(stale, reader, true);
+					if (cached == null)
+						throw new IOException("The cached response for " + canonicalUrl + " is no longer available.");
+					long elapsed = System.nanoTime() - start;
+					metrics.latency.record(elapsed);
+					metrics.completed.incrementAndGet();
+					breaker.record(false, elapsed);
+					return cached;
+				}
 
-			// we have a response, lets extract a JSON string
-			String result = "";
-			BufferedReader reader = new BufferedReader(new InputStreamReader(inStr));
-			StringBuffer sb = new StringBuffer();
-			String line;
-			while ((line = reader.readLine()) != null) {
-				sb.append(line);
+				// decode the body based on the encoding type and hand it straight to the reader
+				RequestMetrics.CountingInputStream raw = new RequestMetrics.CountingInputStream(body, true);
+				RequestMetrics.CountingInputStream text = new RequestMetrics.CountingInputStream(
+				        decoded = ResponseDecoder.decode(raw, conn.getContentEncoding()), false);
+				long readStart = System.nanoTime();
+				T response = read(reader, text, status);
+				long readTime = System.nanoTime() - readStart;
+				metrics.download.record(raw.getNanos());
+				metrics.decode.record(readTime - raw.getNanos());
+				metrics.compressedBytes.addAndGet(raw.getBytes());
+				metrics.decompressedBytes.addAndGet(text.getBytes());
+				long elapsed = System.nanoTime() - start;
+				metrics.latency.record(elapsed);
+				metrics.completed.incrementAndGet();
+				breaker.record(false, elapsed);
+				return observe(response);
+			} catch (IOException e) {
+				if (!recorded)
+					metrics.error(RequestMetrics.NO_STATUS);
+				breaker.record(isOutage(e), System.nanoTime() - start);
+				throw e;
+			} finally {
+				metrics.inFlight.decrementAndGet();
+				// read anything the decoder left behind so the connection goes back to the
+				// keep-alive pool
+				ConnectionPool.drain(body);
+				if (decoded != null && decoded != body)
+					decoded.close();
+				lease.release();
+			}
+		}
+
+		/*
+		 * Hands a decoded body to the reader, copying it to the cache on the way if it can be cached.
+		 */
+		private <T> T read(BodyReader<T> reader, InputStream decoded, int status) throws IOException {
+			HttpCache.Editor editor = null;
+			if (cache != null && status == HttpURLConnection.HTTP_OK)
+				editor = cache.edit(canonicalUrl, route, conn);
+			if (editor == null)
+				return reader.read(decoded);
+
+			// copy the body to the cache as the reader consumes it
+			InputStream tee = editor.tee(decoded);
+			try {
+				T response = reader.read(tee);
+				try {
+					editor.commit(tee);
+				} catch (IOException e) {
+					// the response is fine, it just doesn't get cached
+				}
+				return response;
+			} finally {
+				editor.abort();
 			}
-			reader.close();
-			result = sb.toString();
-			used = true;
-			return result;
 		}
 	}
 	
 	public int getRequests() {
-	    return requests;
+		return (int) requests.get();
 	}
 	
 	public int getThrottledRequests() {
-        return throttledRequests;
+        return (int) throttledRequests.get();
     }
 }
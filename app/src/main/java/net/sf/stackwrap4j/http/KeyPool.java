@@ -0,0 +1,134 @@
+package net.sf.stackwrap4j.http;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spreads requests over several app keys, each with its own daily quota, so a client can make as
+ * many requests a day as all of its keys together. The keys do not multiply the request rate: the
+ * API limits requests per IP, so every key of a pool waits on the host's one rate limiter (see
+ * RateLimiter.forHost).
+ *
+ * Each request goes out with the key that has the most quota left, as reported by the last
+ * response made with it (see AdaptiveThrottle), less the requests handed that key since. Keys that
+ * no response has reported on yet count as having the most, so every key is tried early, and keys
+ * with equal quota take turns.
+ *
+ * <pre>
+ * KeyPool keys = new KeyPool("key1", "key2", "key3");
+ * StackWrapper wrapper = new StackWrapper("stackoverflow.com", keys);
+ * </pre>
+ *
+ * Pools are thread-safe and can be shared by several clients.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public final class KeyPool {
+
+	private final List<String> keys;
+
+	/* Guarded by this. */
+	private final Map<String, Slot[]> hosts = new HashMap<String, Slot[]>();
+	private int next = 0;
+
+	/**
+	 * Creates a pool of app keys.
+	 *
+	 * @param keys
+	 *            the keys, at least one
+	 */
+	public KeyPool(String... keys) {
+		if (keys.length == 0)
+			throw new IllegalArgumentException("A key pool needs at least one key.");
+		for (String key : keys) {
+			if (key == null || key.length() == 0)
+				throw new IllegalArgumentException("The keys must not be empty.");
+		}
+		this.keys = Collections.unmodifiableList(Arrays.asList(keys.clone()));
+	}
+
+	public List<String> getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Gets the first key of the pool, used where a single key is needed.
+	 * @return the first key
+	 */
+	public String getPrimaryKey() {
+		return keys.get(0);
+	}
+
+	/**
+	 * Picks the key for a request.
+	 *
+	 * @param baseURL
+	 *            the URL of the API server (Example: "http://api.stackexchange.com/")
+	 * @return the key with the most quota left
+	 * @throws MalformedURLException
+	 *             if the URL is not valid
+	 */
+	synchronized String select(String baseURL) throws MalformedURLException {
+		Slot[] slots = hosts.get(baseURL);
+		if (slots == null) {
+			String host = new URL(baseURL).getHost();
+			slots = new Slot[keys.size()];
+			for (int i = 0; i < slots.length; i++) {
+				slots[i] = new Slot(keys.get(i), AdaptiveThrottle.forKey(RateLimiter.forHost(host), keys.get(i)));
+			}
+			hosts.put(baseURL, slots);
+		}
+		Slot best = null;
+		long bestHeadroom = Long.MIN_VALUE;
+		for (int i = 0; i < slots.length; i++) {
+			// start one further each time, so keys with equal headroom take turns
+			Slot slot = slots[(next + i) % slots.length];
+			long headroom = slot.headroom();
+			if (headroom > bestHeadroom) {
+				best = slot;
+				bestHeadroom = headroom;
+			}
+		}
+		next = (next + 1) % slots.length;
+		best.issued++;
+		return best.key;
+	}
+
+	@Override
+	public String toString() {
+		return "KeyPool[" + keys.size() + " keys]";
+	}
+
+	/*
+	 * One key's quota on one host. Guarded by the pool.
+	 */
+	private static final class Slot {
+		final String key;
+		final AdaptiveThrottle control;
+		int lastQuota = -1;
+		long issued = 0;
+
+		Slot(String key, AdaptiveThrottle control) {
+			this.key = key;
+			this.control = control;
+		}
+
+		/*
+		 * The quota left as of the last response less the requests handed out since it arrived.
+		 */
+		long headroom() {
+			int quota = control.getQuotaRemaining();
+			if (quota != lastQuota) {
+				lastQuota = quota;
+				issued = 0;
+			}
+			return (quota < 0 ? Integer.MAX_VALUE : quota) - issued;
+		}
+	}
+}
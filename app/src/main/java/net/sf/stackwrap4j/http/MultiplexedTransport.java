@@ -0,0 +1,18 @@
+package net.sf.stackwrap4j.http;
+
+/**
+ * A transport that multiplexes concurrent requests to a host over shared connections, for example
+ * one speaking HTTP/2.
+ *
+ * The ConnectionPool caps the connections open to one host, since every HTTP/1.1 request needs a
+ * connection of its own and the platform only keeps a few alive. Requests over a multiplexed
+ * transport take no connection of their own, so they skip that cap and leave it to the transport
+ * to limit its streams. A transport wrapping a client that negotiates HTTP/2, such as an
+ * HttpURLConnection factory backed by one, only needs to implement this interface instead of
+ * Transport.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public interface MultiplexedTransport extends Transport {
+}
@@ -0,0 +1,31 @@
+package net.sf.stackwrap4j.http;
+
+/**
+ * Defines the scheduling classes of the threaded request queue.
+ * INTERACTIVE - Requests a user is waiting on, such as opening a question.
+ * NORMAL - The default.
+ * BACKGROUND - Prefetching, crawling and synchronization.
+ * 
+ * Lanes are served weighted-fair, so a busy lane slows the others down but never stops them.
+ * 
+ * @author Bill Cruise
+ * @author Justin Nelson
+ *
+ */
+public enum Priority {
+	INTERACTIVE(6), NORMAL(3), BACKGROUND(1);
+
+	private final int weight;
+
+	private Priority(int weight) {
+		this.weight = weight;
+	}
+
+	/**
+	 * Gets the share of dispatches this lane gets while every lane has requests waiting.
+	 * @return the lane's weight
+	 */
+	public int getWeight() {
+		return weight;
+	}
+}
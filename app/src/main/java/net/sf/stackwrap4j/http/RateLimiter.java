@@ -0,0 +1,239 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A token bucket shared by every HttpClient talking to the same API host with the same key.
+ *
+ * The bucket holds up to burst permits and refills continuously at the configured rate. A request
+ * that finds the bucket empty reserves the next permit and parks until it is due, so concurrent
+ * callers are released in order and never exceed the rate between them.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class RateLimiter {
+
+	/**
+	 * The API drops requests from an IP making more than 30 requests a second.
+	 */
+	public static final int DEFAULT_BURST = 30;
+
+	/**
+	 * The sustained rate, one request every 170 ms.
+	 */
+	public static final double DEFAULT_RATE = 1000.0 / 170;
+
+	private static final ConcurrentMap<String, RateLimiter> limiters = new ConcurrentHashMap<String, RateLimiter>();
+	private static double defaultRate = DEFAULT_RATE;
+	private static int defaultBurst = DEFAULT_BURST;
+
+	private final String key;
+
+	/* Guarded by this. The rate last set through setRate, which throttle never exceeds. */
+	private double configuredRate;
+	private double permitsPerSecond;
+	private int burst;
+	private double storedPermits;
+	private long lastRefill;
+
+	/**
+	 * Creates a limiter that starts with a full bucket.
+	 *
+	 * @param permitsPerSecond
+	 *            the sustained request rate
+	 * @param burst
+	 *            the maximum number of requests that can be made back to back
+	 */
+	public RateLimiter(double permitsPerSecond, int burst) {
+		this(null, permitsPerSecond, burst);
+	}
+
+	private RateLimiter(String key, double permitsPerSecond, int burst) {
+		checkSettings(permitsPerSecond, burst);
+		this.key = key;
+		this.configuredRate = permitsPerSecond;
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.storedPermits = burst;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Gets the limiter shared by all requests to the given host with the given key.
+	 *
+	 * @param host
+	 *            the API host (Example: "api.stackexchange.com")
+	 * @param apiKey
+	 *            the API key, may be null
+	 * @return the shared limiter
+	 */
+	public static RateLimiter forKey(String host, String apiKey) {
+		String key = host + "|" + (apiKey == null ? "" : apiKey);
+		RateLimiter limiter = limiters.get(key);
+		if (limiter != null)
+			return limiter;
+		// created under the lock, so a limiter never misses a change of the defaults
+		synchronized (limiters) {
+			limiter = limiters.get(key);
+			if (limiter == null) {
+				limiter = new RateLimiter(key, defaultRate, defaultBurst);
+				limiters.put(key, limiter);
+			}
+			return limiter;
+		}
+	}
+
+	/**
+	 * Gets the limiter shared by the requests to the given host that are spread over a KeyPool. The
+	 * API's limit is per IP, whatever the key, so every key of a pool waits on this one limiter. It
+	 * is also the limiter of requests made without a key.
+	 *
+	 * @param host
+	 *            the API host (Example: "api.stackexchange.com")
+	 * @return the shared limiter
+	 */
+	public static RateLimiter forHost(String host) {
+		return forKey(host, null);
+	}
+
+	/**
+	 * Sets the rate and burst for every shared limiter, including those already created.
+	 *
+	 * @param permitsPerSecond
+	 *            the sustained request rate
+	 * @param burst
+	 *            the maximum number of requests that can be made back to back
+	 */
+	public static void setDefaults(double permitsPerSecond, int burst) {
+		checkSettings(permitsPerSecond, burst);
+		synchronized (limiters) {
+			defaultRate = permitsPerSecond;
+			defaultBurst = burst;
+			for (RateLimiter limiter : limiters.values()) {
+				limiter.setRate(permitsPerSecond, burst);
+			}
+		}
+	}
+
+	private static void checkSettings(double permitsPerSecond, int burst) {
+		if (!(permitsPerSecond > 0))
+			throw new IllegalArgumentException("The rate must be positive.");
+		if (burst < 1)
+			throw new IllegalArgumentException("The burst must be at least 1.");
+	}
+
+	/**
+	 * Changes the rate and burst of this limiter. Permits already stored are kept, up to the new burst.
+	 *
+	 * @param permitsPerSecond
+	 *            the sustained request rate
+	 * @param burst
+	 *            the maximum number of requests that can be made back to back
+	 */
+	public synchronized void setRate(double permitsPerSecond, int burst) {
+		checkSettings(permitsPerSecond, burst);
+		refill(System.nanoTime());
+		this.configuredRate = permitsPerSecond;
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		storedPermits = Math.min(storedPermits, burst);
+	}
+
+	/**
+	 * Slows this limiter down, never past the rate it was configured with. Unlike setRate, the
+	 * configured rate is kept, so a later call can speed the limiter back up to it.
+	 *
+	 * @param permitsPerSecond
+	 *            the rate to run at, at most the configured rate
+	 */
+	synchronized void throttle(double permitsPerSecond) {
+		checkSettings(permitsPerSecond, burst);
+		refill(System.nanoTime());
+		this.permitsPerSecond = Math.min(permitsPerSecond, configuredRate);
+	}
+
+	/**
+	 * Gets the rate last set through the constructor, setRate or setDefaults.
+	 * @return the configured rate
+	 */
+	synchronized double getConfiguredRate() {
+		return configuredRate;
+	}
+
+	public synchronized double getRate() {
+		return permitsPerSecond;
+	}
+
+	public synchronized int getBurst() {
+		return burst;
+	}
+
+	/**
+	 * Takes a permit, parking the calling thread until one is available.
+	 *
+	 * @return the time spent waiting, in nanoseconds
+	 * @throws InterruptedIOException
+	 *             if the thread is interrupted while waiting. The reserved permit is not returned.
+	 */
+	public long acquire() throws InterruptedIOException {
+		long wait = reserve();
+		if (wait <= 0)
+			return 0;
+		long deadline = System.nanoTime() + wait;
+		for (;;) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				return wait;
+			LockSupport.parkNanos(this, remaining);
+			if (Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the rate limiter.");
+			}
+		}
+	}
+
+	/**
+	 * Takes a permit only if one is available right now.
+	 *
+	 * @return true if a permit was taken
+	 */
+	public synchronized boolean tryAcquire() {
+		refill(System.nanoTime());
+		if (storedPermits < 1)
+			return false;
+		storedPermits -= 1;
+		return true;
+	}
+
+	/*
+	 * Takes the next permit, letting the bucket go negative so later callers queue up behind this one.
+	 * Returns how long the caller must wait before using the permit.
+	 */
+	private synchronized long reserve() {
+		long now = System.nanoTime();
+		refill(now);
+		storedPermits -= 1;
+		if (storedPermits >= 0)
+			return 0;
+		return (long) (-storedPermits * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+	}
+
+	private void refill(long now) {
+		long elapsed = now - lastRefill;
+		if (elapsed > 0) {
+			storedPermits = Math.min(burst,
+			        storedPermits + elapsed * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+			lastRefill = now;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimiter[" + key + "]";
+	}
+}
@@ -0,0 +1,379 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency and size measurements for every request made by any HttpClient, broken down by endpoint.
+ *
+ * Endpoints are routes with their id segments replaced (Example: "answers/{ids}", "search"). For
+ * each one the registry keeps latency histograms for connecting, the time to the first byte of the
+ * response, downloading and decoding the body, the whole exchange, and waiting on the throttle; the compressed and
+ * decompressed byte counts; the number of requests in flight; and error counts by HTTP status.
+ * Download and decode overlap, since bodies are parsed as they arrive, so download is the time
+ * spent waiting on the socket and decode is the rest of the time spent reading the body.
+ *
+ * Recording only touches atomic counters, so it never blocks a request. snapshot() copies the
+ * counters for reporting.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public final class RequestMetrics {
+
+	/**
+	 * The status recorded for failures that got no HTTP response, such as timeouts.
+	 */
+	public static final int NO_STATUS = -1;
+
+	private static final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+
+	// Disallow instantiation
+	private RequestMetrics() {
+	}
+
+	/**
+	 * Gets the recorder for an endpoint, creating it on first use.
+	 */
+	static Endpoint forEndpoint(String endpoint) {
+		Endpoint metrics = endpoints.get(endpoint);
+		if (metrics == null) {
+			Endpoint created = new Endpoint();
+			metrics = endpoints.putIfAbsent(endpoint, created);
+			if (metrics == null)
+				metrics = created;
+		}
+		return metrics;
+	}
+
+	/**
+	 * Copies the current measurements of every endpoint.
+	 * @return the measurements, sorted by endpoint
+	 */
+	public static Map<String, EndpointSnapshot> snapshot() {
+		Map<String, EndpointSnapshot> snapshot = new TreeMap<String, EndpointSnapshot>();
+		for (Map.Entry<String, Endpoint> e : endpoints.entrySet()) {
+			snapshot.put(e.getKey(), e.getValue().snapshot(e.getKey()));
+		}
+		return Collections.unmodifiableMap(snapshot);
+	}
+
+	/**
+	 * Forgets every measurement. Requests in flight are still counted when they finish.
+	 */
+	public static void reset() {
+		endpoints.clear();
+	}
+
+	/**
+	 * The live counters of one endpoint.
+	 */
+	static final class Endpoint {
+		final Histogram connect = new Histogram();
+		final Histogram firstByte = new Histogram();
+		final Histogram download = new Histogram();
+		final Histogram decode = new Histogram();
+		final Histogram latency = new Histogram();
+		final Histogram throttleWait = new Histogram();
+		final AtomicLong compressedBytes = new AtomicLong();
+		final AtomicLong decompressedBytes = new AtomicLong();
+		final AtomicLong inFlight = new AtomicLong();
+		final AtomicLong completed = new AtomicLong();
+		final ConcurrentMap<Integer, AtomicLong> errors = new ConcurrentHashMap<Integer, AtomicLong>();
+
+		void error(int status) {
+			Integer key = Integer.valueOf(status);
+			AtomicLong count = errors.get(key);
+			if (count == null) {
+				AtomicLong created = new AtomicLong();
+				count = errors.putIfAbsent(key, created);
+				if (count == null)
+					count = created;
+			}
+			count.incrementAndGet();
+		}
+
+		EndpointSnapshot snapshot(String name) {
+			Map<Integer, Long> errorCounts = new TreeMap<Integer, Long>();
+			for (Map.Entry<Integer, AtomicLong> e : errors.entrySet()) {
+				errorCounts.put(e.getKey(), e.getValue().get());
+			}
+			return new EndpointSnapshot(name, completed.get(), inFlight.get(), compressedBytes.get(),
+			        decompressedBytes.get(), connect.snapshot(), firstByte.snapshot(), download.snapshot(),
+			        decode.snapshot(), latency.snapshot(), throttleWait.snapshot(),
+			        Collections.unmodifiableMap(errorCounts));
+		}
+	}
+
+	/**
+	 * A latency histogram with power-of-two microsecond buckets.
+	 */
+	static final class Histogram {
+		private static final int BUCKETS = 40;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		void record(long nanos) {
+			if (nanos < 0)
+				nanos = 0;
+			long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+			int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			long max;
+			while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+			}
+		}
+
+		HistogramSnapshot snapshot() {
+			long[] copy = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				copy[i] = buckets.get(i);
+			}
+			return new HistogramSnapshot(copy, count.get(), totalNanos.get(), maxNanos.get());
+		}
+	}
+
+	/**
+	 * Counts the bytes read through a stream and, optionally, the time spent waiting on it. Used by
+	 * one request at a time, so the counts are plain fields, added to the endpoint once at the end.
+	 */
+	static final class CountingInputStream extends FilterInputStream {
+		private final boolean timed;
+		private long bytes = 0;
+		private long nanos = 0;
+
+		CountingInputStream(InputStream in, boolean timed) {
+			super(in);
+			this.timed = timed;
+		}
+
+		@Override
+		public int read() throws IOException {
+			long start = timed ? System.nanoTime() : 0;
+			int b = in.read();
+			if (timed)
+				nanos += System.nanoTime() - start;
+			if (b != -1)
+				bytes++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			long start = timed ? System.nanoTime() : 0;
+			int n = in.read(b, off, len);
+			if (timed)
+				nanos += System.nanoTime() - start;
+			if (n > 0)
+				bytes += n;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(n);
+			if (skipped > 0)
+				bytes += skipped;
+			return skipped;
+		}
+
+		long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Gets the time spent inside reads so far.
+		 */
+		long getNanos() {
+			return nanos;
+		}
+	}
+
+	/**
+	 * The measurements of one endpoint at the time of a snapshot.
+	 */
+	public static final class EndpointSnapshot {
+		private final String endpoint;
+		private final long completed;
+		private final long inFlight;
+		private final long compressedBytes;
+		private final long decompressedBytes;
+		private final HistogramSnapshot connect;
+		private final HistogramSnapshot firstByte;
+		private final HistogramSnapshot download;
+		private final HistogramSnapshot decode;
+		private final HistogramSnapshot latency;
+		private final HistogramSnapshot throttleWait;
+		private final Map<Integer, Long> errors;
+
+		EndpointSnapshot(String endpoint, long completed, long inFlight, long compressedBytes,
+		        long decompressedBytes, HistogramSnapshot connect, HistogramSnapshot firstByte,
+		        HistogramSnapshot download, HistogramSnapshot decode, HistogramSnapshot latency,
+		        HistogramSnapshot throttleWait,
+		        Map<Integer, Long> errors) {
+			this.endpoint = endpoint;
+			this.completed = completed;
+			this.inFlight = inFlight;
+			this.compressedBytes = compressedBytes;
+			this.decompressedBytes = decompressedBytes;
+			this.connect = connect;
+			this.firstByte = firstByte;
+			this.download = download;
+			this.decode = decode;
+			this.latency = latency;
+			this.throttleWait = throttleWait;
+			this.errors = errors;
+		}
+
+		public String getEndpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * Gets the number of requests that got a successful response.
+		 * @return the completed request count
+		 */
+		public long getCompleted() {
+			return completed;
+		}
+
+		public long getInFlight() {
+			return inFlight;
+		}
+
+		/**
+		 * Gets the number of response body bytes read off the network.
+		 * @return the compressed byte count
+		 */
+		public long getCompressedBytes() {
+			return compressedBytes;
+		}
+
+		/**
+		 * Gets the number of response body bytes after decompression.
+		 * @return the decompressed byte count
+		 */
+		public long getDecompressedBytes() {
+			return decompressedBytes;
+		}
+
+		public HistogramSnapshot getConnect() {
+			return connect;
+		}
+
+		public HistogramSnapshot getFirstByte() {
+			return firstByte;
+		}
+
+		public HistogramSnapshot getDownload() {
+			return download;
+		}
+
+		public HistogramSnapshot getDecode() {
+			return decode;
+		}
+
+		/**
+		 * Gets the time from connecting to the end of the response body of successful requests.
+		 * @return the request latency
+		 */
+		public HistogramSnapshot getLatency() {
+			return latency;
+		}
+
+		public HistogramSnapshot getThrottleWait() {
+			return throttleWait;
+		}
+
+		/**
+		 * Gets the number of failed requests by HTTP status, NO_STATUS for failures without one.
+		 * @return the error counts
+		 */
+		public Map<Integer, Long> getErrors() {
+			return errors;
+		}
+
+		@Override
+		public String toString() {
+			return endpoint + ": completed=" + completed + " inFlight=" + inFlight + " bytes="
+			        + compressedBytes + "/" + decompressedBytes + " connect=" + connect + " firstByte="
+			        + firstByte + " download=" + download + " decode=" + decode + " latency=" + latency
+			        + " throttleWait=" + throttleWait + " errors=" + errors;
+		}
+	}
+
+	/**
+	 * A latency histogram at the time of a snapshot. Percentiles are the upper bound of the
+	 * bucket they fall in, so they are accurate to within a factor of two.
+	 */
+	public static final class HistogramSnapshot {
+		private final long[] buckets;
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+
+		HistogramSnapshot(long[] buckets, long count, long totalNanos, long maxNanos) {
+			this.buckets = buckets;
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMeanMillis() {
+			return count == 0 ? 0 : totalNanos / 1e6 / count;
+		}
+
+		public double getMaxMillis() {
+			return maxNanos / 1e6;
+		}
+
+		/**
+		 * Estimates a percentile of the recorded latencies.
+		 *
+		 * @param percentile
+		 *            the percentile, between 0 and 100
+		 * @return the latency in milliseconds, or 0 if nothing was recorded
+		 */
+		public double getPercentileMillis(double percentile) {
+			long total = 0;
+			for (long b : buckets) {
+				total += b;
+			}
+			if (total == 0)
+				return 0;
+			long rank = (long) Math.ceil(total * percentile / 100.0);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank && buckets[i] > 0)
+					return Math.min((1L << i) / 1000.0, getMaxMillis());
+			}
+			return getMaxMillis();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "{n=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms}", count,
+			        getMeanMillis(), getPercentileMillis(50), getPercentileMillis(99), getMaxMillis());
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Turns a raw response body into a stream of JSON characters.
+ *
+ * Compressed bodies are inflated with pooled Inflaters and pooled input buffers, so a request
+ * allocates neither. The gzip header is parsed here, and the trailer's CRC32 and length are
+ * checked as soon as the inflater finishes, so a corrupt body fails before it is parsed or
+ * cached. Closing a decoded stream only returns its pooled resources; the raw body stays open for
+ * the caller to drain.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+final class ResponseDecoder {
+
+	static final int BUFFER_SIZE = 8192;
+	private static final int MAX_POOLED = 16;
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private static final ArrayDeque<Inflater> inflaters = new ArrayDeque<Inflater>();
+	private static final ArrayDeque<byte[]> byteBuffers = new ArrayDeque<byte[]>();
+	private static final ArrayDeque<char[]> charBuffers = new ArrayDeque<char[]>();
+
+	// Disallow instantiation
+	private ResponseDecoder() {
+	}
+
+	/**
+	 * Wraps a response body in the decoder for its content encoding.
+	 *
+	 * @param body
+	 *            the raw response body
+	 * @param encoding
+	 *            the Content-Encoding of the response, may be null
+	 * @return the decoded body. Closing it returns any pooled resources.
+	 * @throws IOException
+	 *             if the gzip header is malformed
+	 */
+	static InputStream decode(InputStream body, String encoding) throws IOException {
+		if (encoding != null && encoding.equalsIgnoreCase("gzip")) {
+			readGzipHeader(body);
+			return new PooledInflaterInputStream(body, true);
+		} else if (encoding != null && encoding.equalsIgnoreCase("deflate")) {
+			return new PooledInflaterInputStream(body, false);
+		}
+		return body;
+	}
+
+	/**
+	 * Creates a UTF-8 reader over a decoded body.
+	 *
+	 * @param in
+	 *            the decoded body
+	 * @return a reader of the JSON text
+	 */
+	static Reader reader(InputStream in) {
+		try {
+			return new InputStreamReader(in, "UTF-8");
+		} catch (java.io.UnsupportedEncodingException e) {
+			// every platform supports UTF-8
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a decoded body into a String, using a pooled character buffer.
+	 *
+	 * @param in
+	 *            the decoded body
+	 * @return the body text
+	 * @throws IOException
+	 *             if the body cannot be read
+	 */
+	static String readString(InputStream in) throws IOException {
+		Reader reader = reader(in);
+		char[] buffer = takeChars();
+		try {
+			StringBuilder sb = new StringBuilder(BUFFER_SIZE);
+			int n;
+			while ((n = reader.read(buffer)) != -1) {
+				sb.append(buffer, 0, n);
+			}
+			return sb.toString();
+		} finally {
+			giveChars(buffer);
+		}
+	}
+
+	/**
+	 * Reads a decoded body into a byte array, using a pooled buffer.
+	 *
+	 * @param in
+	 *            the decoded body
+	 * @return the body
+	 * @throws IOException
+	 *             if the body cannot be read
+	 */
+	static byte[] readBytes(InputStream in) throws IOException {
+		byte[] buffer = takeBytes();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			giveBytes(buffer);
+		}
+	}
+
+	static byte[] takeBytes() {
+		synchronized (byteBuffers) {
+			byte[] buffer = byteBuffers.poll();
+			return buffer != null ? buffer : new byte[BUFFER_SIZE];
+		}
+	}
+
+	static void giveBytes(byte[] buffer) {
+		synchronized (byteBuffers) {
+			if (byteBuffers.size() < MAX_POOLED)
+				byteBuffers.push(buffer);
+		}
+	}
+
+	static char[] takeChars() {
+		synchronized (charBuffers) {
+			char[] buffer = charBuffers.poll();
+			return buffer != null ? buffer : new char[BUFFER_SIZE];
+		}
+	}
+
+	static void giveChars(char[] buffer) {
+		synchronized (charBuffers) {
+			if (charBuffers.size() < MAX_POOLED)
+				charBuffers.push(buffer);
+		}
+	}
+
+	private static Inflater takeInflater() {
+		synchronized (inflaters) {
+			Inflater inf = inflaters.poll();
+			return inf != null ? inf : new Inflater(true);
+		}
+	}
+
+	private static void giveInflater(Inflater inf) {
+		inf.reset();
+		synchronized (inflaters) {
+			if (inflaters.size() < MAX_POOLED) {
+				inflaters.push(inf);
+				return;
+			}
+		}
+		inf.end();
+	}
+
+	/*
+	 * Skips the gzip member header (RFC 1952) so the rest can be inflated as raw deflate data.
+	 */
+	private static void readGzipHeader(InputStream in) throws IOException {
+		if (readUShort(in) != GZIP_MAGIC)
+			throw new ZipException("Not in GZIP format");
+		if (readUByte(in) != 8)
+			throw new ZipException("Unsupported compression method");
+		int flags = readUByte(in);
+		// modification time, extra flags and operating system
+		skipBytes(in, 6);
+		if ((flags & FEXTRA) == FEXTRA)
+			skipBytes(in, readUShort(in));
+		if ((flags & FNAME) == FNAME)
+			while (readUByte(in) != 0) {
+			}
+		if ((flags & FCOMMENT) == FCOMMENT)
+			while (readUByte(in) != 0) {
+			}
+		if ((flags & FHCRC) == FHCRC)
+			skipBytes(in, 2);
+	}
+
+	private static int readUShort(InputStream in) throws IOException {
+		int b = readUByte(in);
+		return (readUByte(in) << 8) | b;
+	}
+
+	private static int readUByte(InputStream in) throws IOException {
+		int b = in.read();
+		if (b == -1)
+			throw new EOFException("Unexpected end of GZIP header");
+		return b;
+	}
+
+	private static long readUInt(byte[] b, int off) {
+		return (b[off] & 0xffL) | (b[off + 1] & 0xffL) << 8 | (b[off + 2] & 0xffL) << 16
+				| (b[off + 3] & 0xffL) << 24;
+	}
+
+	private static void skipBytes(InputStream in, int n) throws IOException {
+		while (n-- > 0) {
+			readUByte(in);
+		}
+	}
+
+	/**
+	 * An InflaterInputStream that borrows its Inflater and buffer and returns them on close.
+	 * Closing it leaves the raw body open; the caller drains and closes that itself. For a gzip
+	 * body it checks the trailer against what was inflated, as GZIPInputStream does.
+	 */
+	private static final class PooledInflaterInputStream extends InflaterInputStream {
+		private final CRC32 crc;
+		private boolean trailerRead = false;
+		private boolean closed = false;
+
+		PooledInflaterInputStream(InputStream in, boolean gzip) {
+			super(in, takeInflater(), 1);
+			buf = takeBytes();
+			crc = gzip ? new CRC32() : null;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (crc == null)
+				return n;
+			if (n > 0)
+				crc.update(b, off, n);
+			if (inf.finished() && !trailerRead) {
+				trailerRead = true;
+				readTrailer();
+			}
+			return n;
+		}
+
+		/*
+		 * Reads the CRC32 and ISIZE that follow the deflate data. The inflater may already have
+		 * pulled some of the trailer into buf; the rest is still in the body.
+		 */
+		private void readTrailer() throws IOException {
+			byte[] trailer = new byte[8];
+			int buffered = Math.min(inf.getRemaining(), trailer.length);
+			System.arraycopy(buf, this.len - inf.getRemaining(), trailer, 0, buffered);
+			for (int i = buffered; i < trailer.length; i++) {
+				int b = in.read();
+				if (b == -1)
+					throw new EOFException("Unexpected end of GZIP trailer");
+				trailer[i] = (byte) b;
+			}
+			if (readUInt(trailer, 0) != crc.getValue()
+					|| readUInt(trailer, 4) != (inf.getBytesWritten() & 0xffffffffL))
+				throw new ZipException("Corrupt GZIP trailer");
+		}
+
+		@Override
+		public void close() {
+			if (closed)
+				return;
+			closed = true;
+			giveInflater(inf);
+			giveBytes(buf);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package net.sf.stackwrap4j.http;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How failed GET requests are retried.
+ *
+ * A request that fails without a response, times out or gets a response the API documents as
+ * temporary (429, 500, 502, 503 or 504) is made again after a backoff, up to the maximum number of
+ * attempts. Backoffs grow exponentially from the initial backoff up to the maximum, with full
+ * jitter: each is a random time between 0 and its cap, so clients that failed together don't
+ * retry together. Every attempt waits for the rate limiter like a new request, and no attempt is
+ * started that the thread's Deadline would cut short.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public final class RetryPolicy {
+
+	/**
+	 * Makes every request once.
+	 */
+	public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, TimeUnit.MILLISECONDS);
+
+	/**
+	 * Three attempts, with backoffs capped at 250 milliseconds and then 500.
+	 */
+	public static final RetryPolicy DEFAULT = new RetryPolicy(3, 250, 5000, TimeUnit.MILLISECONDS);
+
+	private static final Random jitter = new Random();
+
+	private final int maxAttempts;
+	private final long initialBackoffNanos;
+	private final long maxBackoffNanos;
+
+	/**
+	 * Creates a retry policy.
+	 *
+	 * @param maxAttempts
+	 *            the most times a request is made, 1 meaning no retries
+	 * @param initialBackoff
+	 *            the cap on the backoff before the first retry
+	 * @param maxBackoff
+	 *            the cap on any backoff
+	 * @param unit
+	 *            the unit of the backoffs
+	 */
+	public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, TimeUnit unit) {
+		if (maxAttempts < 1)
+			throw new IllegalArgumentException("A request must be made at least once.");
+		if (initialBackoff < 0 || maxBackoff < initialBackoff)
+			throw new IllegalArgumentException("The backoffs must be positive and the maximum at least the initial.");
+		this.maxAttempts = maxAttempts;
+		this.initialBackoffNanos = unit.toNanos(initialBackoff);
+		this.maxBackoffNanos = unit.toNanos(maxBackoff);
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public long getInitialBackoff(TimeUnit unit) {
+		return unit.convert(initialBackoffNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public long getMaxBackoff(TimeUnit unit) {
+		return unit.convert(maxBackoffNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Tells whether a request that failed with a status is worth making again.
+	 *
+	 * @param status
+	 *            the HTTP status of the failed response, or RequestMetrics.NO_STATUS
+	 * @return true if the failure may be temporary
+	 */
+	public boolean isRetryable(int status) {
+		switch (status) {
+		case RequestMetrics.NO_STATUS:
+		case 429:
+		case 500:
+		case 502:
+		case 503:
+		case 504:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/*
+	 * Picks the backoff before a retry, in nanoseconds.
+	 * @param retry 1 for the first retry
+	 */
+	long backoffNanos(int retry) {
+		long cap = initialBackoffNanos;
+		for (int i = 1; i < retry && cap < maxBackoffNanos; i++) {
+			cap *= 2;
+		}
+		cap = Math.min(cap, maxBackoffNanos);
+		if (cap <= 0)
+			return 0;
+		double fraction;
+		synchronized (jitter) {
+			fraction = jitter.nextDouble();
+		}
+		return (long) (cap * fraction);
+	}
+
+	@Override
+	public String toString() {
+		return "RetryPolicy[attempts=" + maxAttempts + ", backoff=" + getInitialBackoff(TimeUnit.MILLISECONDS) + "-"
+		        + getMaxBackoff(TimeUnit.MILLISECONDS) + "ms]";
+	}
+}
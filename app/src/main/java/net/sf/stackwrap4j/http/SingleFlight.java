@@ -0,0 +1,103 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent identical requests share one call.
+ *
+ * The first thread to ask for a URL makes the request on its own thread; threads asking for the
+ * same URL while it is in flight wait for that call and get the same result, or the same failure.
+ * A waiting thread gives up when its own Deadline passes, leaving the call to the others. Once the call completes it is forgotten, so later requests go out again (or to the cache).
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+final class SingleFlight {
+
+	private final Map<Key, ApiRequestQueue.Future<?>> calls = new HashMap<Key, ApiRequestQueue.Future<?>>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Makes a call, or joins the identical call already in flight.
+	 *
+	 * @param url
+	 *            the canonical URL of the request
+	 * @param reader
+	 *            how the response is read; only calls reading the same way are shared
+	 * @param call
+	 *            makes the request
+	 * @return the result of the shared call
+	 * @throws IOException
+	 *             if the shared call failed, or the thread was interrupted or its deadline passed
+	 *             while waiting for it
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T execute(String url, HttpClient.BodyReader<T> reader, Callable<T> call) throws IOException {
+		Key key = new Key(url, reader);
+		ApiRequestQueue.Future<T> fut;
+		boolean leader = false;
+		synchronized (calls) {
+			fut = (ApiRequestQueue.Future<T>) calls.get(key);
+			if (fut == null) {
+				fut = new ApiRequestQueue.Future<T>(null, null, call);
+				calls.put(key, fut);
+				leader = true;
+			}
+		}
+		if (!leader) {
+			hits.incrementAndGet();
+			return fut.join(Deadline.current());
+		}
+		misses.incrementAndGet();
+		try {
+			fut.run();
+		} finally {
+			synchronized (calls) {
+				calls.remove(key);
+			}
+		}
+		return fut.await();
+	}
+
+	/**
+	 * Gets the number of requests that joined a call already in flight.
+	 */
+	long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of requests that made their own call.
+	 */
+	long getMisses() {
+		return misses.get();
+	}
+
+	private static final class Key {
+		private final String url;
+		private final Object reader;
+
+		Key(String url, Object reader) {
+			this.url = url;
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return url.equals(other.url) && reader == other.reader;
+		}
+
+		@Override
+		public int hashCode() {
+			return url.hashCode() * 31 + System.identityHashCode(reader);
+		}
+	}
+}
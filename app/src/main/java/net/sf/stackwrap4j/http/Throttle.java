@@ -3,8 +3,11 @@ package net.sf.stackwrap4j.http;
 /**
  * Defines different throttling methods for HTTP requests.
  * NONE - User managed.
- * THREADED - Uses a request queue and makes requests on a separate thread.
- * NON_THREADED - Uses a simple timer to throttle requests to a maximum rate.
+ * THREADED - Uses a request queue and makes requests on separate threads, paced by the shared RateLimiter.
+ * NON_THREADED - Waits on the calling thread for a permit from the shared RateLimiter.
+ * 
+ * Whatever the method, requests wait out any backoff the API asks for, and the shared RateLimiter's
+ * rate follows the remaining quota (see AdaptiveThrottle).
  * 
  * @author Bill Cruise
  * @author Justin Nelson
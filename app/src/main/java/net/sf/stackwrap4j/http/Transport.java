@@ -0,0 +1,30 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Opens the connections API requests are made over.
+ *
+ * HttpClient only uses the HttpURLConnection API, so a transport can hand back any implementation
+ * of it: the platform's (see UrlConnectionTransport, the default), one routed elsewhere, or an
+ * in-memory stand-in for the API. The returned connection must not be connected yet; the request
+ * sets its headers and timeouts before connecting.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public interface Transport {
+
+	/**
+	 * Creates an unconnected connection for a request.
+	 *
+	 * @param url
+	 *            the request URL
+	 * @return the connection to make the request over
+	 * @throws IOException
+	 *             if the connection cannot be created
+	 */
+	HttpURLConnection open(URL url) throws IOException;
+}
@@ -0,0 +1,20 @@
+package net.sf.stackwrap4j.http;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * The default transport: the platform's HttpURLConnection, through HttpClient.proxyServer if one is set.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class UrlConnectionTransport implements Transport {
+
+	public HttpURLConnection open(URL url) throws IOException {
+		if (HttpClient.proxyServer == null)
+			return (HttpURLConnection) url.openConnection();
+		return (HttpURLConnection) url.openConnection(HttpClient.proxyServer);
+	}
+}
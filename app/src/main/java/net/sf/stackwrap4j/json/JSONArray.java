@@ -355,7 +355,7 @@ public class JSONArray {
             if (i > 0) {
                 sb.append(separator);
             }
-            sb.append(JSONObject.valueToString(this.myArrayList.get(i)));
+            sb.append(JSONObject.valueToString(opt(i)));
         }
         return sb.toString();
     }
@@ -379,7 +379,7 @@ public class JSONArray {
      */
     public Object opt(int index) {
         return (index < 0 || index >= length()) ?
-            null : this.myArrayList.get(index);
+            null : LazyValue.resolve(this.myArrayList.get(index));
     }
 
 
@@ -854,7 +854,7 @@ public class JSONArray {
         int i;
         StringBuffer sb = new StringBuffer("[");
         if (len == 1) {
-            sb.append(JSONObject.valueToString(this.myArrayList.get(0),
+            sb.append(JSONObject.valueToString(opt(0),
                     indentFactor, indent));
         } else {
             int newindent = indent + indentFactor;
@@ -866,7 +866,7 @@ public class JSONArray {
                 for (int j = 0; j < newindent; j += 1) {
                     sb.append(' ');
                 }
-                sb.append(JSONObject.valueToString(this.myArrayList.get(i),
+                sb.append(JSONObject.valueToString(opt(i),
                         indentFactor, newindent));
             }
             sb.append('\n');
@@ -899,7 +899,7 @@ public class JSONArray {
                 if (b) {
                     writer.write(',');
                 }
-                Object v = this.myArrayList.get(i);
+                Object v = opt(i);
                 if (v instanceof JSONObject) {
                     ((JSONObject)v).write(writer);
                 } else if (v instanceof JSONArray) {
@@ -25,6 +25,7 @@ SOFTWARE.
 */
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -191,7 +192,7 @@ public class JSONObject {
                 return;
             default:
                 x.back();
-                key = x.nextValue().toString();
+                key = x.nextKey();
             }
 
             /*
@@ -311,6 +312,19 @@ public class JSONObject {
     }
 
 
+    /**
+     * Construct a JSONObject from a Reader, parsing the text as it is read
+     * rather than reading it into a string first.
+     * @param reader    A reader positioned at the start of a JSON object
+     *  text.
+     * @exception JSONException If there is a syntax error in the source
+     *  text, a duplicated key, or the reader fails.
+     */
+    public JSONObject(Reader reader) throws JSONException {
+        this(new JSONTokener(reader));
+    }
+
+
     /**
      * Accumulate values under a key. It is similar to the put method except
      * that if there is already an object stored under the key then a
@@ -708,7 +722,7 @@ public class JSONObject {
      * @return      An object which is the value, or null if there is no value.
      */
     public Object opt(String key) {
-        return key == null ? null : this.map.get(key);
+        return key == null ? null : LazyValue.resolve(this.map.get(key));
     }
 
 
@@ -1164,7 +1178,7 @@ public class JSONObject {
      * or null if there was no value.
      */
     public Object remove(String key) {
-        return this.map.remove(key);
+        return LazyValue.resolve(this.map.remove(key));
     }
 
     /**
@@ -1208,10 +1222,13 @@ public class JSONObject {
 
         char b = s.charAt(0);
         if ((b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+') {
+            if (isPlainInteger(s)) {
+                return integerValue(parsePlainInteger(s));
+            }
             if (b == '0' && s.length() > 2 &&
                         (s.charAt(1) == 'x' || s.charAt(1) == 'X')) {
                 try {
-                    return new Integer(Integer.parseInt(s.substring(2), 16));
+                    return Integer.valueOf(Integer.parseInt(s.substring(2), 16));
                 } catch (Exception ignore) {
                 }
             }
@@ -1220,12 +1237,7 @@ public class JSONObject {
                 		s.indexOf('e') > -1 || s.indexOf('E') > -1) {
                     return Double.valueOf(s);
                 } else {
-                    Long myLong = new Long(s);
-                    if (myLong.longValue() == myLong.intValue()) {
-                        return new Integer(myLong.intValue());
-                    } else {
-                        return myLong;
-                    }
+                    return integerValue(Long.parseLong(s));
                 }
             }  catch (Exception ignore) {
             }
@@ -1234,6 +1246,60 @@ public class JSONObject {
     }
 
 
+    /**
+     * Tell whether some text is a decimal integer of at most 18 digits,
+     * with an optional minus sign. That is how every id, count, score and
+     * date the API sends is written, and it always fits in a long.
+     * @param s The text.
+     * @return true if parsePlainInteger can read it.
+     */
+    static boolean isPlainInteger(CharSequence s) {
+        int length = s.length();
+        int i = length > 0 && s.charAt(0) == '-' ? 1 : 0;
+        if (i == length || length - i > 18) {
+            return false;
+        }
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Read a plain integer straight from its characters, without making a
+     * String or a Long of it first.
+     * @param s Text that isPlainInteger accepts.
+     * @return The integer.
+     */
+    static long parsePlainInteger(CharSequence s) {
+        int length = s.length();
+        boolean negative = s.charAt(0) == '-';
+        long value = 0;
+        for (int i = negative ? 1 : 0; i < length; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+
+    /**
+     * Box an integer as an Integer if it fits in one, as a Long if not.
+     * Small values come from the boxes' caches.
+     * @param value The integer.
+     * @return An Integer or a Long.
+     */
+    static Object integerValue(long value) {
+        if (value == (int) value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+
     /**
      * Throw an exception if the object is an NaN or infinite number.
      * @param o The object to test.
@@ -1299,7 +1365,7 @@ public class JSONObject {
                 Object o = keys.next();
                 sb.append(quote(o.toString()));
                 sb.append(':');
-                sb.append(valueToString(this.map.get(o)));
+                sb.append(valueToString(opt(o.toString())));
             }
             sb.append('}');
             return sb.toString();
@@ -1353,7 +1419,7 @@ public class JSONObject {
             o = keys.next();
             sb.append(quote(o.toString()));
             sb.append(": ");
-            sb.append(valueToString(this.map.get(o), indentFactor,
+            sb.append(valueToString(opt(o.toString()), indentFactor,
                     indent));
         } else {
             while (keys.hasNext()) {
@@ -1368,7 +1434,7 @@ public class JSONObject {
                 }
                 sb.append(quote(o.toString()));
                 sb.append(": ");
-                sb.append(valueToString(this.map.get(o), indentFactor,
+                sb.append(valueToString(opt(o.toString()), indentFactor,
                         newindent));
             }
             if (sb.length() > 1) {
@@ -1565,7 +1631,7 @@ public class JSONObject {
                 Object k = keys.next();
                 writer.write(quote(k.toString()));
                 writer.write(':');
-                Object v = this.map.get(k);
+                Object v = opt(k.toString());
                 if (v instanceof JSONObject) {
                     ((JSONObject)v).write(writer);
                 } else if (v instanceof JSONArray) {
@@ -45,6 +45,7 @@ class JSONTokener {
     private char 	previous;
     private Reader 	reader;
     private boolean usePrevious;
+    private final StringBuilder string = new StringBuilder();
 
 
     /**
@@ -238,8 +239,30 @@ class JSONTokener {
      * @throws JSONException Unterminated string.
      */
     public String nextString(char quote) throws JSONException {
+        return nextString(quote, SymbolTable.VALUES);
+    }
+
+
+    /**
+     * Get the next key of an object. Quoted keys are taken from the
+     * table of names, so each occurrence of a key is the same String.
+     * @return      A String.
+     * @throws JSONException If the key is malformed.
+     */
+    String nextKey() throws JSONException {
+        char c = nextClean();
+        if (c == '"' || c == '\'') {
+            return nextString(c, SymbolTable.NAMES);
+        }
+        back();
+        return nextValue().toString();
+    }
+
+
+    private String nextString(char quote, SymbolTable symbols) throws JSONException {
         char c;
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = this.string;
+        sb.setLength(0);
         for (;;) {
             c = next();
             switch (c) {
@@ -280,7 +303,7 @@ class JSONTokener {
                 break;
             default:
                 if (c == quote) {
-                    return sb.toString();
+                    return symbols.get(sb);
                 }
                 sb.append(c);
             }
@@ -365,14 +388,23 @@ class JSONTokener {
          * formatting character.
          */
 
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = this.string;
+        sb.setLength(0);
         while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
             sb.append(c);
             c = next();
         }
         back();
 
-        s = sb.toString().trim();
+        /*
+         * Integers, the bulk of the unquoted values, are read straight from
+         * the characters. Short text such as true, false and null comes from
+         * the table of values, so neither makes a new String.
+         */
+        if (JSONObject.isPlainInteger(sb)) {
+            return JSONObject.integerValue(JSONObject.parsePlainInteger(sb));
+        }
+        s = SymbolTable.VALUES.get(sb).trim();
         if (s.equals("")) {
             throw syntaxError("Missing value");
         }
@@ -0,0 +1,805 @@
+package net.sf.stackwrap4j.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a JSON document one token at a time, straight from UTF-8 bytes.
+ *
+ * Unlike JSONTokener, which reads characters one at a time through a Reader and always builds a
+ * complete JSONObject or JSONArray tree, a JsonReader scans bytes in a growable buffer and hands
+ * each value to the caller as it is reached. Names and strings are decoded from UTF-8 into a
+ * reused character buffer, numbers are parsed to primitives without an intermediate String, and
+ * values the caller does not need are skipped without being decoded at all.
+ *
+ * <pre>
+ * JsonReader reader = new JsonReader(in);
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     String name = reader.nextName();
+ *     if (name.equals("quota_remaining"))
+ *         quota = reader.nextInt();
+ *     else
+ *         reader.skipValue();
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * The reader accepts strict JSON, as the API sends it. A reader is not thread-safe.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public final class JsonReader implements Closeable {
+
+    /**
+     * The kinds of token a document is made of.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /* What the reader is inside of, and what it expects next. */
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private static final long MIN_LONG_DIV_10 = Long.MIN_VALUE / 10;
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private long consumed = 0;
+
+    private int[] stack = new int[32];
+    private int depth = 1;
+    private Token peeked = null;
+
+    private char[] chars = new char[64];
+
+    /**
+     * Creates a reader of a stream of UTF-8 bytes. The stream is read as the document is, in
+     * blocks, and closed by close().
+     *
+     * @param in
+     *            the stream
+     */
+    public JsonReader(InputStream in) {
+        if (in == null)
+            throw new IllegalArgumentException("The stream must not be null.");
+        this.in = in;
+        this.buf = new byte[DEFAULT_BUFFER_SIZE];
+        this.pos = 0;
+        this.limit = 0;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Creates a reader of a document already in memory, without copying it.
+     *
+     * @param data
+     *            the document, in UTF-8
+     */
+    public JsonReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    /**
+     * Creates a reader of part of an array, without copying it.
+     *
+     * @param data
+     *            the array holding the document, in UTF-8
+     * @param offset
+     *            the index of the document's first byte
+     * @param length
+     *            the length of the document in bytes
+     */
+    public JsonReader(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length)
+            throw new IndexOutOfBoundsException("The document is not within the array.");
+        this.in = null;
+        this.buf = data;
+        this.pos = offset;
+        this.limit = offset + length;
+        this.consumed = -offset;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Gets the type of the next token without consuming it.
+     *
+     * @return the next token's type, END_DOCUMENT once the document has been read
+     * @throws IOException
+     *             if the stream cannot be read
+     * @throws JSONException
+     *             if the document is malformed
+     */
+    public Token peek() throws IOException, JSONException {
+        if (peeked != null)
+            return peeked;
+        int c;
+        switch (stack[depth - 1]) {
+        case EMPTY_ARRAY:
+            stack[depth - 1] = NONEMPTY_ARRAY;
+            c = nextNonWhitespace();
+            if (c == ']') {
+                pos++;
+                return peeked = Token.END_ARRAY;
+            }
+            break;
+        case NONEMPTY_ARRAY:
+            c = nextNonWhitespace();
+            pos++;
+            if (c == ']')
+                return peeked = Token.END_ARRAY;
+            if (c != ',')
+                throw syntaxError("Expected ',' or ']'", -1);
+            c = nextNonWhitespace();
+            break;
+        case EMPTY_OBJECT:
+        case NONEMPTY_OBJECT:
+            boolean first = stack[depth - 1] == EMPTY_OBJECT;
+            stack[depth - 1] = DANGLING_NAME;
+            c = nextNonWhitespace();
+            pos++;
+            if (c == '}')
+                return peeked = Token.END_OBJECT;
+            if (!first) {
+                if (c != ',')
+                    throw syntaxError("Expected ',' or '}'", -1);
+                c = nextNonWhitespace();
+                pos++;
+            }
+            if (c != '"')
+                throw syntaxError("Expected a name", -1);
+            return peeked = Token.NAME;
+        case DANGLING_NAME:
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            c = nextNonWhitespace();
+            pos++;
+            if (c != ':')
+                throw syntaxError("Expected ':'", -1);
+            c = nextNonWhitespace();
+            break;
+        case EMPTY_DOCUMENT:
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+            c = nextNonWhitespace();
+            break;
+        default:
+            if (nextNonWhitespace() != -1)
+                throw syntaxError("Expected the end of the document", 0);
+            return peeked = Token.END_DOCUMENT;
+        }
+        switch (c) {
+        case '{':
+            pos++;
+            return peeked = Token.BEGIN_OBJECT;
+        case '[':
+            pos++;
+            return peeked = Token.BEGIN_ARRAY;
+        case '"':
+            pos++;
+            return peeked = Token.STRING;
+        case 't':
+        case 'f':
+            return peeked = Token.BOOLEAN;
+        case 'n':
+            return peeked = Token.NULL;
+        case -1:
+            throw syntaxError("Unexpected end of the document", 0);
+        default:
+            if (c == '-' || (c >= '0' && c <= '9'))
+                return peeked = Token.NUMBER;
+            throw syntaxError("Expected a value", 0);
+        }
+    }
+
+    public void beginObject() throws IOException, JSONException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException, JSONException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException, JSONException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException, JSONException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Tells whether the current object or array has another element.
+     * @return false if the next token ends the object, array or document
+     */
+    public boolean hasNext() throws IOException, JSONException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the name of the next member of the current object.
+     * @return the name
+     */
+    public String nextName() throws IOException, JSONException {
+        expect(Token.NAME);
+        return readString(SymbolTable.NAMES);
+    }
+
+    /**
+     * Consumes a string value. Numbers are returned as they were written.
+     * @return the string
+     */
+    public String nextString() throws IOException, JSONException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            return readString(SymbolTable.VALUES);
+        }
+        if (token == Token.NUMBER) {
+            peeked = null;
+            int length = numberLength();
+            String text = ascii(length);
+            pos += length;
+            return text;
+        }
+        throw unexpected("a string", token);
+    }
+
+    public boolean nextBoolean() throws IOException, JSONException {
+        expect(Token.BOOLEAN);
+        if (buf[pos] == 't') {
+            literal("true");
+            return true;
+        }
+        literal("false");
+        return false;
+    }
+
+    public void nextNull() throws IOException, JSONException {
+        expect(Token.NULL);
+        literal("null");
+    }
+
+    /**
+     * Consumes a number that fits in a long. Strings holding such a number are accepted too, as
+     * JSONObject.getLong does.
+     * @return the number
+     */
+    public long nextLong() throws IOException, JSONException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            return parseLong(readString(null));
+        }
+        if (token != Token.NUMBER)
+            throw unexpected("a number", token);
+        peeked = null;
+        int length = numberLength();
+        int end = pos + length;
+        int p = pos;
+        boolean negative = p < end && buf[p] == '-';
+        if (negative)
+            p++;
+        // accumulate negatively, so Long.MIN_VALUE can be read too
+        long value = 0;
+        boolean exact = p < end;
+        for (; p < end; p++) {
+            int digit = buf[p] - '0';
+            if (digit < 0 || digit > 9 || value < MIN_LONG_DIV_10 || (value == MIN_LONG_DIV_10 && digit > 8)) {
+                exact = false;
+                break;
+            }
+            value = value * 10 - digit;
+        }
+        if (exact && (negative || value != Long.MIN_VALUE)) {
+            pos = end;
+            return negative ? value : -value;
+        }
+        // a fraction, an exponent or more digits than a long holds
+        String text = ascii(length);
+        pos = end;
+        return parseLong(text);
+    }
+
+    /**
+     * Consumes a number that fits in an int.
+     * @return the number
+     */
+    public int nextInt() throws IOException, JSONException {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new JSONException(value + " is not an int" + position());
+        return (int) value;
+    }
+
+    public double nextDouble() throws IOException, JSONException {
+        String text = nextString();
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new JSONException("\"" + text + "\" is not a number" + position());
+        }
+    }
+
+    /**
+     * Consumes the next value, and everything nested in it, without decoding it.
+     */
+    public void skipValue() throws IOException, JSONException {
+        int nesting = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            switch (token) {
+            case BEGIN_OBJECT:
+                push(EMPTY_OBJECT);
+                nesting++;
+                break;
+            case BEGIN_ARRAY:
+                push(EMPTY_ARRAY);
+                nesting++;
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                depth--;
+                nesting--;
+                break;
+            case NAME:
+            case STRING:
+                skipString();
+                break;
+            case NUMBER:
+                pos += numberLength();
+                break;
+            case BOOLEAN:
+                literal(buf[pos] == 't' ? "true" : "false");
+                break;
+            case NULL:
+                literal("null");
+                break;
+            default:
+                throw unexpected("a value", token);
+            }
+        } while (nesting > 0);
+    }
+
+    /**
+     * Consumes the next value as the JSONObject, JSONArray, String, Boolean, Integer, Long, Double
+     * or JSONObject.NULL that JSONTokener would have built for it.
+     * @return the value
+     */
+    public Object nextValue() throws IOException, JSONException {
+        Token token = peek();
+        switch (token) {
+        case BEGIN_OBJECT:
+            JSONObject object = new JSONObject();
+            beginObject();
+            while (hasNext()) {
+                String name = nextName();
+                object.put(name, nextValue());
+            }
+            endObject();
+            return object;
+        case BEGIN_ARRAY:
+            JSONArray array = new JSONArray();
+            beginArray();
+            while (hasNext()) {
+                array.put(nextValue());
+            }
+            endArray();
+            return array;
+        case STRING:
+            return nextString();
+        case NUMBER:
+            int length = numberLength();
+            for (int i = pos; i < pos + length; i++) {
+                byte b = buf[i];
+                if (b == '.' || b == 'e' || b == 'E')
+                    return Double.valueOf(nextDouble());
+            }
+            return JSONObject.integerValue(nextLong());
+        case BOOLEAN:
+            return Boolean.valueOf(nextBoolean());
+        case NULL:
+            nextNull();
+            return JSONObject.NULL;
+        default:
+            throw unexpected("a value", token);
+        }
+    }
+
+    /**
+     * Consumes the next value like nextValue, but without decoding the strings, objects and arrays
+     * nested in it. A single scan records where every value of the document is, and each is
+     * decoded the first time JSONObject.opt or JSONArray.opt, and so every get method, asks for it
+     * (see LazyDocument). The document must be in memory, and must not be changed while the value
+     * is in use.
+     * @return the value
+     * @throws IllegalStateException
+     *             if the reader reads a stream
+     */
+    public Object nextLazyValue() throws IOException, JSONException {
+        if (in != null)
+            throw new IllegalStateException("Only a document in memory can be read lazily.");
+        Token token = peek();
+        if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY)
+            return nextValue();
+        LazyDocument document = new LazyDocument(new JsonReader(buf, 0, limit), scan());
+        return document.decode(0);
+    }
+
+    /**
+     * Closes the underlying stream, if any.
+     */
+    public void close() throws IOException {
+        if (in != null)
+            in.close();
+    }
+
+    @Override
+    public String toString() {
+        return "JsonReader" + position();
+    }
+
+    private void expect(Token expected) throws IOException, JSONException {
+        Token token = peek();
+        if (token != expected)
+            throw unexpected(expected.name(), token);
+        peeked = null;
+    }
+
+    /*
+     * Consumes the next value, recording where each value nested in it starts. The tape holds two
+     * ints per value: its type, with the tape index past the end of its members for objects and
+     * arrays, and the position of its first byte. A member's name is recorded before its value.
+     */
+    private int[] scan() throws IOException, JSONException {
+        int[] tape = new int[256];
+        int size = 0;
+        int[] open = new int[16];
+        int nesting = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            if (size + 2 > tape.length)
+                tape = Arrays.copyOf(tape, tape.length * 2);
+            switch (token) {
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                push(token == Token.BEGIN_OBJECT ? EMPTY_OBJECT : EMPTY_ARRAY);
+                if (nesting == open.length)
+                    open = Arrays.copyOf(open, nesting * 2);
+                open[nesting++] = size;
+                tape[size++] = token == Token.BEGIN_OBJECT ? LazyDocument.OBJECT : LazyDocument.ARRAY;
+                // peek has consumed the bracket
+                tape[size++] = pos - 1;
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                depth--;
+                tape[open[--nesting]] |= size << LazyDocument.TYPE_BITS;
+                break;
+            case NAME:
+            case STRING:
+                tape[size++] = token == Token.NAME ? LazyDocument.NAME : LazyDocument.STRING;
+                // peek has consumed the opening quote
+                tape[size++] = pos - 1;
+                skipString();
+                break;
+            case NUMBER:
+                tape[size++] = LazyDocument.SCALAR;
+                tape[size++] = pos;
+                pos += numberLength();
+                break;
+            case BOOLEAN:
+                tape[size++] = LazyDocument.SCALAR;
+                tape[size++] = pos;
+                literal(buf[pos] == 't' ? "true" : "false");
+                break;
+            case NULL:
+                tape[size++] = LazyDocument.SCALAR;
+                tape[size++] = pos;
+                literal("null");
+                break;
+            default:
+                throw unexpected("a value", token);
+            }
+        } while (nesting > 0);
+        return tape;
+    }
+
+    /*
+     * Reads the name starting at a position of the document, for a LazyDocument.
+     */
+    String nameAt(int position) throws IOException, JSONException {
+        // past the opening quote
+        pos = position + 1;
+        peeked = null;
+        return readString(SymbolTable.NAMES);
+    }
+
+    /*
+     * Reads the single value starting at a position of the document, for a LazyDocument.
+     */
+    Object valueAt(int position) throws IOException, JSONException {
+        pos = position;
+        peeked = null;
+        depth = 1;
+        stack[0] = EMPTY_DOCUMENT;
+        return nextValue();
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length)
+            stack = Arrays.copyOf(stack, depth * 2);
+        stack[depth++] = scope;
+    }
+
+    /*
+     * Makes sure the buffer holds at least the given number of bytes from pos on, moving what is
+     * left to its start and growing it as needed. Returns false if the document ends first.
+     */
+    private boolean fill(int minimum) throws IOException {
+        if (limit - pos >= minimum)
+            return true;
+        if (in == null)
+            return false;
+        if (pos > 0) {
+            consumed += pos;
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (buf.length < minimum)
+            buf = Arrays.copyOf(buf, Math.max(minimum, buf.length * 2));
+        while (limit < minimum) {
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0)
+                return false;
+            limit += read;
+        }
+        return true;
+    }
+
+    /*
+     * Skips whitespace and returns the next byte without consuming it, or -1 at the end.
+     */
+    private int nextNonWhitespace() throws IOException {
+        for (;;) {
+            while (pos < limit) {
+                int c = buf[pos];
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                    return c;
+                pos++;
+            }
+            if (!fill(1))
+                return -1;
+        }
+    }
+
+    /*
+     * Counts the bytes of the number at pos, making sure they are all in the buffer.
+     */
+    private int numberLength() throws IOException {
+        int length = 0;
+        for (;;) {
+            while (pos + length < limit) {
+                byte b = buf[pos + length];
+                if ((b < '0' || b > '9') && b != '-' && b != '+' && b != '.' && b != 'e' && b != 'E')
+                    return length;
+                length++;
+            }
+            if (!fill(length + 1))
+                return length;
+        }
+    }
+
+    private String ascii(int length) {
+        char[] chars = this.chars;
+        if (chars.length < length)
+            chars = this.chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) buf[pos + i];
+        }
+        return new String(chars, 0, length);
+    }
+
+    private long parseLong(String text) throws JSONException {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            try {
+                double value = Double.parseDouble(text);
+                if (value == (long) value)
+                    return (long) value;
+            } catch (NumberFormatException ignore) {
+            }
+            throw new JSONException("\"" + text + "\" is not a long" + position());
+        }
+    }
+
+    private void literal(String word) throws IOException, JSONException {
+        int length = word.length();
+        if (!fill(length))
+            throw syntaxError("Unexpected end of the document", 0);
+        for (int i = 0; i < length; i++) {
+            if (buf[pos + i] != word.charAt(i))
+                throw syntaxError("Expected " + word, 0);
+        }
+        pos += length;
+    }
+
+    /*
+     * Decodes the string whose opening quote was consumed, up to and including its closing quote.
+     * Short strings are taken from the symbol table, if one is given.
+     */
+    private String readString(SymbolTable symbols) throws IOException, JSONException {
+        char[] chars = this.chars;
+        int n = 0;
+        for (;;) {
+            // plain ASCII, the bulk of every document, is copied a byte at a time
+            byte[] b = buf;
+            int p = pos;
+            int l = limit;
+            while (p < l) {
+                int c = b[p];
+                if (c == '"') {
+                    pos = p + 1;
+                    return symbols != null ? symbols.get(chars, 0, n) : new String(chars, 0, n);
+                }
+                if (c == '\\' || c < 0x20)
+                    break;
+                if (n == chars.length)
+                    chars = this.chars = Arrays.copyOf(chars, n * 2);
+                chars[n++] = (char) c;
+                p++;
+            }
+            pos = p;
+            if (p == l) {
+                if (!fill(1))
+                    throw syntaxError("Unterminated string", 0);
+                continue;
+            }
+            if (n + 2 > chars.length)
+                chars = this.chars = Arrays.copyOf(chars, n * 2 + 2);
+            int c = buf[pos];
+            if (c == '\\') {
+                n = readEscape(chars, n);
+            } else if (c >= 0) {
+                throw syntaxError("Unescaped control character in string", 0);
+            } else {
+                n = readMultibyte(chars, n);
+            }
+        }
+    }
+
+    private int readEscape(char[] chars, int n) throws IOException, JSONException {
+        if (!fill(2))
+            throw syntaxError("Unterminated string", 0);
+        byte escaped = buf[pos + 1];
+        pos += 2;
+        switch (escaped) {
+        case 'b':
+            chars[n++] = '\b';
+            break;
+        case 't':
+            chars[n++] = '\t';
+            break;
+        case 'n':
+            chars[n++] = '\n';
+            break;
+        case 'f':
+            chars[n++] = '\f';
+            break;
+        case 'r':
+            chars[n++] = '\r';
+            break;
+        case 'u':
+            if (!fill(4))
+                throw syntaxError("Unterminated string", 0);
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = JSONTokener.dehexchar((char) buf[pos + i]);
+                if (digit < 0)
+                    throw syntaxError("Illegal escape.", 0);
+                value = (value << 4) | digit;
+            }
+            pos += 4;
+            chars[n++] = (char) value;
+            break;
+        case '"':
+        case '\\':
+        case '/':
+            chars[n++] = (char) escaped;
+            break;
+        default:
+            throw syntaxError("Illegal escape.", -1);
+        }
+        return n;
+    }
+
+    /*
+     * Decodes one UTF-8 sequence of two to four bytes.
+     */
+    private int readMultibyte(char[] chars, int n) throws IOException, JSONException {
+        int lead = buf[pos] & 0xFF;
+        int length;
+        int codePoint;
+        if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 4;
+            codePoint = lead & 0x07;
+        } else if (lead >= 0xE0) {
+            length = 3;
+            codePoint = lead & 0x0F;
+        } else if (lead >= 0xC2) {
+            length = 2;
+            codePoint = lead & 0x1F;
+        } else {
+            throw syntaxError("Malformed UTF-8", 0);
+        }
+        if (!fill(length))
+            throw syntaxError("Unterminated string", 0);
+        for (int i = 1; i < length; i++) {
+            int next = buf[pos + i];
+            if ((next & 0xC0) != 0x80)
+                throw syntaxError("Malformed UTF-8", 0);
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        pos += length;
+        if (codePoint >= 0x10000) {
+            codePoint -= 0x10000;
+            chars[n++] = (char) (0xD800 + (codePoint >>> 10));
+            chars[n++] = (char) (0xDC00 + (codePoint & 0x3FF));
+        } else {
+            chars[n++] = (char) codePoint;
+        }
+        return n;
+    }
+
+    private void skipString() throws IOException, JSONException {
+        for (;;) {
+            while (pos < limit) {
+                byte c = buf[pos++];
+                if (c == '"')
+                    return;
+                if (c == '\\') {
+                    if (!fill(1))
+                        throw syntaxError("Unterminated string", 0);
+                    pos++;
+                }
+            }
+            if (!fill(1))
+                throw syntaxError("Unterminated string", 0);
+        }
+    }
+
+    private JSONException unexpected(String expected, Token actual) {
+        return new JSONException("Expected " + expected + " but was " + actual + position());
+    }
+
+    /*
+     * Makes an exception for a syntax error at pos plus the offset.
+     */
+    private JSONException syntaxError(String message, int offset) {
+        return new JSONException(message + " at " + (consumed + pos + offset));
+    }
+
+    private String position() {
+        return " at " + (consumed + pos);
+    }
+}
@@ -0,0 +1,104 @@
+package net.sf.stackwrap4j.json;
+
+import java.io.IOException;
+
+/**
+ * A lazily read document: its bytes, and a tape of where each of its values starts.
+ *
+ * JsonReader.nextLazyValue scans the document once, recording each value's type and position on
+ * the tape, and each object or array the index on the tape past its last member. Decoding an
+ * object or array then only walks its own members on the tape, jumping over the nested ones: its
+ * names, numbers, booleans and nulls are read from the bytes right away, while each string,
+ * object and array it holds is kept as a LazyValue until it is asked for. Nothing is scanned
+ * twice, so a caller that reads a few members of a large response only pays for the scan and for
+ * those members.
+ *
+ * One reader, repositioned for each value, decodes the whole document, so decoding is
+ * synchronized on the document.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+final class LazyDocument {
+
+    /* The types of the values on the tape. */
+    static final int OBJECT = 0;
+    static final int ARRAY = 1;
+    static final int NAME = 2;
+    static final int STRING = 3;
+    static final int SCALAR = 4;
+
+    /* The low bits of a tape entry hold the type; the rest, for an object or array, its end. */
+    static final int TYPE_BITS = 3;
+    private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+    private final JsonReader reader;
+    private final int[] tape;
+
+    LazyDocument(JsonReader reader, int[] tape) {
+        this.reader = reader;
+        this.tape = tape;
+    }
+
+    /**
+     * Decodes the string, object or array at an index of the tape.
+     * @param index the index
+     * @return the String, or the JSONObject or JSONArray with its strings, objects and arrays
+     *         still to be decoded
+     * @throws JSONException if a string is malformed in a way the scan did not catch, such as a bad
+     *             escape sequence
+     */
+    synchronized Object decode(int index) throws JSONException {
+        int type = tape[index] & TYPE_MASK;
+        if (type == STRING)
+            return read(index);
+        int end = tape[index] >>> TYPE_BITS;
+        if (type == OBJECT) {
+            JSONObject object = new JSONObject();
+            for (int i = index + 2; i < end; i = next(i)) {
+                String name = readName(i);
+                i += 2;
+                object.put(name, member(i));
+            }
+            return object;
+        }
+        JSONArray array = new JSONArray();
+        for (int i = index + 2; i < end; i = next(i)) {
+            array.put(member(i));
+        }
+        return array;
+    }
+
+    /*
+     * Reads a member of an object or array, leaving strings, objects and arrays for later.
+     */
+    private Object member(int index) throws JSONException {
+        return (tape[index] & TYPE_MASK) == SCALAR ? read(index) : new LazyValue(this, index);
+    }
+
+    /*
+     * Gets the index on the tape of the value after the one at an index, skipping its members.
+     */
+    private int next(int index) {
+        int type = tape[index] & TYPE_MASK;
+        return type == OBJECT || type == ARRAY ? tape[index] >>> TYPE_BITS : index + 2;
+    }
+
+    private String readName(int index) throws JSONException {
+        try {
+            return reader.nameAt(tape[index + 1]);
+        } catch (IOException e) {
+            // a byte array can always be read
+            throw new JSONException(e);
+        }
+    }
+
+    private Object read(int index) throws JSONException {
+        try {
+            return reader.valueAt(tape[index + 1]);
+        } catch (IOException e) {
+            // a byte array can always be read
+            throw new JSONException(e);
+        }
+    }
+}
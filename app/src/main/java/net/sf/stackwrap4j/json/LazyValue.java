@@ -0,0 +1,62 @@
+package net.sf.stackwrap4j.json;
+
+/**
+ * A string, object or array of a LazyDocument that has not been decoded yet.
+ *
+ * JSONObject.opt and JSONArray.opt decode it the first time it is asked for and keep the result.
+ * Decoding does not change the map or list the value is kept in, so lazily read objects can be
+ * read from several threads, as eagerly read ones can.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+final class LazyValue implements JSONString {
+
+    private final LazyDocument document;
+    private final int index;
+    private volatile Object value;
+
+    LazyValue(LazyDocument document, int index) {
+        this.document = document;
+        this.index = index;
+    }
+
+    /**
+     * Decodes the value, the first time it is asked for.
+     * @return the String, JSONObject or JSONArray
+     * @throws IllegalStateException
+     *             if the value is malformed in a way the scan did not catch, such as a bad escape
+     *             sequence
+     */
+    Object get() {
+        Object decoded = value;
+        if (decoded == null) {
+            try {
+                decoded = document.decode(index);
+            } catch (JSONException e) {
+                throw new IllegalStateException("Malformed lazily read value: " + e.getMessage());
+            }
+            value = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * Decodes the value if it is held in place of one.
+     * @param o a value from a JSONObject or JSONArray
+     * @return the decoded value
+     */
+    static Object resolve(Object o) {
+        return o instanceof LazyValue ? ((LazyValue) o).get() : o;
+    }
+
+    public String toJSONString() {
+        Object decoded = get();
+        return decoded instanceof String ? JSONObject.quote((String) decoded) : decoded.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJSONString();
+    }
+}
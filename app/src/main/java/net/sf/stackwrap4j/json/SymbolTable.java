@@ -0,0 +1,122 @@
+package net.sf.stackwrap4j.json;
+
+/**
+ * A bounded table of the short strings a response repeats, so the parsers can hand out one String
+ * for every occurrence instead of allocating a new one each time.
+ *
+ * A page of questions repeats the same few dozen names ("question_id", "owner", "display_name")
+ * on every object, and values like tag names and post types almost as often. The parsers look the
+ * characters of each name and each short string value up here before making a String of them.
+ * The table is direct-mapped: each string has a single slot, chosen by its hash, and a new string
+ * replaces whatever was in its slot. That keeps the table's size fixed however many distinct
+ * strings go through it, and the strings that recur stay in it.
+ *
+ * Names are also interned with String.intern when they first enter the table, so they are the same
+ * instances as the string literals code looks them up with. That only shortens the comparison:
+ * HashMap still hashes the key and calls equals when the identity check misses, and a switch on a
+ * name always calls equals, which returns at once when both are the same instance. A name that is
+ * evicted from its slot is interned again when it comes back, so it is still the same instance.
+ *
+ * The tables are shared by every parser, without locking. A thread may miss a string another
+ * thread has just added, and make its own copy; Strings are immutable, so a slot is always either
+ * empty or holds a complete one.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+final class SymbolTable {
+
+    /** The names of object members. */
+    static final SymbolTable NAMES = new SymbolTable(1024, 64, true);
+
+    /** Short string values, such as tag names and post types. */
+    static final SymbolTable VALUES = new SymbolTable(2048, 24, false);
+
+    private final String[] symbols;
+    private final int mask;
+    private final int maxLength;
+    private final boolean canonical;
+
+    /**
+     * @param size
+     *            the number of slots, a power of two
+     * @param maxLength
+     *            the length of the longest string worth keeping
+     * @param canonical
+     *            whether to intern the strings kept with String.intern
+     */
+    SymbolTable(int size, int maxLength, boolean canonical) {
+        this.symbols = new String[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+        this.canonical = canonical;
+    }
+
+    /**
+     * Gets the string of some characters, from the table if it holds it.
+     *
+     * @param chars
+     *            the array holding the characters
+     * @param offset
+     *            the index of the first character
+     * @param length
+     *            the number of characters
+     * @return the string
+     */
+    String get(char[] chars, int offset, int length) {
+        if (length > maxLength)
+            return new String(chars, offset, length);
+        // the same hash String.hashCode computes, so a match is checked against the cached one
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String symbol = symbols[slot];
+        if (symbol != null && symbol.hashCode() == hash && symbol.length() == length) {
+            int i = 0;
+            while (i < length && symbol.charAt(i) == chars[offset + i]) {
+                i++;
+            }
+            if (i == length)
+                return symbol;
+        }
+        symbol = new String(chars, offset, length);
+        if (canonical)
+            symbol = symbol.intern();
+        symbols[slot] = symbol;
+        return symbol;
+    }
+
+    /**
+     * Gets the string of the characters in a builder, from the table if it holds it.
+     *
+     * @param sb
+     *            the builder
+     * @return the string
+     */
+    String get(StringBuilder sb) {
+        int length = sb.length();
+        if (length > maxLength)
+            return sb.toString();
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + sb.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String symbol = symbols[slot];
+        if (symbol != null && symbol.hashCode() == hash && symbol.length() == length) {
+            int i = 0;
+            while (i < length && symbol.charAt(i) == sb.charAt(i)) {
+                i++;
+            }
+            if (i == length)
+                return symbol;
+        }
+        symbol = sb.toString();
+        if (canonical)
+            symbol = symbol.intern();
+        symbols[slot] = symbol;
+        return symbol;
+    }
+}
@@ -27,12 +27,15 @@ package net.sf.stackwrap4j.query;
 import net.sf.stackwrap4j.exceptions.ParameterNotSetException;
 import net.sf.stackwrap4j.query.sort.BaseSort;
 import net.sf.stackwrap4j.query.sort.ISort;
+import net.sf.stackwrap4j.routes.BaseRoute;
 
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -56,6 +59,9 @@ public abstract class BaseQuery implements Serializable {
 	/** The set of ids for this query. */
 	protected Set<Integer> idSet = new HashSet<Integer>();
 	
+	/** The number of results the API returns per request when a query doesn't set a page size. */
+	public static final int DEFAULT_PAGE_SIZE = 30;
+	
 	/** The way to sort the results. */
 	private ISort sort = null;
 	
@@ -79,13 +85,13 @@ public abstract class BaseQuery implements Serializable {
 	 * @return a String of URL parameters in '&key=value' form.
 	 */
 	public String getUrlParams() {
-		String urlParams = "";
-		for (String key : urlParamMap.keySet()) {
-			urlParams += "&" + key + "=" + urlParamMap.get(key);
+		StringBuilder urlParams = new StringBuilder(32 * (urlParamMap.size() + 5));
+		for (Map.Entry<String, String> param : urlParamMap.entrySet()) {
+			addParameter(urlParams, param.getKey(), param.getValue());
 		}
-		urlParams = addSortParams(urlParams, sort);
+		addSortParams(urlParams, sort);
 
-        return urlParams;
+        return urlParams.toString();
 	}
 	
 	/**
@@ -127,11 +133,65 @@ public abstract class BaseQuery implements Serializable {
 	        throw new ParameterNotSetException("No ids have been added to the query.");
 	    }
 		
-	    StringBuilder sb = new StringBuilder("");
+	    StringBuilder sb = new StringBuilder(8 * idSet.size());
 		for (int id : idSet) {
-		    sb.append(id + ";");
+		    if (sb.length() > 0) {
+		        sb.append(';');
+		    }
+		    sb.append(id);
 		}
-		return sb.toString().substring(0, sb.length() - 1);
+		return sb.toString();
+	}
+	
+	/**
+	 * Gets the ids for this query split into semicolon-delimited lists of at most the given size,
+	 * for methods that accept a limited number of ids per request.
+	 * @param maxPerChunk the most ids in one list.
+	 * @return the lists of identifiers.
+	 * @throws ParameterNotSetException if not identifiers were set in this query.
+	 */
+	public List<String> getIdChunks(final int maxPerChunk) throws ParameterNotSetException {
+	    if (idSet.size() == 0) {
+	        throw new ParameterNotSetException("No ids have been added to the query.");
+	    }
+	    if (maxPerChunk < 1) {
+	        throw new IllegalArgumentException("A chunk must hold at least one id.");
+	    }
+	    List<String> chunks = new ArrayList<String>((idSet.size() + maxPerChunk - 1) / maxPerChunk);
+	    StringBuilder sb = new StringBuilder();
+	    int inChunk = 0;
+	    for (int id : idSet) {
+	        if (inChunk == maxPerChunk) {
+	            chunks.add(sb.toString());
+	            sb.setLength(0);
+	            inChunk = 0;
+	        }
+	        if (inChunk > 0) {
+	            sb.append(';');
+	        }
+	        sb.append(id);
+	        inChunk++;
+	    }
+	    chunks.add(sb.toString());
+	    return chunks;
+	}
+	
+	/**
+	 * Gets the page of results this query asks for.
+	 * @return the page, or 1 if this query doesn't set one.
+	 */
+	public int getPage() {
+	    String page = get("page");
+	    return page == null ? 1 : Integer.parseInt(page);
+	}
+	
+	/**
+	 * Gets the number of results one request for this query returns.
+	 * @return the page size, or the API's default if this query doesn't set one.
+	 */
+	public int getPageSize() {
+	    String pageSize = get("pagesize");
+	    return pageSize == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(pageSize);
 	}
 	
 	/**
@@ -183,42 +243,37 @@ public abstract class BaseQuery implements Serializable {
 	 * @return a string containing all ids.
 	 */
 	protected static String buildVectorizedList(final int... id) {
-        StringBuilder sb = new StringBuilder("" + id[0]);
-        for (int i = 1; i < id.length; ++i) {
-            sb.append(";" + id[i]);
-        }
-        return sb.toString();
+        return BaseRoute.appendIds(new StringBuilder(8 * id.length), id, 0, id.length).toString();
     }
 
     /**
-     * Appends a parameter to the URL string provided.
+     * Appends a parameter to the URL parameters provided.
      * 
-     * @param urlParameters original string of parameters to append a new name/value pair to.
+     * @param urlParameters parameters to append a new name/value pair to.
      * @param name to add to the URL.
      * @param value to add to the URL.
-     * @return the URL with the new parameter appended.
+     * @return the parameters with the new parameter appended.
      */
-	private static String addParameter(final String urlParameters, final String name, final String value) {
-        return urlParameters + "&" + name + "=" + value;
+	private static StringBuilder addParameter(final StringBuilder urlParameters, final String name, final String value) {
+        return urlParameters.append('&').append(name).append('=').append(value);
     }
 	
 	/**
 	 * Appends all of the necessary sort parameters to the urlParameters.
-	 * @param urlParameters original string of parameters to append a new name/value pairs to.
+	 * @param urlParameters parameters to append new name/value pairs to.
 	 * @param sortParams object containing the sort value parameters.
-	 * @return old URL parameters with sort parameters appended.
+	 * @return the parameters with sort parameters appended.
 	 */
-	private String addSortParams(final String urlParameters, final ISort sortParams) {
-	    String params = urlParameters;
+	private StringBuilder addSortParams(final StringBuilder urlParameters, final ISort sortParams) {
 		if (sortParams != null) {
-		    params = addParameter(params, "sort", sortParams.getName());
-		    params = addParameter(params, "min", sortParams.getMin());
-		    params = addParameter(params, "max", sortParams.getMax());
+		    addParameter(urlParameters, "sort", sortParams.getName());
+		    addParameter(urlParameters, "min", sortParams.getMin());
+		    addParameter(urlParameters, "max", sortParams.getMax());
 
 			// Adicionado por Aureo
-			params = addParameter(params, "site", "stackoverflow");
-			params = addParameter(params, "filter", "!-*f(6rc.(Xr5");
+			addParameter(urlParameters, "site", "stackoverflow");
+			addParameter(urlParameters, "filter", "!-*f(6rc.(Xr5");
 		}
-		return params;
+		return urlParameters;
 	}
 }
@@ -51,14 +51,6 @@ public abstract class PageQuery extends BaseQuery {
         return this;
     }
 
-    /**
-     * Gets the page setting.
-     * @return the page.
-     */
-    public int getPage() {
-        return Integer.parseInt( get(PAGE_KEY) );
-    }
-    
     /**
      * @param pageSize The number of collection results to display during pagination. Should be between 0 and 100 inclusive.
      */
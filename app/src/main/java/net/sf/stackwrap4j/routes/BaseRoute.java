@@ -1,5 +1,240 @@
 package net.sf.stackwrap4j.routes;
 
-public abstract class BaseRoute {
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * A precompiled API route with placeholders (Example: "answers/{ids}/comments").
+ *
+ * The template is split once, when the route is compiled, into the literal text between its
+ * placeholders. Expanding the route then only appends the literals and the placeholder values to
+ * one builder, sized up front, without the intermediate strings of repeated concatenation. Values
+ * are percent-encoded as path segments; ids and vectorized id lists, the common case, need no
+ * encoding and are written as they are.
+ *
+ * Routes are immutable and can be shared between threads.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class BaseRoute {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String template;
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+
+    /**
+     * Compiles a route template.
+     *
+     * @param template
+     *            the route, with each placeholder's name in braces (Example: "users/{ids}/tags")
+     */
+    protected BaseRoute(String template) {
+        List<String> literalList = new ArrayList<String>();
+        List<String> nameList = new ArrayList<String>();
+        int start = 0;
+        for (int open = template.indexOf('{'); open >= 0; open = template.indexOf('{', start)) {
+            int close = template.indexOf('}', open);
+            if (close < 0)
+                throw new IllegalArgumentException("Unclosed placeholder in route " + template);
+            literalList.add(template.substring(start, open));
+            nameList.add(template.substring(open + 1, close));
+            start = close + 1;
+        }
+        literalList.add(template.substring(start));
+        this.template = template;
+        this.literals = literalList.toArray(new String[literalList.size()]);
+        this.names = nameList.toArray(new String[nameList.size()]);
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles a route template.
+     *
+     * @param template
+     *            the route, with each placeholder's name in braces (Example: "users/{ids}/tags")
+     * @return the compiled route
+     */
+    public static BaseRoute compile(String template) {
+        return new BaseRoute(template);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public int getPlaceholderCount() {
+        return names.length;
+    }
+
+    /**
+     * Fills in one placeholder, for routes that always use the same value for it.
+     *
+     * @param name
+     *            the placeholder's name
+     * @param value
+     *            its value
+     * @return a route with the placeholder replaced by the encoded value
+     */
+    public BaseRoute bind(String name, CharSequence value) {
+        StringBuilder sb = new StringBuilder(template.length() + value.length());
+        boolean found = false;
+        for (int i = 0; i < names.length; i++) {
+            sb.append(literals[i]);
+            if (!found && names[i].equals(name)) {
+                appendSegment(sb, value);
+                found = true;
+            } else {
+                sb.append('{').append(names[i]).append('}');
+            }
+        }
+        sb.append(literals[names.length]);
+        if (!found)
+            throw new IllegalArgumentException("Route " + template + " has no placeholder " + name);
+        return new BaseRoute(sb.toString());
+    }
+
+    public BaseRoute bind(String name, int value) {
+        return bind(name, Integer.toString(value));
+    }
+
+    /**
+     * Expands the route.
+     *
+     * @param values
+     *            the value of each placeholder, in order
+     * @return the route with its placeholders filled in
+     */
+    public String expand(CharSequence... values) {
+        int length = literalLength;
+        for (CharSequence value : values) {
+            length += value.length();
+        }
+        return appendTo(new StringBuilder(length + 8), values).toString();
+    }
+
+    /**
+     * Expands the route onto the end of a builder.
+     *
+     * @param sb
+     *            the builder to append to
+     * @param values
+     *            the value of each placeholder, in order
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb, CharSequence... values) {
+        if (values.length != names.length)
+            throw new IllegalArgumentException("Route " + template + " takes " + names.length + " values, not "
+                    + values.length);
+        for (int i = 0; i < names.length; i++) {
+            sb.append(literals[i]);
+            appendSegment(sb, values[i]);
+        }
+        return sb.append(literals[names.length]);
+    }
+
+    /**
+     * Expands the route onto the end of a builder, writing a vectorized list of ids into its first
+     * placeholder without building the list as a string first.
+     *
+     * @param sb
+     *            the builder to append to
+     * @param ids
+     *            the ids
+     * @param from
+     *            the index of the first id to include
+     * @param to
+     *            the index after the last id to include
+     * @param rest
+     *            the value of each placeholder after the first, in order
+     * @return the builder
+     */
+    public StringBuilder appendIdsTo(StringBuilder sb, int[] ids, int from, int to, CharSequence... rest) {
+        if (rest.length + 1 != names.length)
+            throw new IllegalArgumentException("Route " + template + " takes " + names.length + " values, not "
+                    + (rest.length + 1));
+        sb.append(literals[0]);
+        appendIds(sb, ids, from, to);
+        for (int i = 0; i < rest.length; i++) {
+            sb.append(literals[i + 1]);
+            appendSegment(sb, rest[i]);
+        }
+        return sb.append(literals[names.length]);
+    }
+
+    /**
+     * Appends ids as a vectorized list (Example: "1;2;3").
+     *
+     * @param sb
+     *            the builder to append to
+     * @param ids
+     *            the ids
+     * @param from
+     *            the index of the first id to include
+     * @param to
+     *            the index after the last id to include
+     * @return the builder
+     */
+    public static StringBuilder appendIds(StringBuilder sb, int[] ids, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (i > from)
+                sb.append(';');
+            sb.append(ids[i]);
+        }
+        return sb;
+    }
+
+    /**
+     * Appends a value as a path segment, percent-encoding the characters that need it. Semicolons
+     * are left alone, since they separate the ids of vectorized lists.
+     *
+     * @param sb
+     *            the builder to append to
+     * @param value
+     *            the value
+     * @return the builder
+     */
+    public static StringBuilder appendSegment(StringBuilder sb, CharSequence value) {
+        int length = value.length();
+        int i = 0;
+        while (i < length && isSafe(value.charAt(i))) {
+            i++;
+        }
+        sb.append(value, 0, i);
+        if (i == length)
+            return sb;
+        byte[] bytes;
+        try {
+            bytes = value.subSequence(i, length).toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported.", e);
+        }
+        for (byte b : bytes) {
+            char c = (char) (b & 0xFF);
+            if (isSafe(c)) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        }
+        return sb;
+    }
+
+    private static boolean isSafe(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.'
+                || c == '_' || c == '~' || c == ';';
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
 }
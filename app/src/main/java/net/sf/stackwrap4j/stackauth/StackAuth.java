@@ -56,8 +56,8 @@ public class StackAuth {
     }
 
     public static List<Site> getAllSites() throws IOException, JSONException {
-        String json = client.sendGetRequest(BASE_URL, VERSION, "sites/", null);
-        return Site.fromJSONArray(new JSONObject(json).getJSONArray("api_sites"));
+        JSONObject json = client.sendGetRequestForJSON(BASE_URL, VERSION, "sites/", null);
+        return Site.fromJSONArray(json.getJSONArray("api_sites"));
     }
     
     /**
@@ -77,9 +77,9 @@ public class StackAuth {
     }
 
     public static List<Account> getAssociatedAccounts(String userId) throws IOException, JSONException {
-        String json = client.sendGetRequest(BASE_URL, VERSION, "users/" + userId
+        JSONObject json = client.sendGetRequestForJSON(BASE_URL, VERSION, "users/" + userId
                 + "/associated/", null);
-        return Account.fromJSONArray(new JSONObject(json).getJSONArray("associated_users"));
+        return Account.fromJSONArray(json.getJSONArray("associated_users"));
     }
     
     public static List<StackWrapper> getAllWrappers(String key) throws IOException, JSONException{
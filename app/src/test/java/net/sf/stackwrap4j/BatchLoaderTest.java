@@ -0,0 +1,186 @@
+package net.sf.stackwrap4j;
+
+import net.sf.stackwrap4j.http.Deadline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests merging single-id lookups from several threads.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class BatchLoaderTest {
+
+    /* A loader whose entities are their own ids, and which omits negative ids. */
+    private static final class Loader extends BatchLoader<Integer> {
+        final AtomicInteger fetches = new AtomicInteger();
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        volatile long fetchMillis = 0;
+        volatile Error error = null;
+
+        Loader(int maxBatch) {
+            super(maxBatch);
+        }
+
+        List<Integer> fetch(int... ids) {
+            fetches.incrementAndGet();
+            if (error != null)
+                throw error;
+            if (fetchMillis > 0) {
+                try {
+                    Thread.sleep(fetchMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (batchSizes) {
+                batchSizes.add(ids.length);
+            }
+            List<Integer> found = new ArrayList<Integer>();
+            for (int id : ids) {
+                if (id >= 0)
+                    found.add(id);
+            }
+            return found;
+        }
+
+        int idOf(Integer entity) {
+            return entity.intValue();
+        }
+    }
+
+    /* Looks up ids from..from+count-1 on one thread each, all at once, and checks every result. */
+    private static void loadConcurrently(final Loader loader, int from, int count, final long windowNanos)
+            throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger wrong = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = from; i < from + count; i++) {
+            final int id = i;
+            Thread t = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        Integer loaded = loader.load(id, windowNanos);
+                        if (loaded == null || loaded.intValue() != id)
+                            wrong.incrementAndGet();
+                    } catch (Exception e) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(0, wrong.get());
+    }
+
+    @Test
+    public void zeroWindowFetchesEachIdOnItsOwn() throws Exception {
+        Loader loader = new Loader(100);
+        assertEquals(Integer.valueOf(7), loader.load(7, 0));
+        assertEquals(Integer.valueOf(8), loader.load(8, 0));
+        assertEquals(2, loader.fetches.get());
+    }
+
+    @Test
+    public void missingIdLoadsAsNull() throws Exception {
+        assertNull(new Loader(100).load(-1, 0));
+    }
+
+    @Test
+    public void concurrentLookupsShareRequests() throws Exception {
+        Loader loader = new Loader(100);
+        loadConcurrently(loader, 0, 60, TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue("60 lookups made " + loader.fetches.get() + " requests", loader.fetches.get() < 60);
+    }
+
+    @Test
+    public void batchesNeverExceedTheLimit() throws Exception {
+        Loader loader = new Loader(30);
+        loadConcurrently(loader, 0, 100, TimeUnit.MILLISECONDS.toNanos(500));
+        for (int size : loader.batchSizes) {
+            assertTrue("A batch held " + size + " ids", size <= 30);
+        }
+        assertTrue(loader.fetches.get() >= 4);
+    }
+
+    @Test
+    public void errorsReachEveryLookupOfTheBatch() throws Exception {
+        final Loader loader = new Loader(100);
+        loader.error = new AssertionError("fetch failed");
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger rethrown = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 10; i++) {
+            final int id = i;
+            Thread t = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        loader.load(id, TimeUnit.MILLISECONDS.toNanos(200));
+                    } catch (AssertionError e) {
+                        if (e == loader.error)
+                            rethrown.incrementAndGet();
+                    } catch (Exception e) {
+                        // counted as not rethrown
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(10, rethrown.get());
+    }
+
+    @Test
+    public void joinedLookupGivesUpAtItsDeadline() throws Exception {
+        final Loader loader = new Loader(100);
+        loader.fetchMillis = 500;
+        Thread leader = new Thread() {
+            public void run() {
+                try {
+                    loader.load(1, TimeUnit.MILLISECONDS.toNanos(100));
+                } catch (Exception e) {
+                    // only the joined lookup is checked
+                }
+            }
+        };
+        leader.start();
+        Thread.sleep(20);
+        long start = System.nanoTime();
+        Deadline deadline = Deadline.start(150, TimeUnit.MILLISECONDS);
+        try {
+            loader.load(2, TimeUnit.MILLISECONDS.toNanos(100));
+            fail("The lookup should have given up at its deadline.");
+        } catch (Deadline.Exceeded expected) {
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(450));
+        } finally {
+            deadline.end();
+        }
+        leader.join();
+        assertEquals(1, loader.fetches.get());
+    }
+
+    @Test
+    public void batchingIsOffByDefault() {
+        assertEquals(0, StackWrapper.getBatchWindow(TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,256 @@
+package net.sf.stackwrap4j;
+
+import net.sf.stackwrap4j.entities.Answer;
+import net.sf.stackwrap4j.http.Deadline;
+import net.sf.stackwrap4j.http.FakeStackExchange;
+import net.sf.stackwrap4j.http.Transport;
+import net.sf.stackwrap4j.json.JSONException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests waiting for and calling back with the results of asynchronous calls, and that a caller's
+ * deadline goes with its call to the executor.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class StackWrapperAsyncTest {
+
+    private static final String ANSWER = "{\"items\":[{\"answer_id\":0,\"question_id\":40010398,"
+            + "\"accepted\":false,\"answer_comments_url\":\"/answers/0/comments\",\"creation_date\":1476366010,"
+            + "\"score\":3,\"title\":\"Parsing the wrapper\",\"view_count\":120,\"community_owned\":false,"
+            + "\"up_vote_count\":4,\"down_vote_count\":1}]}";
+
+    /* Runs callbacks on the thread completing the call. */
+    private static final Executor DIRECT = new Executor() {
+        public void execute(Runnable r) {
+            r.run();
+        }
+    };
+
+    /* Records the outcome it is called back with. */
+    private static final class Recorder<T> implements ApiCallback<T> {
+        final CountDownLatch called = new CountDownLatch(1);
+        volatile T result;
+        volatile Exception failure;
+        volatile Thread thread;
+
+        public void onSuccess(T result) {
+            this.result = result;
+            thread = Thread.currentThread();
+            called.countDown();
+        }
+
+        public void onFailure(Exception e) {
+            failure = e;
+            thread = Thread.currentThread();
+            called.countDown();
+        }
+    }
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static <T> ApiFuture<T> failing(final Exception e) {
+        return new ApiFuture<T>(new Callable<T>() {
+            public T call() throws Exception {
+                throw e;
+            }
+        });
+    }
+
+    @Test
+    public void callbacksRunOnceTheCallCompletes() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        ApiFuture<String> future = new ApiFuture<String>(new Callable<String>() {
+            public String call() throws Exception {
+                release.await();
+                return "done";
+            }
+        });
+        Recorder<String> recorder = new Recorder<String>();
+        future.addCallback(recorder, DIRECT);
+        executor.execute(future);
+        assertFalse(recorder.called.await(50, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(recorder.called.await(5, TimeUnit.SECONDS));
+        assertEquals("done", recorder.result);
+        assertNull(recorder.failure);
+    }
+
+    @Test
+    public void callbacksAddedAfterCompletionAreDispatchedAtOnce() throws Exception {
+        ApiFuture<String> future = new ApiFuture<String>(new Callable<String>() {
+            public String call() {
+                return "done";
+            }
+        });
+        future.run();
+        Recorder<String> recorder = new Recorder<String>();
+        assertSame(future, future.addCallback(recorder, DIRECT));
+        assertEquals(0, recorder.called.getCount());
+        assertEquals("done", recorder.result);
+        assertSame(Thread.currentThread(), recorder.thread);
+    }
+
+    @Test
+    public void callbacksRunOnTheirExecutor() throws Exception {
+        ApiFuture<String> future = failing(new IOException("down"));
+        future.run();
+        Recorder<String> recorder = new Recorder<String>();
+        future.addCallback(recorder, executor);
+        assertTrue(recorder.called.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), recorder.thread);
+        assertEquals("down", recorder.failure.getMessage());
+    }
+
+    @Test
+    public void awaitRethrowsTheCallsException() throws Exception {
+        IOException io = new IOException("down");
+        ApiFuture<String> future = failing(io);
+        future.run();
+        try {
+            future.await();
+            fail("The call's IOException should have been rethrown.");
+        } catch (IOException e) {
+            assertSame(io, e);
+        }
+
+        JSONException json = new JSONException("bad");
+        future = failing(json);
+        future.run();
+        try {
+            future.await(1, TimeUnit.SECONDS);
+            fail("The call's JSONException should have been rethrown.");
+        } catch (JSONException e) {
+            assertSame(json, e);
+        }
+
+        IllegalStateException runtime = new IllegalStateException("bug");
+        future = failing(runtime);
+        future.run();
+        try {
+            future.await();
+            fail("The call's RuntimeException should have been rethrown.");
+        } catch (IllegalStateException e) {
+            assertSame(runtime, e);
+        }
+    }
+
+    @Test
+    public void otherCheckedExceptionsAreWrapped() throws Exception {
+        Exception other = new Exception("other");
+        ApiFuture<String> future = failing(other);
+        future.run();
+        try {
+            future.await();
+            fail("The call's exception should have been wrapped.");
+        } catch (IOException e) {
+            assertSame(other, e.getCause());
+        }
+    }
+
+    @Test
+    public void awaitWithATimeoutCancelsTheCall() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        ApiFuture<String> future = new ApiFuture<String>(new Callable<String>() {
+            public String call() throws Exception {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return "late";
+            }
+        });
+        Recorder<String> recorder = new Recorder<String>();
+        future.addCallback(recorder, DIRECT);
+        executor.execute(future);
+        try {
+            future.await(20, TimeUnit.MILLISECONDS);
+            fail("The call should have timed out.");
+        } catch (SocketTimeoutException expected) {
+        }
+        assertTrue(future.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(recorder.called.await(5, TimeUnit.SECONDS));
+        assertTrue(recorder.failure instanceof InterruptedIOException);
+        try {
+            future.await();
+            fail("A cancelled call has no result.");
+        } catch (InterruptedIOException expected) {
+        }
+    }
+
+    @Test
+    public void theCallersDeadlineGoesWithTheCall() throws Exception {
+        final AtomicReference<Deadline> seen = new AtomicReference<Deadline>();
+        final Transport fake = fakeAnswers();
+        Transport recording = new Transport() {
+            public HttpURLConnection open(URL url) throws IOException {
+                seen.set(Deadline.current());
+                return fake.open(url);
+            }
+        };
+        StackWrapperAsync async = new StackWrapperAsync(new StackWrapper("stackoverflow.com", "", recording),
+                executor);
+
+        Deadline deadline = Deadline.start(30, TimeUnit.SECONDS);
+        ApiFuture<List<Answer>> future;
+        try {
+            future = async.getAnswersById(0);
+        } finally {
+            deadline.end();
+        }
+        assertEquals(1, future.await(5, TimeUnit.SECONDS).size());
+        Deadline carried = seen.get();
+        assertNotNull(carried);
+        long left = carried.remaining(TimeUnit.SECONDS);
+        assertTrue("Left " + left + " s", left > 20 && left <= 30);
+
+        // the deadline ended with the call, so the executor thread runs the next call without one
+        seen.set(null);
+        async.getAnswersById(0).await(5, TimeUnit.SECONDS);
+        assertNull(seen.get());
+        assertNull(executor.submit(new Callable<Deadline>() {
+            public Deadline call() {
+                return Deadline.current();
+            }
+        }).get());
+    }
+
+    private static Transport fakeAnswers() throws IOException {
+        FakeStackExchange fake = new FakeStackExchange();
+        fake.setFixture("answers", ANSWER);
+        fake.serveIds("answers", "answers", "answer_id");
+        return fake.transport();
+    }
+}
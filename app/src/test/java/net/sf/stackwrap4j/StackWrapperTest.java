@@ -0,0 +1,149 @@
+package net.sf.stackwrap4j;
+
+import net.sf.stackwrap4j.datastructures.MetadataList;
+import net.sf.stackwrap4j.entities.Answer;
+import net.sf.stackwrap4j.http.FakeStackExchange;
+import net.sf.stackwrap4j.query.AnswerQuery;
+import net.sf.stackwrap4j.query.BaseQuery;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the vectorized methods against a FakeStackExchange that, like the real API, returns only
+ * the first page of a request's ids.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class StackWrapperTest {
+
+    /* An answer with every member the JSON constructors require. */
+    private static final String ANSWER = "{\"items\":[{\"answer_id\":0,\"question_id\":40010398,"
+            + "\"accepted\":false,\"answer_comments_url\":\"/answers/0/comments\",\"creation_date\":1476366010,"
+            + "\"score\":3,\"title\":\"Parsing the wrapper\",\"view_count\":120,\"community_owned\":false,"
+            + "\"up_vote_count\":4,\"down_vote_count\":1}]}";
+
+    private FakeStackExchange fake;
+    private StackWrapper wrapper;
+
+    @Before
+    public void setUp() throws Exception {
+        fake = new FakeStackExchange();
+        fake.setFixture("answers", ANSWER);
+        fake.serveIds("answers", "answers", "answer_id");
+        wrapper = new StackWrapper("stackoverflow.com", "", fake.transport());
+    }
+
+    private static int[] ids(int from, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = from + i;
+        }
+        return ids;
+    }
+
+    @Test
+    public void getAnswersByIdReturnsEveryId() throws Exception {
+        int[] ids = ids(1000, 250);
+        List<Answer> answers = wrapper.getAnswersById(ids);
+        assertEquals(ids.length, answers.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], answers.get(i).getPostId());
+        }
+        assertEquals(3, fake.getRequestCount());
+    }
+
+    @Test
+    public void queryWithinOneChunkIsPagedByTheApi() throws Exception {
+        AnswerQuery query = new AnswerQuery();
+        query.setIds(ids(2000, 100));
+        Set<Integer> seen = new HashSet<Integer>();
+        int page = 0;
+        MetadataList<Answer> answers;
+        do {
+            query.setPage(++page);
+            answers = (MetadataList<Answer>) wrapper.getAnswers(query);
+            assertTrue(answers.size() <= BaseQuery.DEFAULT_PAGE_SIZE);
+            for (Answer a : answers) {
+                seen.add(a.getPostId());
+            }
+        } while (answers.hasMore());
+        assertEquals(100, seen.size());
+        assertEquals(4, page);
+        assertEquals(4, fake.getRequestCount());
+    }
+
+    @Test
+    public void firstPageOfAQueryOverSeveralChunksHoldsEveryChunk() throws Exception {
+        AnswerQuery query = new AnswerQuery();
+        query.setPageSize(StackWrapper.MAX_IDS_PER_REQUEST);
+        query.setIds(ids(3000, 250));
+        MetadataList<Answer> answers = (MetadataList<Answer>) wrapper.getAnswers(query);
+        assertEquals(250, answers.size());
+        assertFalse(answers.hasMore());
+        assertEquals(3, fake.getRequestCount());
+
+        query.setPageSize(5);
+        answers = (MetadataList<Answer>) wrapper.getAnswers(query);
+        assertEquals(15, answers.size());
+        assertTrue(answers.hasMore());
+    }
+
+    @Test
+    public void laterPagesOfAQueryOverSeveralChunksAreRejected() throws Exception {
+        AnswerQuery query = new AnswerQuery();
+        query.setIds(ids(3000, 250));
+        query.setPage(2);
+        try {
+            wrapper.getAnswers(query);
+            fail("Page 2 of 250 ids can't be joined from the chunks' pages.");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, fake.getRequestCount());
+    }
+
+    @Test
+    public void batchedLookupsOverOnePageAllResolve() throws Exception {
+        StackWrapper.setBatchWindow(500, TimeUnit.MILLISECONDS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger resolved = new AtomicInteger();
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int i = 0; i < 60; i++) {
+                final int id = 4000 + i;
+                Thread t = new Thread() {
+                    public void run() {
+                        try {
+                            start.await();
+                            if (wrapper.getAnswerById(id).getPostId() == id)
+                                resolved.incrementAndGet();
+                        } catch (Exception e) {
+                            // counted as unresolved
+                        }
+                    }
+                };
+                t.start();
+                threads.add(t);
+            }
+            start.countDown();
+            for (Thread t : threads) {
+                t.join();
+            }
+            assertEquals(60, resolved.get());
+            assertTrue(fake.getRequestCount() < 60);
+        } finally {
+            StackWrapper.setBatchWindow(StackWrapper.DEFAULT_BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
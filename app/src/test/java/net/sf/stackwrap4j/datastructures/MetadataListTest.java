@@ -0,0 +1,49 @@
+package net.sf.stackwrap4j.datastructures;
+
+import net.sf.stackwrap4j.entities.Answer;
+import net.sf.stackwrap4j.json.JSONObject;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests joining the responses to the chunks of one id list.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class MetadataListTest {
+
+    private static MetadataList<Answer> part(String json) throws Exception {
+        return new MetadataList<Answer>(new JSONObject(json), Collections.<Answer>emptyList());
+    }
+
+    @Test
+    public void concatHasMoreIfAnyPartHasMore() throws Exception {
+        List<MetadataList<Answer>> parts = new ArrayList<MetadataList<Answer>>();
+        parts.add(part("{\"total\":120,\"page\":1,\"pagesize\":100,\"has_more\":true}"));
+        parts.add(part("{\"total\":20,\"page\":1,\"pagesize\":100,\"has_more\":false,\"quota_remaining\":9}"));
+        MetadataList<Answer> joined = MetadataList.concat(parts);
+        assertTrue(joined.hasMore());
+        assertEquals(140, joined.getTotal());
+        assertEquals(1, joined.getPage());
+        assertEquals(100, joined.getPageSize());
+        assertEquals(9, joined.getQuotaRemaining());
+    }
+
+    @Test
+    public void concatOfDifferentPagesHasNoPage() throws Exception {
+        List<MetadataList<Answer>> parts = new ArrayList<MetadataList<Answer>>();
+        parts.add(part("{\"total\":10,\"page\":1,\"pagesize\":30,\"has_more\":false}"));
+        parts.add(part("{\"total\":10,\"page\":2,\"pagesize\":100,\"has_more\":false}"));
+        MetadataList<Answer> joined = MetadataList.concat(parts);
+        assertFalse(joined.hasMore());
+        assertEquals(-1, joined.getPage());
+        assertEquals(-1, joined.getPageSize());
+    }
+}
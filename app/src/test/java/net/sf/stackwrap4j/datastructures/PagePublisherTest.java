@@ -0,0 +1,215 @@
+package net.sf.stackwrap4j.datastructures;
+
+import net.sf.stackwrap4j.entities.Answer;
+import net.sf.stackwrap4j.json.JSONObject;
+import net.sf.stackwrap4j.query.AnswerQuery;
+import net.sf.stackwrap4j.query.PageQuery;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a publisher fetches pages only as its subscriber's demand reaches them.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class PagePublisherTest {
+
+    private static final int PAGE_SIZE = 5;
+
+    /* Runs every signal on the thread that caused it, so each test sees them in order. */
+    private static final Executor DIRECT = new Executor() {
+        public void execute(Runnable r) {
+            r.run();
+        }
+    };
+
+    /* Serves a fixed number of pages of answers, numbered from page * 10. */
+    private static final class Publisher extends PagePublisher<Answer> {
+        final List<Integer> fetched = new ArrayList<Integer>();
+        final int pages;
+        IOException failure = null;
+
+        Publisher(int pages) {
+            super(new AnswerQuery().setPage(1), DIRECT);
+            this.pages = pages;
+        }
+
+        protected MetadataList<Answer> fetchPage(PageQuery query) throws IOException {
+            int page = query.getPage();
+            fetched.add(page);
+            if (failure != null)
+                throw failure;
+            StringBuilder json = new StringBuilder("{\"answers\":[");
+            for (int i = 0; i < PAGE_SIZE && page <= pages; i++) {
+                if (i > 0)
+                    json.append(',');
+                json.append("{\"answer_id\":").append(page * 10 + i).append(",\"question_id\":1,"
+                        + "\"accepted\":false,\"answer_comments_url\":\"/a\",\"creation_date\":1,\"score\":0,"
+                        + "\"title\":\"t\",\"view_count\":0,\"community_owned\":false,\"up_vote_count\":0,"
+                        + "\"down_vote_count\":0}");
+            }
+            json.append("],\"has_more\":").append(page < pages).append('}');
+            try {
+                return new MetadataList<Answer>(new JSONObject(json.toString()),
+                        Answer.fromJSONString(json.toString(), null));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /* Records every signal it receives. */
+    private static class Recorder implements PagePublisher.Subscriber<Answer> {
+        PagePublisher.Subscription subscription;
+        final List<Integer> items = new ArrayList<Integer>();
+        Throwable error = null;
+        int completions = 0;
+
+        public void onSubscribe(PagePublisher.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        public void onNext(Answer item) {
+            items.add(item.getPostId());
+        }
+
+        public void onError(Throwable failure) {
+            error = failure;
+        }
+
+        public void onComplete() {
+            completions++;
+        }
+    }
+
+    @Test
+    public void nothingIsFetchedUntilItemsAreRequested() {
+        Publisher publisher = new Publisher(3);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        assertNotNull(recorder.subscription);
+        assertTrue(publisher.fetched.isEmpty());
+        assertTrue(recorder.items.isEmpty());
+    }
+
+    @Test
+    public void itemsAreDeliveredAsTheyAreRequested() {
+        Publisher publisher = new Publisher(3);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(3);
+        assertEquals(3, recorder.items.size());
+        assertEquals(1, publisher.fetched.size());
+        recorder.subscription.request(2);
+        assertEquals(5, recorder.items.size());
+        assertEquals(1, publisher.fetched.size());
+        recorder.subscription.request(4);
+        assertEquals(9, recorder.items.size());
+        assertEquals(2, publisher.fetched.size());
+        assertEquals(Integer.valueOf(10), recorder.items.get(0));
+        assertEquals(Integer.valueOf(23), recorder.items.get(8));
+        assertEquals(0, recorder.completions);
+    }
+
+    @Test
+    public void cancellingBeforeTheFirstRequestFetchesNothing() {
+        Publisher publisher = new Publisher(3);
+        Recorder recorder = new Recorder() {
+            @Override
+            public void onSubscribe(PagePublisher.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.cancel();
+                subscription.request(10);
+            }
+        };
+        publisher.subscribe(recorder);
+        assertTrue(publisher.fetched.isEmpty());
+        assertTrue(recorder.items.isEmpty());
+        assertEquals(0, recorder.completions);
+        assertNull(recorder.error);
+    }
+
+    @Test
+    public void cancellingStopsFurtherFetches() {
+        Publisher publisher = new Publisher(3);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(PAGE_SIZE);
+        recorder.subscription.cancel();
+        recorder.subscription.request(1);
+        assertEquals(PAGE_SIZE, recorder.items.size());
+        assertEquals(1, publisher.fetched.size());
+    }
+
+    @Test
+    public void completesAfterThePageWithoutMore() {
+        Publisher publisher = new Publisher(2);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(2 * PAGE_SIZE, recorder.items.size());
+        assertEquals(2, publisher.fetched.size());
+        assertEquals(1, recorder.completions);
+        recorder.subscription.request(1);
+        assertEquals(2, publisher.fetched.size());
+        assertEquals(1, recorder.completions);
+    }
+
+    @Test
+    public void completesOnceTheLastItemIsDelivered() {
+        Publisher publisher = new Publisher(1);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(PAGE_SIZE - 1);
+        assertEquals(0, recorder.completions);
+        recorder.subscription.request(1);
+        assertEquals(PAGE_SIZE, recorder.items.size());
+        assertEquals(1, recorder.completions);
+        assertEquals(1, publisher.fetched.size());
+    }
+
+    @Test
+    public void failedFetchesEndWithAnError() {
+        Publisher publisher = new Publisher(3);
+        publisher.failure = new IOException("down");
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(1);
+        assertSame(publisher.failure, recorder.error);
+        assertEquals(0, recorder.completions);
+    }
+
+    @Test
+    public void nonPositiveRequestsEndWithAnError() {
+        Publisher publisher = new Publisher(3);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+        recorder.subscription.request(0);
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertTrue(publisher.fetched.isEmpty());
+    }
+
+    @Test
+    public void aSecondSubscriberIsRejected() {
+        Publisher publisher = new Publisher(3);
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        assertNotNull(second.subscription);
+        assertTrue(second.error instanceof IllegalStateException);
+        second.subscription.request(1);
+        assertTrue(second.items.isEmpty());
+        first.subscription.request(1);
+        assertEquals(1, first.items.size());
+        assertNull(first.error);
+    }
+}
@@ -0,0 +1,130 @@
+package net.sf.stackwrap4j.entities;
+
+import net.sf.stackwrap4j.json.JSONException;
+import net.sf.stackwrap4j.json.JSONObject;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that entities bound straight from a response by their EntityCodec come out the same as
+ * entities built by their JSON constructors.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class EntityCodecTest {
+
+    private static final String OWNER = "{\"user_id\":7,\"reputation\":1200,\"email_hash\":\"0a1b\","
+            + "\"display_name\":\"Ada\",\"age\":36,\"badge_counts\":{\"gold\":1,\"silver\":2,\"bronze\":3}}";
+
+    private static final String ANSWER = "{\"answer_id\":11,\"question_id\":10,\"accepted\":true,"
+            + "\"answer_comments_url\":\"/answers/11/comments\",\"creation_date\":1476366010,\"score\":4,"
+            + "\"title\":\"Parsing the wrapper\",\"view_count\":120,\"community_owned\":false,"
+            + "\"up_vote_count\":5,\"down_vote_count\":1,\"owner\":" + OWNER + "}";
+
+    private static final String QUESTIONS = "{\"total\":1,\"questions\":[{\"question_id\":10,"
+            + "\"title\":\"Caf\\u00e9 menu\",\"body\":\"<p>How?</p>\",\"creation_date\":1476360000,\"score\":12,"
+            + "\"view_count\":300,\"community_owned\":false,\"up_vote_count\":13,\"down_vote_count\":1,"
+            + "\"answer_count\":1,\"favorite_count\":2,\"accepted_answer_id\":11,\"bounty_amount\":50,"
+            + "\"question_comments_url\":\"/questions/10/comments\",\"closed_reason\":\"duplicate\","
+            + "\"unknown_member\":{\"nested\":[1,2,3]},\"tags\":[\"java\",\"json\"],\"owner\":" + OWNER
+            + ",\"answers\":[" + ANSWER + "]}],\"has_more\":false}";
+
+    private static List<Question> tree(String json) throws JSONException {
+        return Question.fromJSONArray(new JSONObject(json).getJSONArray("questions"), null);
+    }
+
+    private static void assertSameUser(User expected, User actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getReputation(), actual.getReputation());
+        assertEquals(expected.getEmailHash(), actual.getEmailHash());
+        assertEquals(expected.getDisplayName(), actual.getDisplayName());
+        assertEquals(expected.getAge(), actual.getAge());
+        assertEquals(expected.getLocation(), actual.getLocation());
+        assertEquals(expected.getCreationDate(), actual.getCreationDate());
+    }
+
+    @Test
+    public void questionsBindLikeTheTree() throws Exception {
+        Question expected = tree(QUESTIONS).get(0);
+        List<Question> questions = Question.fromJSONString(QUESTIONS, null);
+        assertEquals(1, questions.size());
+        Question actual = questions.get(0);
+        assertEquals(10, actual.getPostId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getBody(), actual.getBody());
+        assertEquals(expected.getCreationDate(), actual.getCreationDate());
+        assertEquals(expected.getScore(), actual.getScore());
+        assertEquals(expected.getViewCount(), actual.getViewCount());
+        assertEquals(expected.getUpVoteCount(), actual.getUpVoteCount());
+        assertEquals(expected.getAnswerCount(), actual.getAnswerCount());
+        assertEquals(expected.getFavoriteCount(), actual.getFavoriteCount());
+        assertEquals(expected.getAcceptedAnswerId(), actual.getAcceptedAnswerId());
+        assertEquals(expected.getBountyAmount(), actual.getBountyAmount());
+        assertEquals(expected.getBountyClosesDate(), actual.getBountyClosesDate());
+        assertEquals(expected.getClosedDate(), actual.getClosedDate());
+        assertEquals(expected.getClosedReason(), actual.getClosedReason());
+        assertEquals(expected.getUrlForComments(), actual.getUrlForComments());
+        assertEquals(expected.getTags(), actual.getTags());
+        assertSameUser(expected.getOwner(), actual.getOwner());
+    }
+
+    @Test
+    public void nestedAnswersBindLikeTheTree() throws Exception {
+        Answer expected = tree(QUESTIONS).get(0).getAnswers().get(0);
+        Answer actual = Question.fromJSONString(QUESTIONS, null).get(0).getAnswers().get(0);
+        assertEquals(11, actual.getPostId());
+        assertEquals(expected.isAccepted(), actual.isAccepted());
+        assertEquals(expected.getUrlForComments(), actual.getUrlForComments());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getScore(), actual.getScore());
+        assertSameUser(expected.getOwner(), actual.getOwner());
+    }
+
+    @Test
+    public void missingMembersGetTheTreeDefaults() throws Exception {
+        String minimal = "{\"questions\":[{\"question_id\":3,\"title\":\"t\",\"creation_date\":1,\"score\":0,"
+                + "\"view_count\":0,\"community_owned\":false,\"up_vote_count\":0,\"down_vote_count\":0,"
+                + "\"answer_count\":0,\"favorite_count\":0,\"question_comments_url\":\"/q\",\"tags\":[],"
+                + "\"owner\":{\"user_id\":1,\"reputation\":1,\"email_hash\":\"h\"}}]}";
+        Question expected = tree(minimal).get(0);
+        Question actual = Question.fromJSONString(minimal, null).get(0);
+        assertEquals(expected.getAcceptedAnswerId(), actual.getAcceptedAnswerId());
+        assertEquals(expected.getBountyAmount(), actual.getBountyAmount());
+        assertEquals(expected.getBountyClosesDate(), actual.getBountyClosesDate());
+        assertEquals(expected.getClosedDate(), actual.getClosedDate());
+        assertEquals(expected.getClosedReason(), actual.getClosedReason());
+        assertEquals(expected.getQuestionTimelineUrl(), actual.getQuestionTimelineUrl());
+        assertEquals(expected.getLockedDate(), actual.getLockedDate());
+        assertEquals(expected.getLastEditDate(), actual.getLastEditDate());
+        assertSameUser(expected.getOwner(), actual.getOwner());
+    }
+
+    @Test
+    public void nullMembersKeepTheDefault() throws Exception {
+        String json = QUESTIONS.replace("\"duplicate\"", "null")
+                .replace("\"accepted_answer_id\":11", "\"accepted_answer_id\":null");
+        Question question = Question.fromJSONString(json, null).get(0);
+        assertNull(question.getClosedReason());
+        assertEquals(-1, question.getAcceptedAnswerId());
+    }
+
+    @Test
+    public void missingPageIsAnError() {
+        try {
+            Question.fromJSONString("{\"items\":[]}", null);
+            fail("A response without questions should not bind.");
+        } catch (JSONException expected) {
+            assertTrue(expected.getMessage().contains("questions"));
+        }
+    }
+
+    @Test(expected = JSONException.class)
+    public void wrongTypeIsAnError() throws Exception {
+        Question.fromJSONString("{\"questions\":[{\"question_id\":\"ten\"}]}", null);
+    }
+}
@@ -0,0 +1,61 @@
+package net.sf.stackwrap4j.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the quota fields of responses only ever slow a limiter down.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class AdaptiveThrottleTest {
+
+    private static final double DELTA = 1e-9;
+
+    private static String wrapper(int remaining, int max) {
+        return "{\"items\":[],\"quota_remaining\":" + remaining + ",\"quota_max\":" + max + "}";
+    }
+
+    @Test
+    public void fullQuotaKeepsTheConfiguredRate() {
+        RateLimiter limiter = new RateLimiter(RateLimiter.DEFAULT_RATE, RateLimiter.DEFAULT_BURST);
+        AdaptiveThrottle.forLimiter(limiter).observe("questions/1", wrapper(9999, 10000));
+        assertEquals(RateLimiter.DEFAULT_RATE, limiter.getRate(), DELTA);
+    }
+
+    @Test
+    public void lowQuotaSlowsDownAndRecovers() {
+        RateLimiter limiter = new RateLimiter(4.0, RateLimiter.DEFAULT_BURST);
+        AdaptiveThrottle throttle = AdaptiveThrottle.forLimiter(limiter);
+        throttle.observe("questions/1", wrapper(1000, 10000));
+        assertTrue(limiter.getRate() < 4.0);
+        assertTrue(limiter.getRate() >= AdaptiveThrottle.DEFAULT_MIN_RATE);
+        throttle.observe("questions/1", wrapper(9000, 10000));
+        assertEquals(4.0, limiter.getRate(), DELTA);
+    }
+
+    @Test
+    public void exhaustedQuotaRunsAtTheMinimum() {
+        RateLimiter limiter = new RateLimiter(4.0, RateLimiter.DEFAULT_BURST);
+        AdaptiveThrottle.forLimiter(limiter).observe("questions/1", wrapper(0, 10000));
+        assertEquals(AdaptiveThrottle.DEFAULT_MIN_RATE, limiter.getRate(), DELTA);
+    }
+
+    @Test
+    public void slowerConfiguredRateIsNeverRaised() {
+        RateLimiter limiter = new RateLimiter(0.05, RateLimiter.DEFAULT_BURST);
+        AdaptiveThrottle.forLimiter(limiter).observe("questions/1", wrapper(9999, 10000));
+        assertEquals(0.05, limiter.getRate(), DELTA);
+    }
+
+    @Test
+    public void backoffIsHonoredPerMethod() {
+        RateLimiter limiter = new RateLimiter(4.0, RateLimiter.DEFAULT_BURST);
+        AdaptiveThrottle throttle = AdaptiveThrottle.forLimiter(limiter);
+        throttle.observe("questions/1;2/answers", "{\"items\":[],\"backoff\":10}");
+        assertTrue(throttle.getBackoffMillis("questions/3/answers") > 0);
+        assertEquals(0, throttle.getBackoffMillis("users/3"));
+    }
+}
@@ -0,0 +1,84 @@
+package net.sf.stackwrap4j.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests dispatching queued tasks on the queue's workers.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class ApiRequestQueueTest {
+
+    private ApiRequestQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new ApiRequestQueue(1, 16);
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutdown();
+    }
+
+    private static Callable<String> value(final String value) {
+        return new Callable<String>() {
+            public String call() {
+                return value;
+            }
+        };
+    }
+
+    /* A task that runs for the given time and ignores interrupts, like a blocking socket read. */
+    private static Callable<String> busy(final long millis) {
+        return new Callable<String>() {
+            public String call() {
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+                while (System.nanoTime() - end < 0) {
+                    Thread.yield();
+                }
+                return "late";
+            }
+        };
+    }
+
+    @Test
+    public void runsQueuedTasks() throws IOException {
+        assertEquals("a", queue.offer(value("a"), null).await());
+        assertEquals("b", queue.offer(value("b"), null).await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void timedOutRequestDoesNotCancelTheNextOne() throws IOException {
+        RateLimiter limiter = new RateLimiter(2, 1);
+        limiter.acquire();
+        ApiRequestQueue.Future<String> slow = queue.offer(busy(200), null);
+        // the worker will have to wait for a permit before making this one
+        ApiRequestQueue.Future<String> next = queue.offer(value("next"), limiter);
+        try {
+            slow.await(20, TimeUnit.MILLISECONDS);
+            fail("The slow request should have timed out.");
+        } catch (SocketTimeoutException expected) {
+            assertTrue(slow.isCancelled());
+        }
+        assertEquals("next", next.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownCancelsWaitingRequests() throws IOException {
+        queue.offer(busy(100), null);
+        ApiRequestQueue.Future<String> waiting = queue.offer(value("never"), null);
+        queue.shutdown();
+        assertTrue(waiting.isCancelled());
+    }
+}
@@ -0,0 +1,77 @@
+package net.sf.stackwrap4j.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests opening a breaker on failures and closing it again through probes.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class CircuitBreakerTest {
+
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        CircuitBreaker.reset();
+        CircuitBreaker.setRecovery(50, TimeUnit.MILLISECONDS, 2);
+        breaker = CircuitBreaker.forEndpoint("questions/{ids}");
+    }
+
+    @After
+    public void tearDown() {
+        CircuitBreaker.setRecovery(CircuitBreaker.DEFAULT_OPEN_MILLIS, TimeUnit.MILLISECONDS,
+                CircuitBreaker.DEFAULT_PROBES);
+        CircuitBreaker.reset();
+    }
+
+    private void failRequests(int requests) {
+        for (int i = 0; i < requests; i++) {
+            breaker.record(true, 0);
+        }
+    }
+
+    @Test
+    public void staysClosedBelowTheMinimumRequests() {
+        failRequests(CircuitBreaker.DEFAULT_MIN_REQUESTS - 1);
+        assertEquals(CircuitBreaker.State.CLOSED, CircuitBreaker.getState("questions/1"));
+        assertTrue(breaker.allow());
+    }
+
+    @Test
+    public void opensOnFailuresAndRejects() {
+        failRequests(CircuitBreaker.DEFAULT_MIN_REQUESTS);
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreaker.getState("questions/1"));
+        assertFalse(breaker.allow());
+    }
+
+    @Test
+    public void probesCloseTheBreaker() throws InterruptedException {
+        failRequests(CircuitBreaker.DEFAULT_MIN_REQUESTS);
+        Thread.sleep(60);
+        assertTrue(breaker.allow());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, CircuitBreaker.getState("questions/2"));
+        assertTrue(breaker.allow());
+        assertFalse(breaker.allow());
+        breaker.record(false, 0);
+        breaker.record(false, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, CircuitBreaker.getState("questions/2"));
+    }
+
+    @Test
+    public void failedProbeReopens() throws InterruptedException {
+        failRequests(CircuitBreaker.DEFAULT_MIN_REQUESTS);
+        Thread.sleep(60);
+        assertTrue(breaker.allow());
+        breaker.record(true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreaker.getState("questions/2"));
+        assertFalse(breaker.allow());
+    }
+}
@@ -0,0 +1,503 @@
+package net.sf.stackwrap4j.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.sf.stackwrap4j.json.JSONArray;
+import net.sf.stackwrap4j.json.JSONException;
+import net.sf.stackwrap4j.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A stand-in for the Stack Exchange API that replays recorded responses, so the client can be
+ * tested and measured offline.
+ *
+ * Responses come from the fixtures next to this class (search, questions, answers and users); a
+ * request is answered with the fixture named by the last matching segment of its route, so
+ * "questions/1;2/answers" gets the answers fixture. The wrapper's quota_remaining counts down with
+ * every request, as the real API's does. Methods registered with serveIds instead answer with one
+ * item per requested id, paged as the real API pages them.
+ *
+ * Responses are private and carry no validators, as the real API's do, unless setCaching says
+ * otherwise; failNext makes the next requests fail with an error status, to exercise retries.
+ *
+ * The API can be reached two ways: in memory, by installing transport() with
+ * HttpClient.setTransport, or over loopback HTTP with start(), which exercises the platform's
+ * HttpURLConnection and the keep-alive pool as well.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class FakeStackExchange {
+
+    private static final String[] FIXTURES = { "search", "questions", "answers", "users" };
+    private static final int QUOTA_MAX = 10000;
+    private static final int DEFAULT_PAGE_SIZE = 30;
+
+    private final Map<String, JSONObject> fixtures = new HashMap<String, JSONObject>();
+    private final Map<String, IdMethod> idMethods = new HashMap<String, IdMethod>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile long latencyMillis = 0;
+    private volatile boolean gzip = true;
+    private volatile int itemCount = 0;
+    private volatile int maxAgeSeconds = -1;
+    private volatile boolean etags = false;
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile int failureStatus;
+    private HttpServer server;
+
+    /**
+     * Creates a stand-in loaded with the recorded fixtures.
+     *
+     * @throws IOException
+     *             if a fixture cannot be read
+     */
+    public FakeStackExchange() throws IOException {
+        for (String name : FIXTURES) {
+            InputStream in = FakeStackExchange.class.getResourceAsStream("fixtures/" + name + ".json");
+            if (in == null)
+                throw new IOException("Missing fixture " + name);
+            try {
+                setFixture(name, ResponseDecoder.readString(in));
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Replaces or adds the response for a method.
+     *
+     * @param method
+     *            the route segment the response is served for (Example: "tags")
+     * @param json
+     *            the response, a wrapper object with an items array
+     */
+    public synchronized void setFixture(String method, String json) {
+        try {
+            fixtures.put(method, new JSONObject(json));
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid fixture for " + method, e);
+        }
+    }
+
+    /**
+     * Answers a vectorized method with one item per requested id, in request order, made from the
+     * first item of the method's fixture. Like the real API, the items are paged: 30 to a page, or
+     * the request's pagesize.
+     *
+     * @param method
+     *            the route segment followed by the ids (Example: "answers")
+     * @param pageKey
+     *            the member of the response that holds the items (Example: "answers")
+     * @param idField
+     *            the member of each item the id is written to (Example: "answer_id")
+     */
+    public synchronized void serveIds(String method, String pageKey, String idField) {
+        idMethods.put(method, new IdMethod(pageKey, idField));
+    }
+
+    /**
+     * Sets how long every request takes before its response starts.
+     * @param millis the time to first byte, in milliseconds
+     */
+    public void setLatency(long millis) {
+        this.latencyMillis = millis;
+    }
+
+    /**
+     * Sets whether responses are gzipped. The real API always compresses its responses.
+     * @param gzip whether to gzip responses
+     */
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * Sets the number of items in every response, repeating the fixture's items as needed. With 0
+     * (the default) responses hold the request's pagesize items, or the fixture as recorded.
+     *
+     * @param itemCount
+     *            the number of items per response
+     */
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Sets the caching headers of every response. By default responses are private and carry no
+     * validators, so nothing is cached.
+     *
+     * @param maxAgeSeconds
+     *            the max-age sent, or -1 to send none
+     * @param etags
+     *            whether responses carry an ETag. The content of a URL never changes, so a request
+     *            whose If-None-Match matches it is answered with 304 Not Modified.
+     */
+    public void setCaching(int maxAgeSeconds, boolean etags) {
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.etags = etags;
+    }
+
+    /**
+     * Makes the next requests fail with an error response instead of being answered.
+     *
+     * @param count
+     *            the number of requests to fail
+     * @param status
+     *            the HTTP status to fail them with (Example: 503)
+     */
+    public void failNext(int count, int status) {
+        this.failureStatus = status;
+        failuresLeft.set(count);
+    }
+
+    /**
+     * Gets the number of requests answered so far.
+     * @return the request count
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Gets a transport that answers requests in memory, without opening sockets.
+     * @return the in-memory transport
+     */
+    public Transport transport() {
+        return new Transport() {
+            public HttpURLConnection open(URL url) {
+                return new FakeConnection(url);
+            }
+        };
+    }
+
+    /**
+     * Starts serving over HTTP on the loopback interface.
+     *
+     * @return the base URL to make requests to (Example: "http://127.0.0.1:50123/")
+     * @throws IOException
+     *             if the server cannot be started
+     */
+    public synchronized String start() throws IOException {
+        if (server == null) {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/", new HttpHandler() {
+                public void handle(HttpExchange exchange) throws IOException {
+                    try {
+                        Response response = respond(exchange.getRequestURI().getRawPath(),
+                                exchange.getRequestURI().getRawQuery(),
+                                exchange.getRequestHeaders().getFirst("If-None-Match"));
+                        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+                            exchange.getResponseHeaders().add(header.getKey(), header.getValue());
+                        }
+                        exchange.sendResponseHeaders(response.status,
+                                response.body.length == 0 ? -1 : response.body.length);
+                        OutputStream out = exchange.getResponseBody();
+                        out.write(response.body);
+                        out.close();
+                    } finally {
+                        exchange.close();
+                    }
+                }
+            });
+            server.start();
+        }
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Stops the HTTP server, if it was started.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /*
+     * Builds the response to a request.
+     */
+    Response respond(String path, String query, String ifNoneMatch) throws IOException {
+        int count = requestCount.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while simulating latency.");
+            }
+        }
+        Map<String, String> params = parseQuery(query);
+        JSONObject fixture = fixtureFor(path);
+        String[] ids = null;
+        IdMethod idMethod = null;
+        synchronized (this) {
+            String[] segments = path.split("/");
+            for (int i = 0; i < segments.length - 1 && idMethod == null; i++) {
+                idMethod = idMethods.get(segments[i]);
+                if (idMethod != null) {
+                    fixture = fixtures.get(segments[i]);
+                    ids = segments[i + 1].replace("%3B", ";").split(";");
+                }
+            }
+        }
+        String etag = "\"" + Integer.toHexString((path + '?' + query).hashCode()) + "\"";
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        if (maxAgeSeconds >= 0)
+            headers.put("Cache-Control", "private, max-age=" + maxAgeSeconds);
+        else
+            headers.put("Cache-Control", "private");
+        if (etags)
+            headers.put("ETag", etag);
+        try {
+            int status;
+            String json;
+            if (takeFailure()) {
+                status = failureStatus;
+                headers.remove("ETag");
+                json = new JSONObject().put("error_id", status).put("error_name", "temporarily_unavailable")
+                        .put("error_message", "injected failure").toString();
+            } else if (fixture == null) {
+                status = 404;
+                json = new JSONObject().put("error_id", 404).put("error_name", "no_method")
+                        .put("error_message", "no method found with this name").toString();
+            } else if (etags && etag.equals(ifNoneMatch)) {
+                return new Response(304, headers, new byte[0]);
+            } else {
+                status = 200;
+                json = (idMethod == null ? envelope(fixture, params, count)
+                        : byIds(fixture, idMethod, ids, params, count)).toString();
+            }
+            headers.put("Content-Type", "application/json; charset=utf-8");
+            byte[] body = json.getBytes("UTF-8");
+            if (gzip) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+                GZIPOutputStream out = new GZIPOutputStream(bytes);
+                out.write(body);
+                out.close();
+                body = bytes.toByteArray();
+                headers.put("Content-Encoding", "gzip");
+            }
+            headers.put("Content-Length", Integer.toString(body.length));
+            return new Response(status, headers, body);
+        } catch (JSONException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    private boolean takeFailure() {
+        for (;;) {
+            int left = failuresLeft.get();
+            if (left <= 0)
+                return false;
+            if (failuresLeft.compareAndSet(left, left - 1))
+                return true;
+        }
+    }
+
+    private synchronized JSONObject fixtureFor(String path) {
+        String[] segments = path.split("/");
+        for (int i = segments.length - 1; i >= 0; i--) {
+            JSONObject fixture = fixtures.get(segments[i]);
+            if (fixture != null)
+                return fixture;
+        }
+        return null;
+    }
+
+    private JSONObject envelope(JSONObject fixture, Map<String, String> params, int count) throws JSONException {
+        JSONArray recorded = fixture.getJSONArray("items");
+        int items = itemCount;
+        if (items <= 0 && params.containsKey("pagesize"))
+            items = Integer.parseInt(params.get("pagesize"));
+        JSONArray out = recorded;
+        if (items > 0 && recorded.length() > 0) {
+            out = new JSONArray();
+            for (int i = 0; i < items; i++) {
+                out.put(recorded.get(i % recorded.length()));
+            }
+        }
+        JSONObject wrapper = new JSONObject();
+        wrapper.put("items", out);
+        wrapper.put("has_more", fixture.optBoolean("has_more", false));
+        wrapper.put("quota_max", QUOTA_MAX);
+        wrapper.put("quota_remaining", Math.max(0, QUOTA_MAX - count));
+        return wrapper;
+    }
+
+    private JSONObject byIds(JSONObject fixture, IdMethod method, String[] ids, Map<String, String> params,
+            int count) throws JSONException {
+        String template = fixture.getJSONArray("items").getJSONObject(0).toString();
+        int pageSize = params.containsKey("pagesize") ? Integer.parseInt(params.get("pagesize")) : DEFAULT_PAGE_SIZE;
+        int page = params.containsKey("page") ? Integer.parseInt(params.get("page")) : 1;
+        int from = (page - 1) * pageSize;
+        JSONArray out = new JSONArray();
+        for (int i = from; i < ids.length && i < from + pageSize; i++) {
+            out.put(new JSONObject(template).put(method.idField, Integer.parseInt(ids[i])));
+        }
+        JSONObject wrapper = new JSONObject();
+        wrapper.put(method.pageKey, out);
+        wrapper.put("total", ids.length);
+        wrapper.put("page", page);
+        wrapper.put("pagesize", pageSize);
+        wrapper.put("has_more", ids.length > from + pageSize);
+        wrapper.put("quota_max", QUOTA_MAX);
+        wrapper.put("quota_remaining", Math.max(0, QUOTA_MAX - count));
+        return wrapper;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query == null)
+            return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+
+    private static final class IdMethod {
+        final String pageKey;
+        final String idField;
+
+        IdMethod(String pageKey, String idField) {
+            this.pageKey = pageKey;
+            this.idField = idField;
+        }
+    }
+
+    static final class Response {
+        final int status;
+        final Map<String, String> headers;
+        final byte[] body;
+
+        Response(int status, Map<String, String> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    /**
+     * An HttpURLConnection answered in memory.
+     */
+    private final class FakeConnection extends HttpURLConnection {
+        private Response response;
+
+        FakeConnection(URL url) {
+            super(url);
+        }
+
+        @Override
+        public void connect() throws IOException {
+            if (connected)
+                return;
+            response = respond(url.getPath(), url.getQuery(), getRequestProperty("If-None-Match"));
+            connected = true;
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            connect();
+            return response.status;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            connect();
+            if (response.status >= 400)
+                throw new IOException("Server returned HTTP response code: " + response.status + " for URL: " + url);
+            return new ByteArrayInputStream(response.body);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            if (!connected || response.status < 400)
+                return null;
+            return new ByteArrayInputStream(response.body);
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            if (!ensureConnected() || name == null)
+                return null;
+            for (Map.Entry<String, String> header : response.headers.entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name))
+                    return header.getValue();
+            }
+            return null;
+        }
+
+        @Override
+        public String getHeaderFieldKey(int n) {
+            if (!ensureConnected() || n < 1 || n > response.headers.size())
+                return null;
+            return new ArrayList<String>(response.headers.keySet()).get(n - 1);
+        }
+
+        @Override
+        public String getHeaderField(int n) {
+            if (!ensureConnected())
+                return null;
+            if (n == 0)
+                return "HTTP/1.1 " + response.status;
+            if (n > response.headers.size())
+                return null;
+            return new ArrayList<String>(response.headers.values()).get(n - 1);
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            if (!ensureConnected())
+                return Collections.emptyMap();
+            Map<String, List<String>> fields = new LinkedHashMap<String, List<String>>();
+            for (Map.Entry<String, String> header : response.headers.entrySet()) {
+                fields.put(header.getKey(), Collections.singletonList(header.getValue()));
+            }
+            return Collections.unmodifiableMap(fields);
+        }
+
+        private boolean ensureConnected() {
+            try {
+                connect();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
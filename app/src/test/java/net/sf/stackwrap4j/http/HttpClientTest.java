@@ -0,0 +1,134 @@
+package net.sf.stackwrap4j.http;
+
+import net.sf.stackwrap4j.json.JSONObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests retrying failed requests and serving requests from the cache, against a FakeStackExchange.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class HttpClientTest {
+
+    private static final String BASE_URL = "http://api.stackexchange.com/";
+    private static final String VERSION = "2.2/";
+
+    private FakeStackExchange fake;
+    private HttpClient client;
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        fake = new FakeStackExchange();
+        client = new HttpClient(fake.transport());
+        HttpClient.setRetryPolicy(new RetryPolicy(3, 1, 5, TimeUnit.MILLISECONDS));
+        CircuitBreaker.reset();
+    }
+
+    @After
+    public void tearDown() {
+        HttpClient.setRetryPolicy(RetryPolicy.DEFAULT);
+        HttpClient.setCache(null);
+        CircuitBreaker.reset();
+        if (cacheDir != null) {
+            File[] files = cacheDir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            cacheDir.delete();
+        }
+    }
+
+    private HttpCache installCache() throws IOException {
+        cacheDir = File.createTempFile("httpcache", "");
+        cacheDir.delete();
+        HttpCache cache = new HttpCache(cacheDir, 1 << 20);
+        HttpClient.setCache(cache);
+        return cache;
+    }
+
+    private JSONObject get(String route) throws Exception {
+        return client.sendGetRequestForJSON(BASE_URL, VERSION, route, null, "site=stackoverflow");
+    }
+
+    @Test
+    public void readsGzippedResponses() throws Exception {
+        JSONObject page = get("questions");
+        assertTrue(page.getJSONArray("items").length() > 0);
+        assertEquals(1, fake.getRequestCount());
+    }
+
+    @Test
+    public void retriesServerErrors() throws Exception {
+        long retried = HttpClient.getRetriedRequests();
+        fake.failNext(2, 503);
+        assertTrue(get("questions").getJSONArray("items").length() > 0);
+        assertEquals(3, fake.getRequestCount());
+        assertEquals(retried + 2, HttpClient.getRetriedRequests());
+    }
+
+    @Test
+    public void givesUpAfterTheLastAttempt() throws Exception {
+        fake.failNext(3, 503);
+        try {
+            get("questions");
+            fail("Three failures should have exhausted the retries.");
+        } catch (IOException expected) {
+        }
+        assertEquals(3, fake.getRequestCount());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws Exception {
+        fake.failNext(1, 400);
+        try {
+            get("questions");
+            fail("A 400 response should have failed the request.");
+        } catch (IOException expected) {
+        }
+        assertEquals(1, fake.getRequestCount());
+    }
+
+    @Test
+    public void freshEntriesSkipTheNetwork() throws Exception {
+        HttpCache cache = installCache();
+        fake.setCaching(60, false);
+        String first = get("answers").toString();
+        assertEquals(first, get("answers").toString());
+        assertEquals(1, fake.getRequestCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void staleEntriesAreRevalidated() throws Exception {
+        HttpCache cache = installCache();
+        fake.setCaching(0, true);
+        String first = get("users").toString();
+        assertEquals(first, get("users").toString());
+        assertEquals(2, fake.getRequestCount());
+        assertEquals(1, cache.getConditionalHitCount());
+        assertEquals(1, cache.getNetworkCount());
+    }
+
+    @Test
+    public void privateResponsesAreNotCached() throws Exception {
+        HttpCache cache = installCache();
+        get("search");
+        get("search");
+        assertEquals(2, fake.getRequestCount());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getConditionalHitCount());
+    }
+}
@@ -0,0 +1,60 @@
+package net.sf.stackwrap4j.http;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests spreading requests over a pool of keys without multiplying the request rate.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class KeyPoolTest {
+
+    private static final String HOST = "keypool.test";
+    private static final String BASE_URL = "http://" + HOST + "/";
+
+    @After
+    public void tearDown() {
+        RateLimiter.forHost(HOST).setRate(RateLimiter.DEFAULT_RATE, RateLimiter.DEFAULT_BURST);
+    }
+
+    @Test
+    public void keysWithoutQuotaReportsTakeTurns() throws Exception {
+        KeyPool pool = new KeyPool("a", "b", "c");
+        Set<String> picked = new HashSet<String>();
+        for (int i = 0; i < 3; i++) {
+            picked.add(pool.select(BASE_URL));
+        }
+        assertEquals(3, picked.size());
+    }
+
+    @Test
+    public void everyKeyWaitsOnTheHostLimiter() throws Exception {
+        RateLimiter shared = RateLimiter.forHost(HOST);
+        shared.setRate(0.1, 2);
+        HttpClient client = new HttpClient(new FakeStackExchange().transport(), new KeyPool("a", "b", "c"));
+        client.sendGetRequestForJSON(BASE_URL, "2.2/", "questions", null);
+        client.sendGetRequestForJSON(BASE_URL, "2.2/", "questions", null, "page=2");
+        // both permits of the shared bucket went to the two requests, whichever keys they used
+        assertFalse(shared.tryAcquire());
+        assertTrue(RateLimiter.forKey(HOST, "a").tryAcquire());
+        assertTrue(RateLimiter.forKey(HOST, "b").tryAcquire());
+    }
+
+    @Test
+    public void eachKeyKeepsItsOwnQuota() {
+        RateLimiter shared = RateLimiter.forHost(HOST);
+        AdaptiveThrottle x = AdaptiveThrottle.forKey(shared, "x");
+        AdaptiveThrottle y = AdaptiveThrottle.forKey(shared, "y");
+        x.observe("questions", "{\"items\":[],\"quota_remaining\":10,\"quota_max\":10000}");
+        assertEquals(10, x.getQuotaRemaining());
+        assertEquals(-1, y.getQuotaRemaining());
+        assertSame(x, AdaptiveThrottle.forKey(shared, "x"));
+    }
+}
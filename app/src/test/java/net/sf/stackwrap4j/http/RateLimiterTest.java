@@ -0,0 +1,77 @@
+package net.sf.stackwrap4j.http;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a limiter allows its burst back to back and spaces requests out after it.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void burstIsNotDelayed() throws Exception {
+        RateLimiter limiter = new RateLimiter(1, 5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.acquire());
+        }
+    }
+
+    @Test
+    public void requestsAfterTheBurstAreSpacedOut() throws Exception {
+        RateLimiter limiter = new RateLimiter(20, 1);
+        limiter.acquire();
+        long start = System.nanoTime();
+        long waited = limiter.acquire();
+        long elapsed = System.nanoTime() - start;
+        assertTrue("Waited " + waited + " ns", waited > TimeUnit.MILLISECONDS.toNanos(25));
+        assertTrue("Took " + elapsed + " ns", elapsed >= TimeUnit.MILLISECONDS.toNanos(25));
+    }
+
+    @Test
+    public void waitingCallersQueueBehindEachOther() throws Exception {
+        RateLimiter limiter = new RateLimiter(50, 1);
+        limiter.acquire();
+        long start = System.nanoTime();
+        limiter.acquire();
+        limiter.acquire();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void tryAcquireNeverWaits() {
+        RateLimiter limiter = new RateLimiter(0.1, 2);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void setRateShrinksTheBucket() {
+        RateLimiter limiter = new RateLimiter(0.1, 10);
+        limiter.setRate(0.1, 1);
+        assertEquals(1, limiter.getBurst());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void throttleNeverExceedsTheConfiguredRate() {
+        RateLimiter limiter = new RateLimiter(2, 1);
+        limiter.throttle(1);
+        assertEquals(1, limiter.getRate(), 1e-9);
+        limiter.throttle(8);
+        assertEquals(2, limiter.getRate(), 1e-9);
+        assertEquals(2, limiter.getConfiguredRate(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnEmptyBucket() {
+        new RateLimiter(1, 0);
+    }
+}
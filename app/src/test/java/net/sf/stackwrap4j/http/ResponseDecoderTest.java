@@ -0,0 +1,85 @@
+package net.sf.stackwrap4j.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that gzip bodies are inflated and that their trailer is checked against what came out.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class ResponseDecoderTest {
+
+    private static final String BODY = "{\"items\":[{\"question_id\":1,\"title\":\"Caf\u00e9\"}],\"has_more\":false}";
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gz = new GZIPOutputStream(out);
+        gz.write(text.getBytes("UTF-8"));
+        gz.close();
+        return out.toByteArray();
+    }
+
+    private static String decode(byte[] body) throws IOException {
+        InputStream in = ResponseDecoder.decode(new ByteArrayInputStream(body), "gzip");
+        try {
+            return ResponseDecoder.readString(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void inflatesAGzipBody() throws Exception {
+        assertEquals(BODY, decode(gzip(BODY)));
+    }
+
+    @Test
+    public void inflatesABodyReadOneByteAtATime() throws Exception {
+        InputStream in = ResponseDecoder.decode(new ByteArrayInputStream(gzip(BODY)), "gzip");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        in.close();
+        assertEquals(BODY, out.toString("UTF-8"));
+    }
+
+    @Test(expected = ZipException.class)
+    public void rejectsACorruptCrc() throws Exception {
+        byte[] body = gzip(BODY);
+        body[body.length - 8] ^= 1;
+        decode(body);
+    }
+
+    @Test(expected = ZipException.class)
+    public void rejectsAWrongLength() throws Exception {
+        byte[] body = gzip(BODY);
+        body[body.length - 4]++;
+        decode(body);
+    }
+
+    @Test(expected = EOFException.class)
+    public void rejectsATruncatedTrailer() throws Exception {
+        byte[] body = gzip(BODY);
+        decode(Arrays.copyOf(body, body.length - 3));
+    }
+
+    @Test
+    public void ignoresWhateverFollowsTheTrailer() throws Exception {
+        byte[] body = gzip(BODY);
+        assertEquals(BODY, decode(Arrays.copyOf(body, body.length + 2)));
+    }
+}
@@ -0,0 +1,85 @@
+package net.sf.stackwrap4j.http;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests sharing one call between identical requests in flight.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class SingleFlightTest {
+
+    private final SingleFlight flight = new SingleFlight();
+
+    /* A call that signals when it starts, then takes the given time. */
+    private static Callable<String> slow(final CountDownLatch started, final long millis, final AtomicInteger calls) {
+        return new Callable<String>() {
+            public String call() throws InterruptedException {
+                calls.incrementAndGet();
+                started.countDown();
+                Thread.sleep(millis);
+                return "shared";
+            }
+        };
+    }
+
+    /* Starts the leader's call on its own thread and waits until it is in flight. */
+    private Thread lead(final Callable<String> call, CountDownLatch started, final AtomicReference<Object> result)
+            throws InterruptedException {
+        Thread leader = new Thread() {
+            public void run() {
+                try {
+                    result.set(flight.execute("questions/1", null, call));
+                } catch (Exception e) {
+                    result.set(e);
+                }
+            }
+        };
+        leader.start();
+        started.await();
+        return leader;
+    }
+
+    @Test
+    public void followersShareTheLeadersCall() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<Object> leaderResult = new AtomicReference<Object>();
+        Thread leader = lead(slow(started, 100, calls), started, leaderResult);
+        assertEquals("shared", flight.execute("questions/1", null, slow(started, 100, calls)));
+        leader.join();
+        assertEquals("shared", leaderResult.get());
+        assertEquals(1, calls.get());
+        assertEquals(1, flight.getHits());
+    }
+
+    @Test
+    public void followerGivesUpAtItsDeadline() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<Object> leaderResult = new AtomicReference<Object>();
+        Thread leader = lead(slow(started, 500, calls), started, leaderResult);
+        long start = System.nanoTime();
+        Deadline deadline = Deadline.start(50, TimeUnit.MILLISECONDS);
+        try {
+            flight.execute("questions/1", null, slow(started, 500, calls));
+            fail("The follower should have given up at its deadline.");
+        } catch (Deadline.Exceeded expected) {
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(400));
+        } finally {
+            deadline.end();
+        }
+        // the leader's call is left to finish
+        leader.join();
+        assertEquals("shared", leaderResult.get());
+    }
+}
@@ -0,0 +1,163 @@
+package net.sf.stackwrap4j.json;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests reading documents token by token, from memory and from streams that trickle in.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class JsonReaderTest {
+
+    private static final String PAGE = "{\"items\":[{\"question_id\":40010398,\"title\":\"Caf\\u00e9 \\\"menu\\\"\","
+            + "\"score\":-3,\"ratio\":1.5e2,\"is_answered\":true,\"body\":null,\"tags\":[\"java\",\"json\"]}],"
+            + "\"has_more\":false}";
+
+    private static JsonReader reader(String json) throws Exception {
+        return new JsonReader(json.getBytes("UTF-8"));
+    }
+
+    /* A stream that hands out one byte per read, so every token straddles a refill. */
+    private static JsonReader trickle(String json) throws Exception {
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(json.getBytes("UTF-8"))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        return new JsonReader(in);
+    }
+
+    private static void readPage(JsonReader reader) throws Exception {
+        reader.beginObject();
+        assertEquals("items", reader.nextName());
+        reader.beginArray();
+        reader.beginObject();
+        assertEquals("question_id", reader.nextName());
+        assertEquals(40010398L, reader.nextLong());
+        assertEquals("title", reader.nextName());
+        assertEquals("Caf\u00e9 \"menu\"", reader.nextString());
+        assertEquals("score", reader.nextName());
+        assertEquals(-3, reader.nextInt());
+        assertEquals("ratio", reader.nextName());
+        assertEquals(150.0, reader.nextDouble(), 0);
+        assertEquals("is_answered", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertEquals("body", reader.nextName());
+        assertEquals(JsonReader.Token.NULL, reader.peek());
+        reader.nextNull();
+        assertEquals("tags", reader.nextName());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        reader.endArray();
+        assertEquals("has_more", reader.nextName());
+        assertFalse(reader.nextBoolean());
+        reader.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void readsTokensInOrder() throws Exception {
+        readPage(reader(PAGE));
+    }
+
+    @Test
+    public void readsTokensFromATrickle() throws Exception {
+        readPage(trickle(PAGE));
+    }
+
+    @Test
+    public void nextValueMatchesTheTree() throws Exception {
+        assertEquals(new JSONObject(PAGE).toString(), reader(PAGE).nextValue().toString());
+        assertEquals(new JSONObject(PAGE).toString(), trickle(PAGE).nextValue().toString());
+    }
+
+    @Test
+    public void nextValueKeepsNumberTypes() throws Exception {
+        JSONArray numbers = (JSONArray) reader("[7,4000000000,2.5]").nextValue();
+        assertEquals(Integer.valueOf(7), numbers.get(0));
+        assertEquals(Long.valueOf(4000000000L), numbers.get(1));
+        assertEquals(Double.valueOf(2.5), numbers.get(2));
+    }
+
+    @Test
+    public void readsTheLongRange() throws Exception {
+        JsonReader reader = reader("[9223372036854775807,-9223372036854775808,\"12\"]");
+        reader.beginArray();
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertEquals(12, reader.nextLong());
+        reader.endArray();
+    }
+
+    @Test
+    public void decodesEscapes() throws Exception {
+        String json = "\"tab\\tslash\\/back\\\\quote\\\"smile\\ud83d\\ude00nl\\n\"";
+        assertEquals("tab\tslash/back\\quote\"smile\ud83d\ude00nl\n", reader(json).nextString());
+    }
+
+    @Test
+    public void decodesMultibyteCharacters() throws Exception {
+        String text = "na\u00efve \u4e2d\u6587 \ud83d\ude00";
+        assertEquals(text, reader("\"" + text + "\"").nextString());
+        assertEquals(text, trickle("\"" + text + "\"").nextString());
+    }
+
+    @Test
+    public void readsStringsLongerThanTheBuffer() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            text.append("abc\u00e9");
+        }
+        JsonReader reader = trickle("[\"" + text + "\"]");
+        reader.beginArray();
+        assertEquals(text.toString(), reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    public void skipsNestedValues() throws Exception {
+        JsonReader reader = reader("[{\"a\":[1,{\"b\":\"}\"}],\"c\":null},true]");
+        reader.beginArray();
+        reader.skipValue();
+        assertTrue(reader.nextBoolean());
+        reader.endArray();
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsTheWrongToken() throws Exception {
+        reader("{\"a\":1}").beginArray();
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsAMissingColon() throws Exception {
+        JsonReader reader = reader("{\"a\" 1}");
+        reader.beginObject();
+        reader.nextName();
+        reader.nextLong();
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsABadEscape() throws Exception {
+        reader("\"\\x\"").nextString();
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsAnIntOutOfRange() throws Exception {
+        reader("4000000000").nextInt();
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsAnUnterminatedString() throws Exception {
+        trickle("\"open").nextString();
+    }
+}
@@ -0,0 +1,80 @@
+package net.sf.stackwrap4j.json;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that lazily read JSON reads and writes the same as eagerly parsed JSON.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class LazyDocumentTest {
+
+    private static final String PAGE = "{\"items\":[{\"title\":\"Caf\\u00e9 \\\"menu\\\"\",\"score\":12,"
+            + "\"tags\":[\"java\",\"json\"],\"owner\":{\"user_id\":7,\"display_name\":\"Ada\"},\"body\":null},"
+            + "{\"title\":\"Second\",\"score\":-3,\"tags\":[],\"owner\":{}}],\"has_more\":true,\"total\":2}";
+
+    private static JSONObject lazy(String json) throws Exception {
+        return (JSONObject) new JsonReader(json.getBytes("UTF-8")).nextLazyValue();
+    }
+
+    @Test
+    public void readsTheSameValuesAsTheTree() throws Exception {
+        JSONObject page = lazy(PAGE);
+        JSONObject first = page.getJSONArray("items").getJSONObject(0);
+        assertEquals("Caf\u00e9 \"menu\"", first.getString("title"));
+        assertEquals(12, first.getInt("score"));
+        assertEquals("json", first.getJSONArray("tags").getString(1));
+        assertEquals(7, first.getJSONObject("owner").getInt("user_id"));
+        assertTrue(first.isNull("body"));
+        assertTrue(page.getBoolean("has_more"));
+    }
+
+    @Test
+    public void toStringMatchesTheTree() throws Exception {
+        assertEquals(new JSONObject(PAGE).toString(), lazy(PAGE).toString());
+    }
+
+    @Test
+    public void writeMatchesTheTree() throws Exception {
+        StringWriter eager = new StringWriter();
+        new JSONObject(PAGE).write(eager);
+        StringWriter lazy = new StringWriter();
+        lazy(PAGE).write(lazy);
+        assertEquals(eager.toString(), lazy.toString());
+    }
+
+    @Test
+    public void indentedToStringMatchesTheTree() throws Exception {
+        assertEquals(new JSONObject(PAGE).toString(2), lazy(PAGE).toString(2));
+    }
+
+    @Test
+    public void joinDecodesElements() throws Exception {
+        JSONArray tags = lazy(PAGE).getJSONArray("items").getJSONObject(0).getJSONArray("tags");
+        assertEquals("\"java\",\"json\"", tags.join(","));
+    }
+
+    @Test
+    public void removeReturnsTheDecodedValue() throws Exception {
+        JSONObject page = lazy(PAGE);
+        Object items = page.remove("items");
+        assertTrue(items instanceof JSONArray);
+        assertFalse(page.has("items"));
+    }
+
+    @Test
+    public void readsScalarsEagerly() throws Exception {
+        assertEquals("plain", new JsonReader("\"plain\"".getBytes("UTF-8")).nextLazyValue());
+        assertEquals(Integer.valueOf(42), new JsonReader("42".getBytes("UTF-8")).nextLazyValue());
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsUnclosedContainers() throws Exception {
+        lazy("{\"items\":[1,2}");
+    }
+}
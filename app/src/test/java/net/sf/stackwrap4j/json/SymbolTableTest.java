@@ -0,0 +1,85 @@
+package net.sf.stackwrap4j.json;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests which strings a symbol table keeps, and what happens when two of them want the same slot.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class SymbolTableTest {
+
+    private static String get(SymbolTable table, String s) {
+        char[] chars = ("[" + s + "]").toCharArray();
+        return table.get(chars, 1, s.length());
+    }
+
+    @Test
+    public void repeatedStringsShareOneInstance() {
+        SymbolTable table = new SymbolTable(16, 8, false);
+        String first = get(table, "owner");
+        assertSame(first, get(table, "owner"));
+        assertSame(first, table.get(new StringBuilder("owner")));
+    }
+
+    @Test
+    public void stringsInTheSameSlotEvictEachOther() {
+        // in a table of two slots, "a" and "c" hash to slot 1 and "b" to slot 0
+        SymbolTable table = new SymbolTable(2, 8, false);
+        String a = get(table, "a");
+        String b = get(table, "b");
+        String c = get(table, "c");
+        assertSame(c, get(table, "c"));
+        assertSame(b, get(table, "b"));
+        String again = get(table, "a");
+        assertEquals("a", again);
+        assertNotSame(a, again);
+        assertNotSame(c, get(table, "c"));
+    }
+
+    @Test
+    public void evictedNamesComeBackInterned() {
+        SymbolTable table = new SymbolTable(2, 8, true);
+        assertSame("a", get(table, "a"));
+        get(table, "c");
+        assertSame("a", get(table, "a"));
+        assertSame("a", table.get(new StringBuilder("a")));
+    }
+
+    @Test
+    public void stringsUpToTheCutoffAreKept() {
+        SymbolTable table = new SymbolTable(16, 5, false);
+        assertSame(get(table, "title"), get(table, "title"));
+        assertSame(table.get(new StringBuilder("score")), table.get(new StringBuilder("score")));
+    }
+
+    @Test
+    public void longerStringsAreNotKept() {
+        SymbolTable table = new SymbolTable(16, 5, false);
+        String first = get(table, "owners");
+        assertEquals("owners", first);
+        assertNotSame(first, get(table, "owners"));
+        assertNotSame(table.get(new StringBuilder("scores")), table.get(new StringBuilder("scores")));
+    }
+
+    @Test
+    public void sharedTablesUseTheirCutoffs() {
+        String name = repeat('n', 64);
+        assertSame(get(SymbolTable.NAMES, name), get(SymbolTable.NAMES, name));
+        assertNotSame(get(SymbolTable.NAMES, name + "n"), get(SymbolTable.NAMES, name + "n"));
+        String value = repeat('v', 24);
+        assertSame(get(SymbolTable.VALUES, value), get(SymbolTable.VALUES, value));
+        assertNotSame(get(SymbolTable.VALUES, value + "v"), get(SymbolTable.VALUES, value + "v"));
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package net.sf.stackwrap4j.routes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests expanding precompiled routes.
+ *
+ * @author Bill Cruise
+ * @author Justin Nelson
+ */
+public class BaseRouteTest {
+
+    private static final BaseRoute COMMENTS_TO = BaseRoute.compile("users/{ids}/comments/{toid}/");
+
+    @Test
+    public void expandsEveryPlaceholder() {
+        assertEquals("users/1;2/comments/7/", COMMENTS_TO.expand("1;2", "7"));
+    }
+
+    @Test
+    public void encodesValuesButNotIdSeparators() {
+        assertEquals("tags/c%23;java/info", BaseRoute.compile("tags/{tags}/info").expand("c#;java"));
+    }
+
+    @Test
+    public void writesIdsIntoAReusedBuilder() {
+        int[] ids = { 5, 6, 7, 8 };
+        StringBuilder sb = new StringBuilder();
+        assertEquals("users/5;6/comments/9/", COMMENTS_TO.appendIdsTo(sb, ids, 0, 2, "9").toString());
+        sb.setLength(0);
+        assertEquals("users/7;8/comments/9/", COMMENTS_TO.appendIdsTo(sb, ids, 2, 4, "9").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingValues() {
+        COMMENTS_TO.appendIdsTo(new StringBuilder(), new int[] { 1 }, 0, 1);
+    }
+
+    @Test
+    public void bindFillsOnePlaceholder() {
+        assertEquals("users/3/comments/9/", COMMENTS_TO.bind("toid", 9).expand("3"));
+    }
+}